@@ -0,0 +1,154 @@
+package com.example.myflowcharteditor;
+
+import com.example.myflowcharteditor.export.DiagramRasterizer;
+import com.example.myflowcharteditor.export.PngStreamWriter;
+import com.example.myflowcharteditor.export.SvgExporter;
+import com.example.myflowcharteditor.model.DiagramDocument;
+import com.example.myflowcharteditor.model.DiagramFileFormat;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Пакетний рендеринг діаграм без вікна та без запуску JavaFX:
+//   BatchRenderer <каталог> [--out <каталог>] [--format png|svg|all] [--threads N] [--dpi D]
+// Усі файли .fcd з каталогу рендеряться паралельно в обмеженому пулі потоків.
+public class BatchRenderer {
+    private final Path outputDirectory;
+    private final boolean png;
+    private final boolean svg;
+    private final double dpi;
+    private final DiagramRasterizer rasterizer = new DiagramRasterizer();
+
+    public BatchRenderer(Path outputDirectory, boolean png, boolean svg, double dpi) {
+        this.outputDirectory = outputDirectory;
+        this.png = png;
+        this.svg = svg;
+        this.dpi = dpi;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        Path input = null;
+        Path output = null;
+        String format = "png";
+        int threads = Runtime.getRuntime().availableProcessors();
+        double dpi = 96;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out" -> output = Paths.get(args[++i]);
+                    case "--format" -> format = args[++i].toLowerCase(Locale.ROOT);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--dpi" -> dpi = Double.parseDouble(args[++i]);
+                    default -> input = Paths.get(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            input = null;
+        }
+        if (input == null || !Files.isDirectory(input) || threads < 1 || dpi <= 0
+                || !List.of("png", "svg", "all").contains(format)) {
+            System.err.println("Usage: BatchRenderer <directory> [--out <directory>] [--format png|svg|all] [--threads N] [--dpi D]");
+            System.exit(2);
+            return;
+        }
+        if (output == null) {
+            output = input;
+        }
+        Files.createDirectories(output);
+
+        BatchRenderer renderer = new BatchRenderer(output, !format.equals("svg"), !format.equals("png"), dpi);
+        int failed = renderer.renderAll(input, threads);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // Повертає кількість файлів, які не вдалося відрендерити
+    public int renderAll(Path directory, int threads) throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*." + DiagramFileFormat.EXTENSION)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())));
+        ExecutorCompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        long started = System.nanoTime();
+        try {
+            for (Path file : files) {
+                completion.submit(() -> render(file));
+            }
+
+            int failed = 0;
+            long elements = 0;
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    Result result = completion.take().get();
+                    elements += result.elements;
+                    System.out.printf(Locale.ROOT, "%-40s %8d elements  read %7.1f ms  render %7.1f ms%n",
+                            result.file.getFileName(), result.elements, result.readNanos / 1e6, result.renderNanos / 1e6);
+                } catch (ExecutionException e) {
+                    failed++;
+                    System.err.println("Failed: " + e.getCause());
+                }
+            }
+
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf(Locale.ROOT, "%d files (%d failed), %d elements in %.2f s: %.1f files/s, %.0f elements/s%n",
+                    files.size(), failed, elements, seconds, files.size() / seconds, elements / seconds);
+            return failed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result render(Path file) throws IOException {
+        long started = System.nanoTime();
+        DiagramDocument document;
+        try {
+            document = DiagramFileFormat.read(file);
+        } catch (IOException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        long read = System.nanoTime();
+
+        String name = file.getFileName().toString();
+        String baseName = name.substring(0, name.length() - DiagramFileFormat.EXTENSION.length() - 1);
+        if (png) {
+            writePng(document, outputDirectory.resolve(baseName + ".png"));
+        }
+        if (svg) {
+            try (Writer writer = Files.newBufferedWriter(outputDirectory.resolve(baseName + ".svg"), StandardCharsets.UTF_8)) {
+                new SvgExporter(writer).write(document);
+            }
+        }
+        return new Result(file, document.size(), read - started, System.nanoTime() - read);
+    }
+
+    private void writePng(DiagramDocument document, Path target) throws IOException {
+        BufferedImage image = rasterizer.render(document, dpi / 96);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        try (OutputStream output = Files.newOutputStream(target);
+             PngStreamWriter writer = new PngStreamWriter(output, image.getWidth(), image.getHeight(), dpi)) {
+            writer.writeRows(pixels, 0, image.getWidth(), image.getHeight());
+        }
+    }
+
+    private record Result(Path file, int elements, long readNanos, long renderNanos) {
+    }
+}
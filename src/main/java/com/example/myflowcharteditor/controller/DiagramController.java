@@ -1,13 +1,24 @@
 package com.example.myflowcharteditor.controller;
 
+import com.example.myflowcharteditor.export.DiagramTransferable;
+import com.example.myflowcharteditor.export.PngExportTask;
+import com.example.myflowcharteditor.export.SvgExportTask;
+import com.example.myflowcharteditor.export.TiledPngExportTask;
 import com.example.myflowcharteditor.model.*;
+import com.example.myflowcharteditor.utillity.DragCoalescer;
+import com.example.myflowcharteditor.utillity.DragLayer;
+import com.example.myflowcharteditor.utillity.ElementHandle;
+import com.example.myflowcharteditor.utillity.HandleRegistry;
 import com.example.myflowcharteditor.utillity.LineHandles;
 import com.example.myflowcharteditor.utillity.ResizeBox;
 import com.example.myflowcharteditor.view.DiagramView;
+import javafx.concurrent.Task;
+import javafx.geometry.Bounds;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.control.*;
+import javafx.scene.effect.InnerShadow;
 import javafx.scene.image.ImageView;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.*;
@@ -16,33 +27,55 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.*;
 import javafx.scene.text.Font;
+import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.stage.FileChooser;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class DiagramController {
     private final DiagramView view;
     private final DiagramModel model;
+    private final HandleRegistry handleRegistry = new HandleRegistry();
+    private final DragCoalescer dragCoalescer = new DragCoalescer(10, this::applyMove);
+    private final DragLayer dragLayer;
+    private static final int GROUP_DRAG_THRESHOLD = 50;
+    private final UndoHistory history = new UndoHistory(8L << 20);
+    private Node reshapedNode;
+    private double[] reshapeBefore;
+    private boolean routingEnabled = false;
+    private boolean selectionMoved = false;
+    private boolean animateLayout = true;
+    private boolean showIssues = true;
+    private boolean exportLocked = false;
+    private final ExecutorService backgroundExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "diagram-background");
+        thread.setDaemon(true);
+        return thread;
+    });
     private double initialMouseX, initialMouseY;
 
     private final List<ResizeBox> selectedResizeBoxes = new ArrayList<>();
     private final List<LineHandles> selectedLineHandlesList = new ArrayList<>();
     private final List<Object> selectedElements = new ArrayList<>();
 
-    private final Map<Node, String> elementTypesMap = new HashMap<>();
+    private final Set<Node> previewedNodes = new HashSet<>();
+    private final InnerShadow selectionPreviewEffect = new InnerShadow(8, Color.DODGERBLUE);
 
     private ContextMenu contextMenu;
 
     private double zoomScale = 1.0;
-    private final double maxZoomScale = 2.0;
-    private final double minZoomScale = 0.5;
+    private final double maxZoomScale = 8.0;
+    private final double minZoomScale = 0.02;
+    private final double zoomStep = 1.1;
 
     private ComboBox<String> fontStyleComboBox;
     private ComboBox<Integer> fontSizeComboBox;
@@ -50,14 +83,27 @@ public class DiagramController {
 
     public DiagramController() {
         this.view = new DiagramView();
-        this.model = new DiagramModel(view.getWorkArea());
+        this.model = new DiagramModel(view.getWorkArea(), this);
+        this.dragLayer = new DragLayer(view.getWorkArea());
+        model.setOnRestore(this::setupElement);
+        model.getViewportCuller().bind(view.getWorkAreaScrollPane(), view::getVisibleWorkAreaBounds);
+        view.getOutlineLayer().setSource(model.getElementIndex()::query);
+        model.getElementIndex().setOnChange(() -> {
+            view.getOutlineLayer().requestRedraw();
+            view.getIssueLayer().requestRedraw();
+        });
+        view.getIssueLayer().setResolver(id -> {
+            DiagramElement element = model.getElement(id);
+            return element != null ? element.getNode() : null;
+        });
+        model.getValidator().setListener(view.getIssueLayer()::update);
         initializeContextMenu();
         setupEventHandlers();
         initializeFontControls();
         setupFileHandlers();
 
         Button saveAsPngButton = view.getSaveAsPngButton();
-        saveAsPngButton.setOnAction(event -> saveAsPng());
+        saveAsPngButton.setOnAction(event -> save());
     }
 
     private void initializeContextMenu() {
@@ -80,10 +126,40 @@ public class DiagramController {
         MenuItem unlockItem = new MenuItem("Відімкнути");
         unlockItem.setOnAction(event -> unlockSelectedElements());
 
-        contextMenu.getItems().addAll(deleteItem, copyItem, pasteItem, cutItem, lockItem, unlockItem);
+        MenuItem undoItem = new MenuItem("Скасувати");
+        undoItem.setOnAction(event -> undo());
+
+        MenuItem redoItem = new MenuItem("Повторити");
+        redoItem.setOnAction(event -> redo());
+
+        CheckMenuItem routingItem = new CheckMenuItem("Автотрасування з'єднань");
+        routingItem.setOnAction(event -> setRoutingEnabled(routingItem.isSelected()));
+
+        MenuItem layoutItem = new MenuItem("Автокомпонування");
+        layoutItem.setOnAction(event -> layoutDiagram());
+
+        CheckMenuItem animateLayoutItem = new CheckMenuItem("Анімувати компонування");
+        animateLayoutItem.setSelected(animateLayout);
+        animateLayoutItem.setOnAction(event -> animateLayout = animateLayoutItem.isSelected());
+
+        CheckMenuItem issuesItem = new CheckMenuItem("Перевірка схеми");
+        issuesItem.setSelected(showIssues);
+        issuesItem.setOnAction(event -> {
+            showIssues = issuesItem.isSelected();
+            view.getIssueLayer().setVisible(showIssues);
+        });
+
+        contextMenu.getItems().addAll(deleteItem, copyItem, pasteItem, cutItem, lockItem, unlockItem, undoItem, redoItem,
+                new SeparatorMenuItem(), routingItem, layoutItem, animateLayoutItem, issuesItem);
     }
 
     private void setupEventHandlers() {
+        view.getWorkArea().addEventFilter(KeyEvent.ANY, event -> {
+            if (exportLocked) {
+                event.consume();
+            }
+        });
+
         view.getWorkArea().setOnContextMenuRequested(event -> {
             contextMenu.show(view.getWorkArea(), event.getScreenX(), event.getScreenY());
             event.consume();
@@ -110,6 +186,14 @@ public class DiagramController {
                 pasteElements();
             } else if (event.getCode() == KeyCode.X && event.isShortcutDown()) {
                 cutSelectedElements();
+            } else if (event.getCode() == KeyCode.Z && event.isShortcutDown()) {
+                if (event.isShiftDown()) {
+                    redo();
+                } else {
+                    undo();
+                }
+            } else if (event.getCode() == KeyCode.Y && event.isShortcutDown()) {
+                redo();
             }
         });
 
@@ -151,11 +235,13 @@ public class DiagramController {
                 double endX = event.getX();
                 double endY = event.getY();
                 updateSelectionRectangle(initialMouseX, initialMouseY, endX, endY);
+                updateSelectionPreview();
             }
         });
 
         view.getWorkArea().addEventFilter(MouseEvent.MOUSE_RELEASED, event -> {
             if (view.getSelectionRectangle().isVisible()) {
+                clearSelectionPreview();
                 selectElementsWithinRectangle();
                 view.getSelectionRectangle().setVisible(false);
             }
@@ -294,64 +380,172 @@ public class DiagramController {
         return view;
     }
 
+    public HandleRegistry getHandleRegistry() {
+        return handleRegistry;
+    }
+
     public List<Object> getSelectedElements() {
         return selectedElements;
     }
 
+    // Зсув миші в пікселях сцени переводиться в одиниці робочої області з урахуванням масштабу
+    public double sceneToWorkArea(double sceneDistance) {
+        return sceneDistance / view.getWorkArea().getScaleX();
+    }
+
+    // Зсуви від подій миші накопичуються і застосовуються до виділення один раз за кадр
     public void moveSelectedElements(double offsetX, double offsetY) {
+        history.beginGesture();
+        dragCoalescer.add(offsetX, offsetY);
+    }
+
+    public void finishMove() {
+        dragCoalescer.finish();
+        if (dragLayer.isActive()) {
+            double offsetX = dragLayer.getOffsetX();
+            double offsetY = dragLayer.getOffsetY();
+            dragLayer.end();
+            model.getViewportCuller().setFrozen(false);
+            moveElements(offsetX, offsetY);
+        }
+        history.endGesture();
+        if (selectionMoved) {
+            selectionMoved = false;
+            snapSelectedConnectors();
+            routeConnectors();
+        }
+    }
+
+    // Перенесені з'єднання прикріплюються до портів, біля яких опинилися їхні кінці, або від'єднуються
+    private void snapSelectedConnectors() {
+        for (Object element : selectedElements) {
+            if (element instanceof LineHandles lineHandles && !lineHandles.isLocked()) {
+                model.snapConnector(lineHandles.getArrowGroup() != null ? lineHandles.getArrowGroup() : lineHandles.getPolyline());
+            }
+        }
+    }
+
+    // Увімкнене автотрасування прокладає з'єднання після кожної зміни; самі маршрути в історію не пишуться,
+    // бо вони виводяться з положення фігур і перераховуються після скасування так само
+    public void setRoutingEnabled(boolean enabled) {
+        routingEnabled = enabled;
+        routeConnectors();
+    }
+
+    private void routeConnectors() {
+        if (routingEnabled) {
+            model.routeConnectors();
+        }
+    }
+
+    // Велике виділення переноситься в шар перетягування, і за кадр змінюється тільки його зсув
+    private void applyMove(double offsetX, double offsetY) {
+        if (!dragLayer.isActive() && selectedElements.size() >= GROUP_DRAG_THRESHOLD) {
+            beginGroupDrag();
+        }
+        if (dragLayer.isActive()) {
+            dragLayer.translate(offsetX, offsetY);
+        } else {
+            moveElements(offsetX, offsetY);
+        }
+    }
+
+    private void beginGroupDrag() {
+        List<Node> nodes = new ArrayList<>(selectedElements.size() * 2);
         for (Object element : selectedElements) {
+            if (element instanceof ResizeBox resizeBox && !resizeBox.isLocked()) {
+                nodes.add(resizeBox.getNode());
+                nodes.add(resizeBox);
+            } else if (element instanceof LineHandles lineHandles && !lineHandles.isLocked()) {
+                nodes.add(lineHandles.getArrowGroup() != null ? lineHandles.getArrowGroup() : lineHandles.getPolyline());
+                nodes.add(lineHandles);
+            }
+        }
+        model.getViewportCuller().setFrozen(true);
+        dragLayer.begin(nodes);
+    }
+
+    // Кроки одного перетягування зливаються в історії в один запис
+    private void moveElements(double offsetX, double offsetY) {
+        long[] ids = new long[selectedElements.size()];
+        int count = 0;
+        for (Object element : selectedElements) {
+            Node node = null;
             if (element instanceof ResizeBox) {
                 ResizeBox resizeBox = (ResizeBox) element;
                 if (!resizeBox.isLocked()) {
                     resizeBox.move(offsetX, offsetY);
+                    node = resizeBox.getNode();
                 }
             } else if (element instanceof LineHandles) {
                 LineHandles lineHandles = (LineHandles) element;
                 if (!lineHandles.isLocked()) {
                     lineHandles.movePolyline(offsetX, offsetY);
+                    node = lineHandles.getArrowGroup() != null ? lineHandles.getArrowGroup() : lineHandles.getPolyline();
                 }
             }
+            ElementData data = node == null ? null : model.getData(node);
+            if (data != null) {
+                ids[count++] = data.getId();
+            }
+        }
+        if (count > 0) {
+            history.record(DiagramEdits.moved(model, Arrays.copyOf(ids, count), offsetX, offsetY));
+            selectionMoved = true;
         }
     }
 
-    private void addShapeToWorkArea(String shapeType, double x, double y) {
-        DiagramElement element = shapeType.equals("Image") ? null : ElementFactory.createElement(shapeType, x, y);
-        if (element == null) return;
+    // Зміна форми одного елемента маркером записується в історію при відпусканні миші
+    public void beginReshape(Node node) {
+        reshapedNode = node;
+        reshapeBefore = model.captureGeometry(node);
+    }
 
-        view.getWorkArea().getChildren().add(element.getNode());
-        elementTypesMap.put(element.getNode(), shapeType);
+    public void endReshape() {
+        if (reshapedNode == null) {
+            return;
+        }
+        model.snapConnector(reshapedNode);
+        double[] after = model.captureGeometry(reshapedNode);
+        ElementData data = model.getData(reshapedNode);
+        if (data != null && reshapeBefore != null && !Arrays.equals(reshapeBefore, after)) {
+            history.record(DiagramEdits.reshaped(model, data.getId(), reshapeBefore, after));
+            routeConnectors();
+        }
+        reshapedNode = null;
+        reshapeBefore = null;
+    }
 
-        if (element instanceof DiagramArrow) {
-            LineHandles lineHandles = new LineHandles(element, this);
-            view.getWorkArea().getChildren().add(lineHandles);
-            selectedLineHandlesList.add(lineHandles);
-            selectedElements.add(lineHandles);
-        } else if (element instanceof DiagramShape && ((DiagramShape) element).getNode() instanceof Polyline) {
-            LineHandles lineHandles = new LineHandles(element, this);
-            view.getWorkArea().getChildren().add(lineHandles);
-            selectedLineHandlesList.add(lineHandles);
-            selectedElements.add(lineHandles);
-        } else if (element instanceof DiagramShape) {
-            ResizeBox resizeBox = new ResizeBox(((DiagramShape) element).getNode(), this);
-            view.getWorkArea().getChildren().add(resizeBox);
-            selectedResizeBoxes.add(resizeBox);
-            selectedElements.add(resizeBox);
+    public void undo() {
+        finishMove();
+        clearSelection();
+        if (history.undo()) {
+            routeConnectors();
+        }
+    }
+
+    public void redo() {
+        finishMove();
+        clearSelection();
+        if (history.redo()) {
+            routeConnectors();
         }
+    }
+
+    private void addShapeToWorkArea(String shapeType, double x, double y) {
+        ElementKind kind = ElementKind.fromDisplayName(shapeType);
+        if (kind == ElementKind.IMAGE) return;
+
+        DiagramElement element = model.createElement(kind, x, y);
+        history.record(DiagramEdits.added(model, List.of(element.getData().copy(element.getData().getId()))));
+        addHandle(element);
+        setupElement(element);
+    }
 
+    private void setupElement(DiagramElement element) {
         element.getNode().setOnMouseClicked(event -> {
             clearSelection();
-
-            if (element instanceof DiagramArrow || (element instanceof DiagramShape && ((DiagramShape) element).getNode() instanceof Polyline)) {
-                LineHandles lineHandles = new LineHandles(element, this);
-                view.getWorkArea().getChildren().add(lineHandles);
-                selectedLineHandlesList.add(lineHandles);
-                selectedElements.add(lineHandles);
-            } else {
-                ResizeBox resizeBox = new ResizeBox(((DiagramShape) element).getNode(), this);
-                view.getWorkArea().getChildren().add(resizeBox);
-                selectedResizeBoxes.add(resizeBox);
-                selectedElements.add(resizeBox);
-            }
+            addHandle(element);
             event.consume();
         });
 
@@ -365,6 +559,35 @@ public class DiagramController {
         }
     }
 
+    // Вид маркера задається шаблоном виду елемента
+    private ElementHandle addHandle(DiagramElement element) {
+        WorkAreaBatch batch = model.beginBatch();
+        ElementHandle handle = addHandle(element, batch);
+        batch.commit();
+        return handle;
+    }
+
+    private ElementHandle addHandle(DiagramElement element, WorkAreaBatch batch) {
+        ElementPrototype prototype = ElementPrototypes.get(element.getData().getKind());
+        if (prototype.getHandleType() == ElementPrototype.HandleType.LINE) {
+            LineHandles lineHandles = new LineHandles(element, this);
+            batch.add(lineHandles);
+            selectedLineHandlesList.add(lineHandles);
+            selectedElements.add(lineHandles);
+            return lineHandles;
+        } else {
+            ResizeBox resizeBox = new ResizeBox(element.getNode(), this);
+            batch.add(resizeBox);
+            selectedResizeBoxes.add(resizeBox);
+            selectedElements.add(resizeBox);
+            return resizeBox;
+        }
+    }
+
+    public ElementHandle showHandle(DiagramElement element) {
+        return addHandle(element);
+    }
+
     private void addElementToCenter(String type) {
         double centerX = view.getWorkArea().getWidth() / 2;
         double centerY = view.getWorkArea().getHeight() / 2;
@@ -376,26 +599,25 @@ public class DiagramController {
     }
 
     private void clearSelection() {
-        List<ResizeBox> toRemoveResizeBoxes = new ArrayList<>();
+        WorkAreaBatch batch = model.beginBatch();
+        Set<Object> removed = new HashSet<>();
         for (ResizeBox resizeBox : selectedResizeBoxes) {
             if (!resizeBox.isLocked()) {
-                view.getWorkArea().getChildren().remove(resizeBox);
-                toRemoveResizeBoxes.add(resizeBox);
+                batch.remove(resizeBox);
+                removed.add(resizeBox);
             }
         }
-        selectedResizeBoxes.removeAll(toRemoveResizeBoxes);
-
-        List<LineHandles> toRemoveLineHandles = new ArrayList<>();
         for (LineHandles lineHandles : selectedLineHandlesList) {
             if (!lineHandles.isLocked()) {
-                view.getWorkArea().getChildren().remove(lineHandles);
-                toRemoveLineHandles.add(lineHandles);
+                batch.remove(lineHandles);
+                removed.add(lineHandles);
             }
         }
-        selectedLineHandlesList.removeAll(toRemoveLineHandles);
+        batch.commit();
 
-        selectedElements.removeAll(toRemoveResizeBoxes);
-        selectedElements.removeAll(toRemoveLineHandles);
+        selectedResizeBoxes.removeIf(removed::contains);
+        selectedLineHandlesList.removeIf(removed::contains);
+        selectedElements.removeIf(removed::contains);
     }
 
     private void updateSelectionRectangle(double startX, double startY, double endX, double endY) {
@@ -409,29 +631,30 @@ public class DiagramController {
         List<ResizeBox> newSelectedResize = new ArrayList<>();
         List<LineHandles> newSelectedLineHandles = new ArrayList<>();
 
-        for (Node node : view.getWorkArea().getChildren()) {
-            if (node instanceof Shape shape && !(node instanceof Rectangle && shape == view.getSelectionRectangle())) {
-                if (shape.getStroke() == Color.LIGHTGRAY || shape.getStroke() == Color.DARKGRAY || isNodeAlreadyHandled(shape)) {
+        List<Node> candidates = new ArrayList<>();
+        model.getElementIndex().query(view.getSelectionRectangle().getBoundsInParent(), candidates::add);
+
+        for (Node node : candidates) {
+            if (node instanceof Shape shape) {
+                if (isNodeAlreadyHandled(shape)) {
                     continue;
                 }
 
-                if (isShapeWithinSelectionRectangle(shape)) {
-                    if (shape instanceof Polyline) {
-                        LineHandles lineHandles = new LineHandles(new DiagramShape(shape), this);
-                        if (!lineHandles.isLocked() && !isNodeAlreadyHandled(lineHandles)) {
-                            newSelectedLineHandles.add(lineHandles);
-                            selectedElements.add(lineHandles);
-                        }
-                    } else {
-                        ResizeBox resizeBox = new ResizeBox(shape, this);
-                        if (!resizeBox.isLocked() && !isNodeAlreadyHandled(resizeBox)) {
-                            newSelectedResize.add(resizeBox);
-                            selectedElements.add(resizeBox);
-                        }
+                if (shape instanceof Polyline) {
+                    LineHandles lineHandles = new LineHandles(new DiagramShape(shape), this);
+                    if (!lineHandles.isLocked() && !isNodeAlreadyHandled(lineHandles)) {
+                        newSelectedLineHandles.add(lineHandles);
+                        selectedElements.add(lineHandles);
+                    }
+                } else {
+                    ResizeBox resizeBox = new ResizeBox(shape, this);
+                    if (!resizeBox.isLocked() && !isNodeAlreadyHandled(resizeBox)) {
+                        newSelectedResize.add(resizeBox);
+                        selectedElements.add(resizeBox);
                     }
                 }
             } else if (node instanceof ImageView imageView) {
-                if (isShapeWithinSelectionRectangle(imageView) && !isNodeAlreadyHandled(imageView)) {
+                if (!isNodeAlreadyHandled(imageView)) {
                     ResizeBox resizeBox = new ResizeBox(imageView, this);
                     if (!resizeBox.isLocked()) {
                         newSelectedResize.add(resizeBox);
@@ -439,7 +662,7 @@ public class DiagramController {
                     }
                 }
             } else if (node instanceof Group group) {
-                if (!isGroupLocked(group) && isShapeWithinSelectionRectangle(group)) {
+                if (!isGroupLocked(group)) {
                     for (Node child : group.getChildren()) {
                         if (child instanceof Polyline polyline) {
                             LineHandles lineHandles = new LineHandles(new DiagramArrow(group, polyline, (Polygon) group.getChildren().get(1)), this);
@@ -452,7 +675,7 @@ public class DiagramController {
                     }
                 }
             } else if (node instanceof Pane pane && pane.getChildren().get(0) instanceof TextField) {
-                if (isShapeWithinSelectionRectangle(pane) && !isNodeAlreadyHandled(pane)) {
+                if (!isNodeAlreadyHandled(pane)) {
                     ResizeBox resizeBox = new ResizeBox(pane, this);
                     if (!resizeBox.isLocked()) {
                         newSelectedResize.add(resizeBox);
@@ -462,85 +685,103 @@ public class DiagramController {
             }
         }
 
-        view.getWorkArea().getChildren().addAll(newSelectedResize);
-        view.getWorkArea().getChildren().addAll(newSelectedLineHandles);
+        WorkAreaBatch batch = model.beginBatch();
+        batch.addAll(newSelectedResize);
+        batch.addAll(newSelectedLineHandles);
+        batch.commit();
 
         selectedResizeBoxes.addAll(newSelectedResize);
         selectedLineHandlesList.addAll(newSelectedLineHandles);
     }
 
     private boolean isNodeAlreadyHandled(Node node) {
-        boolean isHandledByResizeBox = view.getWorkArea().getChildren().stream()
-                .filter(e -> e instanceof ResizeBox && ((ResizeBox) e).getNode() == node)
-                .anyMatch(e -> ((ResizeBox) e).isLocked());
-
-        boolean isHandledByLineHandles = view.getWorkArea().getChildren().stream()
-                .filter(e -> e instanceof LineHandles && ((LineHandles) e).getPolyline() == node)
-                .anyMatch(e -> ((LineHandles) e).isLocked());
-
-        return isHandledByResizeBox || isHandledByLineHandles;
+        return handleRegistry.isLocked(node);
     }
 
     private boolean isGroupLocked(Group group) {
-        return view.getWorkArea().getChildren().stream()
-                .filter(e -> e instanceof LineHandles && group.getChildren().contains(((LineHandles) e).getPolyline()))
-                .anyMatch(e -> ((LineHandles) e).isLocked());
+        return handleRegistry.isLocked(group);
     }
 
-    private boolean isShapeWithinSelectionRectangle(Node node) {
-        return view.getSelectionRectangle().getBoundsInParent().intersects(node.getBoundsInParent());
+    private void updateSelectionPreview() {
+        Set<Node> hits = new HashSet<>();
+        model.getElementIndex().query(view.getSelectionRectangle().getBoundsInParent(), hits::add);
+
+        for (Node node : previewedNodes) {
+            if (!hits.contains(node)) {
+                node.setEffect(null);
+            }
+        }
+        for (Node node : hits) {
+            if (!previewedNodes.contains(node)) {
+                node.setEffect(selectionPreviewEffect);
+            }
+        }
+        previewedNodes.clear();
+        previewedNodes.addAll(hits);
     }
 
-    private boolean isShapeWithinSelectionRectangle(Shape shape) {
-        return view.getSelectionRectangle().getBoundsInParent().intersects(shape.getBoundsInParent());
+    private void clearSelectionPreview() {
+        for (Node node : previewedNodes) {
+            node.setEffect(null);
+        }
+        previewedNodes.clear();
     }
 
     public void deleteSelectedElements() {
-        model.deleteSelectedElements(selectedElements);
+        recordRemoved(model.deleteSelectedElements(selectedElements));
+    }
+
+    private void recordRemoved(List<ElementData> removed) {
+        if (!removed.isEmpty()) {
+            history.record(DiagramEdits.removed(model, removed));
+            routeConnectors();
+        }
     }
 
     public void copySelectedElements() {
-        model.copySelectedElements(selectedElements, elementTypesMap);
+        model.copySelectedElements(selectedElements);
+        DiagramTransferable.publish(model.getClipboardDocument());
         clearSelection(); // Clear the previous selection
     }
 
+    // Діаграма, скопійована в іншому вікні, замінює локальний буфер
     public void pasteElements() {
-        List<DiagramElement> newElements = model.pasteElements();
+        DiagramDocument foreign = DiagramTransferable.readForeign();
+        if (foreign != null) {
+            model.setClipboard(foreign.getElements());
+        }
+        WorkAreaBatch batch = model.beginBatch();
+        List<DiagramElement> newElements = model.pasteElements(batch);
+        List<ElementData> added = new ArrayList<>(newElements.size());
         for (DiagramElement newElement : newElements) {
-            Node node = newElement.getNode();
-            view.getWorkArea().getChildren().add(node);
-
-            if (newElement instanceof DiagramArrow) {
-                LineHandles lineHandles = new LineHandles(newElement, this);
-                view.getWorkArea().getChildren().add(lineHandles);
-                selectedLineHandlesList.add(lineHandles);
-                selectedElements.add(lineHandles);
-            } else if (newElement instanceof DiagramShape && ((DiagramShape) newElement).getNode() instanceof Polyline) {
-                LineHandles lineHandles = new LineHandles(newElement, this);
-                view.getWorkArea().getChildren().add(lineHandles);
-                selectedLineHandlesList.add(lineHandles);
-                selectedElements.add(lineHandles);
-            } else if (newElement instanceof DiagramShape) {
-                ResizeBox resizeBox = new ResizeBox(((DiagramShape) newElement).getNode(), this);
-                view.getWorkArea().getChildren().add(resizeBox);
-                selectedResizeBoxes.add(resizeBox);
-                selectedElements.add(resizeBox);
-            }
-
-            elementTypesMap.put(node, "PastedElement");
+            addHandle(newElement, batch);
+            setupElement(newElement);
+            added.add(newElement.getData().copy(newElement.getData().getId()));
+        }
+        batch.commit();
+        if (!added.isEmpty()) {
+            history.record(DiagramEdits.added(model, added));
+            routeConnectors();
         }
     }
 
     public void cutSelectedElements() {
-        model.cutSelectedElements(selectedElements, elementTypesMap);
+        recordRemoved(model.cutSelectedElements(selectedElements));
+        DiagramTransferable.publish(model.getClipboardDocument());
     }
 
     public void lockSelectedElements() {
-        model.lockSelectedElements(selectedElements);
+        long[] ids = model.lockSelectedElements(selectedElements);
+        if (ids.length > 0) {
+            history.record(DiagramEdits.locked(model, ids, true));
+        }
     }
 
     public void unlockSelectedElements() {
-        model.unlockSelectedElements(selectedElements);
+        long[] ids = model.unlockSelectedElements(selectedElements);
+        if (ids.length > 0) {
+            history.record(DiagramEdits.locked(model, ids, false));
+        }
         refocusWorkArea();
     }
 
@@ -558,37 +799,25 @@ public class DiagramController {
 
         if (selectedFile != null) {
             String imagePath = selectedFile.getAbsolutePath();
-            DiagramElement element = ElementFactory.createImageElement(imagePath, view.getWorkArea().getWidth() / 2, view.getWorkArea().getHeight() / 2);
+            DiagramElement element = model.createImageElement(imagePath, view.getWorkArea().getWidth() / 2, view.getWorkArea().getHeight() / 2);
             if (element != null) {
-                view.getWorkArea().getChildren().add(element.getNode());
-                ResizeBox resizeBox = new ResizeBox(element.getNode(), this);
-                view.getWorkArea().getChildren().add(resizeBox);
-                selectedResizeBoxes.add(resizeBox);
-                selectedElements.add(resizeBox);
-                elementTypesMap.put(element.getNode(), "Image");
-
-                element.getNode().setOnMouseClicked(event -> {
-                    clearSelection();
-                    ResizeBox newResizeBox = new ResizeBox(element.getNode(), this);
-                    view.getWorkArea().getChildren().add(newResizeBox);
-                    selectedResizeBoxes.add(newResizeBox);
-                    selectedElements.add(newResizeBox);
-                    event.consume();
-                });
+                history.record(DiagramEdits.added(model, List.of(element.getData().copy(element.getData().getId()))));
+                addHandle(element);
+                setupElement(element);
             }
         }
     }
 
     private void zoomIn() {
         if (zoomScale < maxZoomScale) {
-            zoomScale += 0.1;
+            zoomScale = Math.min(maxZoomScale, zoomScale * zoomStep);
             applyZoom();
         }
     }
 
     private void zoomOut() {
         if (zoomScale > minZoomScale) {
-            zoomScale -= 0.1;
+            zoomScale = Math.max(minZoomScale, zoomScale / zoomStep);
             applyZoom();
         }
     }
@@ -596,59 +825,196 @@ public class DiagramController {
     private void applyZoom() {
         view.getWorkArea().setScaleX(zoomScale);
         view.getWorkArea().setScaleY(zoomScale);
-        view.getZoomLabel().setText((int) (zoomScale * 100) + "%");
+        view.getZoomLabel().setText(Math.round(zoomScale * 100) + "%");
+        applyDetailLevel(DetailLevel.forScale(zoomScale));
+    }
+
+    private void applyDetailLevel(DetailLevel level) {
+        model.setDetailLevel(level);
+        view.getOutlineLayer().setVisible(level == DetailLevel.OUTLINE);
+    }
+
+    // Знімок робочої області має містити всі елементи в повній деталізації і без сітки
+    private void beginSnapshotExport(double scale) {
+        setExportLocked(true);
+        view.setGridVisible(false);
+        view.getIssueLayer().setVisible(false);
+        ImagePyramid.setExportScale(scale);
+        applyDetailLevel(DetailLevel.FULL);
+        model.getViewportCuller().setEnabled(false);
+    }
+
+    private void endSnapshotExport() {
+        model.getViewportCuller().setEnabled(true);
+        applyDetailLevel(DetailLevel.forScale(zoomScale));
+        ImagePyramid.setExportScale(0);
+        view.setGridVisible(true);
+        view.getIssueLayer().setVisible(showIssues);
+        setExportLocked(false);
+    }
+
+    // Експорт плитками знімає робочу область частинами між кадрами, тож поки він триває,
+    // масштаб і вміст змінювати не можна, інакше плитки вийдуть розірваними
+    private void setExportLocked(boolean locked) {
+        exportLocked = locked;
+        view.getWorkArea().setMouseTransparent(locked);
+        view.getLeftPanel().setDisable(locked);
+        view.getTopPanelContainer().setDisable(locked);
     }
 
     private void setupFileHandlers() {
-        view.getOpenButton().setOnAction(event -> addImageToWorkArea());
+        view.getOpenButton().setOnAction(event -> openDiagram());
+    }
+
+    private void openDiagram() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open Diagram");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Diagram Files", "*." + DiagramFileFormat.EXTENSION));
+        File file = fileChooser.showOpenDialog(view.getWorkArea().getScene().getWindow());
+        if (file != null) {
+            Bounds visible = view.getVisibleWorkAreaBounds();
+            double focusX = visible != null ? visible.getCenterX() : view.getWorkArea().getWidth() / 2;
+            double focusY = visible != null ? visible.getCenterY() : view.getWorkArea().getHeight() / 2;
+
+            DiagramLoader loader = model.createLoader(file, focusX, focusY);
+            loader.setOnFailed(event -> loader.getException().printStackTrace());
+            String name = file.getName();
+            view.getFileNameField().setText(name.substring(0, name.length() - DiagramFileFormat.EXTENSION.length() - 1));
+            runInBackground(loader);
+        }
+    }
+
+    // Граф знімається на потоці JavaFX, компонування рахується у фоні на ForkJoinPool,
+    // а результат застосовується одним пакетом і записується в історію одним кроком
+    public void layoutDiagram() {
+        finishMove();
+        clearSelection();
+        LayeredLayout.Graph graph = model.captureLayoutGraph();
+        if (graph.size() == 0) {
+            return;
+        }
+        Task<LayeredLayout.Result> task = new Task<>() {
+            @Override
+            protected LayeredLayout.Result call() {
+                updateMessage("Компонування " + graph.size() + " фігур");
+                return new LayeredLayout(ForkJoinPool.commonPool()).layout(graph);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            history.record(model.applyLayout(graph, task.getValue(), animateLayout));
+            routeConnectors();
+        });
+        task.setOnFailed(event -> task.getException().printStackTrace());
+        runInBackground(task);
+    }
+
+    private void runInBackground(Task<?> task) {
+        view.showProgress(task);
+        backgroundExecutor.execute(task);
     }
 
-    private void saveAsPng() {
+    private void save() {
         FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Save Diagram as PNG");
+        fileChooser.setTitle("Save Diagram");
 
         String fileName = view.getFileNameField().getText();
         if (fileName == null || fileName.isEmpty()) {
             fileName = "Назва файлу";
         }
-        fileChooser.setInitialFileName(fileName + ".png");
+        fileChooser.setInitialFileName(fileName);
 
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG Files", "*.png"));
+        FileChooser.ExtensionFilter diagramFilter =
+                new FileChooser.ExtensionFilter("Diagram Files", "*." + DiagramFileFormat.EXTENSION);
+        FileChooser.ExtensionFilter pngFilter = new FileChooser.ExtensionFilter("PNG Files", "*.png");
+        FileChooser.ExtensionFilter svgFilter = new FileChooser.ExtensionFilter("SVG Files", "*.svg");
+        fileChooser.getExtensionFilters().addAll(diagramFilter, pngFilter, svgFilter);
         File file = fileChooser.showSaveDialog(view.getWorkArea().getScene().getWindow());
-        if (file != null) {
-            try {
-                view.setGridVisible(false);
-
-                SnapshotParameters params = new SnapshotParameters();
-                params.setFill(Color.TRANSPARENT); // Прозорий фон
-                WritableImage image = view.getWorkArea().snapshot(params, null);
+        if (file == null) {
+            return;
+        }
 
-                saveImageToFile(image, file);
+        // Формат визначається розширенням, а якщо його немає — вибраним фільтром
+        String name = file.getName().toLowerCase();
+        String extension;
+        if (name.endsWith(".png") || name.endsWith(".svg") || name.endsWith("." + DiagramFileFormat.EXTENSION)) {
+            extension = name.substring(name.lastIndexOf('.'));
+        } else {
+            FileChooser.ExtensionFilter selected = fileChooser.getSelectedExtensionFilter();
+            extension = selected == pngFilter ? ".png" : selected == svgFilter ? ".svg" : "." + DiagramFileFormat.EXTENSION;
+            file = new File(file.getParentFile(), file.getName() + extension);
+        }
 
-                view.setGridVisible(true);
-            } catch (IOException e) {
-                e.printStackTrace();
+        try {
+            if (extension.equals(".png")) {
+                Double dpi = askExportDpi();
+                if (dpi == null) {
+                    return;
+                }
+                if (dpi == TiledPngExportTask.SCREEN_DPI) {
+                    saveAsPng(file);
+                } else {
+                    saveAsTiledPng(file, dpi);
+                }
+            } else if (extension.equals(".svg")) {
+                saveAsSvg(file);
+            } else {
+                model.saveToFile(file);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
-    private void saveImageToFile(WritableImage image, File file) throws IOException {
-        BufferedImage bufferedImage = new BufferedImage(
-                (int) image.getWidth(),
-                (int) image.getHeight(),
-                BufferedImage.TYPE_INT_ARGB
-        );
-        for (int x = 0; x < image.getWidth(); x++) {
-            for (int y = 0; y < image.getHeight(); y++) {
-                int argb = image.getPixelReader().getArgb(x, y);
-                bufferedImage.setRGB(x, y, argb);
-            }
+    private void saveAsPng(File file) {
+        beginSnapshotExport(zoomScale);
+        WritableImage image;
+        try {
+            SnapshotParameters params = new SnapshotParameters();
+            params.setFill(Color.TRANSPARENT); // Прозорий фон
+            image = view.getWorkArea().snapshot(params, null);
+        } finally {
+            endSnapshotExport();
         }
 
-        ImageIO.write(bufferedImage, "png", file);
+        PngExportTask task = new PngExportTask(image, file);
+        task.setOnFailed(event -> task.getException().printStackTrace());
+        runInBackground(task);
     }
 
-    public Map<Node, String> getElementTypesMap() {
-        return elementTypesMap;
+    private void saveAsSvg(File file) {
+        SvgExportTask task = new SvgExportTask(model.snapshotDocument(), file);
+        task.setOnFailed(event -> task.getException().printStackTrace());
+        runInBackground(task);
+    }
+
+    private Double askExportDpi() {
+        List<String> options = List.of("96 DPI (100%)", "150 DPI", "192 DPI (200%)", "300 DPI", "600 DPI", "1200 DPI");
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(options.get(0), options);
+        dialog.setTitle("Експорт у PNG");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Роздільна здатність:");
+        return dialog.showAndWait()
+                .map(option -> Double.parseDouble(option.substring(0, option.indexOf(' '))))
+                .orElse(null);
+    }
+
+    // Експорт у високій роздільній здатності плитками, без обмеження розміром текстури
+    private void saveAsTiledPng(File file, double dpi) throws IOException {
+        TiledPngExportTask task;
+        try {
+            task = new TiledPngExportTask(view.getWorkArea(), file, dpi);
+        } catch (NonInvertibleTransformException e) {
+            throw new IOException("Cannot export work area", e);
+        }
+
+        beginSnapshotExport(dpi / TiledPngExportTask.SCREEN_DPI);
+        task.setOnSucceeded(event -> endSnapshotExport());
+        task.setOnCancelled(event -> endSnapshotExport());
+        task.setOnFailed(event -> {
+            endSnapshotExport();
+            task.getException().printStackTrace();
+        });
+        runInBackground(task);
     }
 }
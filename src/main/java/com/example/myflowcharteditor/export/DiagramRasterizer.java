@@ -0,0 +1,168 @@
+package com.example.myflowcharteditor.export;
+
+import com.example.myflowcharteditor.model.DiagramDocument;
+import com.example.myflowcharteditor.model.ElementData;
+import com.example.myflowcharteditor.model.ElementKind;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Растеризація документа діаграми засобами Java2D, без інструментарію JavaFX.
+// Використовується там, де немає сцени: пакетний рендеринг, буфер обміну тощо.
+public class DiagramRasterizer {
+    public static final double PADDING = 10;
+
+    private static final int DEFAULT_FONT_SIZE = 12;
+    private static final double TEXT_INSET = 7;
+
+    // Розкодовані зображення спільні для всіх потоків
+    private final Map<String, BufferedImage> images = new ConcurrentHashMap<>();
+
+    public BufferedImage render(DiagramDocument document, double scale) {
+        double[] bounds = new double[4];
+        if (!document.getBounds(bounds)) {
+            bounds = new double[]{0, 0, 1, 1};
+        }
+        double minX = bounds[0] - PADDING;
+        double minY = bounds[1] - PADDING;
+        int width = Math.max(1, (int) Math.ceil((bounds[2] + PADDING - minX) * scale));
+        int height = Math.max(1, (int) Math.ceil((bounds[3] + PADDING - minY) * scale));
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.scale(scale, scale);
+            g.translate(-minX, -minY);
+            for (ElementData element : document.getElements()) {
+                draw(g, element);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private void draw(Graphics2D g, ElementData element) {
+        double[] p = element.getGeometry();
+        ElementKind kind = element.getKind();
+        switch (kind) {
+            case RECTANGLE -> paint(g, element, new Rectangle2D.Double(p[0], p[1], p[2], p[3]));
+            case CIRCLE -> paint(g, element, new Ellipse2D.Double(p[0] - p[2], p[1] - p[2], p[2] * 2, p[2] * 2));
+            case ELLIPSE -> paint(g, element, new Ellipse2D.Double(p[0] - p[2], p[1] - p[3], p[2] * 2, p[3] * 2));
+            case TRIANGLE, DECISION, INPUT_OUTPUT -> paint(g, element, path(p, 2, p.length, p[0], p[1], true));
+            case LINE -> stroke(g, element, path(p, 0, p.length, 0, 0, false));
+            case ARROW -> {
+                int lineLength = element.getLineLength();
+                stroke(g, element, path(p, 0, lineLength, 0, 0, false));
+                fill(g, element.getFill(), path(p, lineLength, p.length, 0, 0, true));
+            }
+            case TEXT -> drawText(g, element, p);
+            default -> {
+                BufferedImage image = loadImage(kind, element.getSource());
+                if (image != null) {
+                    g.drawImage(image, (int) Math.round(p[0]), (int) Math.round(p[1]),
+                            (int) Math.round(p[2]), (int) Math.round(p[3]), null);
+                }
+            }
+        }
+    }
+
+    private void drawText(Graphics2D g, ElementData element, double[] p) {
+        String text = element.getText();
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int size = element.getFontSize() > 0 ? (int) Math.round(element.getFontSize()) : DEFAULT_FONT_SIZE;
+        Font font = new Font(element.getFontFamily() != null ? element.getFontFamily() : Font.SANS_SERIF, Font.PLAIN, size);
+        g.setFont(font);
+        g.setColor(Color.BLACK);
+        FontMetrics metrics = g.getFontMetrics();
+        double height = p[3] < 0 ? ElementData.DEFAULT_TEXT_HEIGHT : p[3];
+        double baseline = p[1] + (height + metrics.getAscent() - metrics.getDescent()) / 2;
+        g.drawString(text, (float) (p[0] + TEXT_INSET), (float) baseline);
+    }
+
+    private static void paint(Graphics2D g, ElementData element, Shape shape) {
+        fill(g, element.getFill(), shape);
+        stroke(g, element, shape);
+    }
+
+    private static void fill(Graphics2D g, int argb, Shape shape) {
+        if (argb != 0) {
+            g.setColor(new Color(argb, true));
+            g.fill(shape);
+        }
+    }
+
+    private static void stroke(Graphics2D g, ElementData element, Shape shape) {
+        if (element.getStroke() != 0 && element.getStrokeWidth() > 0) {
+            g.setColor(new Color(element.getStroke(), true));
+            // Як у JavaFX за замовчуванням: квадратні кінці, гострі з'єднання
+            g.setStroke(new BasicStroke((float) element.getStrokeWidth(), BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, 10));
+            g.draw(shape);
+        }
+    }
+
+    private static Path2D path(double[] points, int from, int to, double dx, double dy, boolean closed) {
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, (to - from) / 2);
+        for (int i = from; i < to; i += 2) {
+            if (i == from) {
+                path.moveTo(points[i] + dx, points[i + 1] + dy);
+            } else {
+                path.lineTo(points[i] + dx, points[i + 1] + dy);
+            }
+        }
+        if (closed) {
+            path.closePath();
+        }
+        return path;
+    }
+
+    private BufferedImage loadImage(ElementKind kind, String source) {
+        if (source == null) {
+            return null;
+        }
+        String key = kind == ElementKind.IMAGE ? source : "/com/example/myflowcharteditor/" + source;
+        BufferedImage image = images.get(key);
+        if (image == null) {
+            image = decode(kind, key);
+            if (image != null) {
+                images.putIfAbsent(key, image);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage decode(ElementKind kind, String key) {
+        try {
+            if (kind == ElementKind.IMAGE) {
+                return ImageIO.read(new File(key));
+            }
+            try (InputStream input = DiagramRasterizer.class.getResourceAsStream(key)) {
+                return input == null ? null : ImageIO.read(input);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
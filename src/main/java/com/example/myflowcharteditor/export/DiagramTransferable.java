@@ -0,0 +1,122 @@
+package com.example.myflowcharteditor.export;
+
+import com.example.myflowcharteditor.model.DiagramDocument;
+import com.example.myflowcharteditor.model.DiagramFileFormat;
+
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Вміст системного буфера обміну: діаграма у двійковому форматі .fcd, а PNG та SVG
+// рендеряться лише тоді, коли їх запитує інша програма
+public class DiagramTransferable implements Transferable, ClipboardOwner {
+    public static final DataFlavor DIAGRAM_FLAVOR = flavor("application/x-myflowchart-diagram; class=java.io.InputStream", "Flowchart diagram");
+    public static final DataFlavor SVG_FLAVOR = flavor("image/svg+xml; class=java.io.InputStream", "SVG image");
+
+    private static final DataFlavor[] FLAVORS = {DIAGRAM_FLAVOR, DataFlavor.imageFlavor, SVG_FLAVOR};
+    private static volatile DiagramTransferable owner;
+
+    private final DiagramDocument document;
+    private byte[] diagramBytes;
+    private byte[] svgBytes;
+
+    private DiagramTransferable(DiagramDocument document) {
+        this.document = document;
+    }
+
+    // Документ має бути незалежною копією: він читається з потоку AWT у будь-який момент
+    public static void publish(DiagramDocument document) {
+        DiagramTransferable transferable = new DiagramTransferable(document);
+        try {
+            systemClipboard().setContents(transferable, transferable);
+            owner = transferable;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Діаграма, скопійована іншим вікном чи програмою; null, якщо буфер досі наш або в ньому не діаграма
+    public static DiagramDocument readForeign() {
+        if (owner != null) {
+            return null;
+        }
+        try {
+            Clipboard clipboard = systemClipboard();
+            if (!clipboard.isDataFlavorAvailable(DIAGRAM_FLAVOR)) {
+                return null;
+            }
+            try (InputStream in = (InputStream) clipboard.getData(DIAGRAM_FLAVOR)) {
+                return DiagramFileFormat.fromBytes(in.readAllBytes());
+            }
+        } catch (IOException | UnsupportedFlavorException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        for (DataFlavor supported : FLAVORS) {
+            if (supported.equals(flavor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        if (DIAGRAM_FLAVOR.equals(flavor)) {
+            if (diagramBytes == null) {
+                diagramBytes = DiagramFileFormat.toBytes(document, true);
+            }
+            return new ByteArrayInputStream(diagramBytes);
+        } else if (DataFlavor.imageFlavor.equals(flavor)) {
+            return new DiagramRasterizer().render(document, 1);
+        } else if (SVG_FLAVOR.equals(flavor)) {
+            if (svgBytes == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                new SvgExporter(writer).write(document);
+                writer.close();
+                svgBytes = out.toByteArray();
+            }
+            return new ByteArrayInputStream(svgBytes);
+        }
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    @Override
+    public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        if (owner == contents) {
+            owner = null;
+        }
+    }
+
+    private static Clipboard systemClipboard() {
+        return Toolkit.getDefaultToolkit().getSystemClipboard();
+    }
+
+    private static DataFlavor flavor(String mimeType, String name) {
+        try {
+            return new DataFlavor(mimeType, name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid clipboard flavor " + mimeType, e);
+        }
+    }
+}
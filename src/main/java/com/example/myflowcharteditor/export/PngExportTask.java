@@ -0,0 +1,99 @@
+package com.example.myflowcharteditor.export;
+
+import javafx.concurrent.Task;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Запис знімка робочої області у PNG поза потоком JavaFX
+public class PngExportTask extends Task<File> {
+    private final Image image;
+    private final File file;
+
+    public PngExportTask(Image image, File file) {
+        this.image = image;
+        this.file = file;
+    }
+
+    @Override
+    protected File call() throws Exception {
+        updateMessage("Експорт " + file.getName());
+        BufferedImage bufferedImage = toBufferedImage(image);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        writer.addIIOWriteProgressListener(new ProgressListener(writer));
+        boolean completed = false;
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            writer.write(bufferedImage);
+            completed = !isCancelled();
+        } finally {
+            writer.dispose();
+            if (!completed) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        return file;
+    }
+
+    // Один масовий виклик getPixels прямо в масив растра замість getArgb/setRGB для кожного пікселя
+    public static BufferedImage toBufferedImage(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return bufferedImage;
+    }
+
+    private final class ProgressListener implements IIOWriteProgressListener {
+        private final ImageWriter writer;
+
+        private ProgressListener(ImageWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void imageProgress(ImageWriter source, float percentageDone) {
+            updateProgress(percentageDone, 100);
+            if (isCancelled()) {
+                writer.abort();
+            }
+        }
+
+        @Override
+        public void imageStarted(ImageWriter source, int imageIndex) {
+            updateProgress(0, 100);
+        }
+
+        @Override
+        public void imageComplete(ImageWriter source) {
+            updateProgress(100, 100);
+        }
+
+        @Override
+        public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageWriter source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageWriter source) {
+        }
+
+        @Override
+        public void writeAborted(ImageWriter source) {
+        }
+    }
+}
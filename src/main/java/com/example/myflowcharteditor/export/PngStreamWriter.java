@@ -0,0 +1,180 @@
+package com.example.myflowcharteditor.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// Потоковий запис PNG (RGBA, 8 біт на канал): рядки пікселів стискаються й записуються
+// у файл одразу, тому в пам'яті не тримається все зображення
+public class PngStreamWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_CHUNK_SIZE = 1 << 16;
+    private static final double INCHES_PER_METER = 39.3700787;
+
+    private final OutputStream output;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private final DeflaterOutputStream idat;
+    private final byte[] row;
+    private int rowsWritten;
+
+    public PngStreamWriter(OutputStream output, int width, int height, double dpi) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        this.output = new BufferedOutputStream(output, IDAT_CHUNK_SIZE);
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + width * 4];
+
+        this.output.write(SIGNATURE);
+        ChunkBuffer header = new ChunkBuffer("IHDR", 13);
+        header.putInt(width);
+        header.putInt(height);
+        header.put(8);  // біт на канал
+        header.put(6);  // RGBA
+        header.put(0);  // deflate
+        header.put(0);  // стандартні фільтри
+        header.put(0);  // без interlace
+        header.writeTo(this.output);
+
+        int pixelsPerMeter = (int) Math.round(dpi * INCHES_PER_METER);
+        ChunkBuffer physical = new ChunkBuffer("pHYs", 9);
+        physical.putInt(pixelsPerMeter);
+        physical.putInt(pixelsPerMeter);
+        physical.put(1); // одиниця — метр
+        physical.writeTo(this.output);
+
+        deflater = new Deflater(Deflater.BEST_SPEED);
+        idat = new DeflaterOutputStream(new IdatOutputStream(), deflater, IDAT_CHUNK_SIZE);
+    }
+
+    // Записує rows рядків із масиву ARGB (без премультиплікації)
+    public void writeRows(int[] argb, int offset, int scanlineStride, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("Too many rows: " + (rowsWritten + rows) + " > " + height);
+        }
+        for (int y = 0; y < rows; y++) {
+            int source = offset + y * scanlineStride;
+            int target = 1;
+            row[0] = 0; // фільтр None
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[source + x];
+                row[target++] = (byte) (pixel >> 16);
+                row[target++] = (byte) (pixel >> 8);
+                row[target++] = (byte) pixel;
+                row[target++] = (byte) (pixel >>> 24);
+            }
+            idat.write(row);
+        }
+        rowsWritten += rows;
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten == height) {
+                idat.finish();
+                idat.flush(); // залишок останнього чанка IDAT
+                new ChunkBuffer("IEND", 0).writeTo(output);
+            }
+            output.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Стиснені дані розбиваються на чанки IDAT фіксованого розміру
+    private final class IdatOutputStream extends OutputStream {
+        private final ChunkBuffer chunk = new ChunkBuffer("IDAT", IDAT_CHUNK_SIZE);
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = Math.min(length, chunk.remaining());
+                chunk.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+                if (chunk.remaining() == 0) {
+                    chunk.writeTo(output);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (chunk.length() > 0) {
+                chunk.writeTo(output);
+            }
+        }
+    }
+
+    private static final class ChunkBuffer {
+        private final byte[] type;
+        private final byte[] data;
+        private final CRC32 crc = new CRC32();
+        private int length;
+
+        private ChunkBuffer(String type, int capacity) {
+            this.type = type.getBytes(StandardCharsets.US_ASCII);
+            this.data = new byte[capacity];
+        }
+
+        private int length() {
+            return length;
+        }
+
+        private int remaining() {
+            return data.length - length;
+        }
+
+        private void put(int value) {
+            data[length++] = (byte) value;
+        }
+
+        private void put(byte[] bytes, int offset, int count) {
+            System.arraycopy(bytes, offset, data, length, count);
+            length += count;
+        }
+
+        private void putInt(int value) {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+
+        private void writeTo(OutputStream output) throws IOException {
+            writeInt(output, length);
+            output.write(type);
+            output.write(data, 0, length);
+            crc.reset();
+            crc.update(type);
+            crc.update(data, 0, length);
+            writeInt(output, (int) crc.getValue());
+            length = 0;
+        }
+
+        private static void writeInt(OutputStream output, int value) throws IOException {
+            output.write(value >>> 24);
+            output.write(value >>> 16);
+            output.write(value >>> 8);
+            output.write(value);
+        }
+    }
+}
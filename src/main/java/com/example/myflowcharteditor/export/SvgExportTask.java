@@ -0,0 +1,51 @@
+package com.example.myflowcharteditor.export;
+
+import com.example.myflowcharteditor.model.DiagramDocument;
+import com.example.myflowcharteditor.model.ElementData;
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+// Експорт у SVG поза потоком JavaFX зі знімка документа
+public class SvgExportTask extends Task<File> {
+    private static final int PROGRESS_STEP = 1024;
+
+    private final DiagramDocument document;
+    private final File file;
+
+    public SvgExportTask(DiagramDocument document, File file) {
+        this.document = document;
+        this.file = file;
+    }
+
+    @Override
+    protected File call() throws Exception {
+        updateMessage("Експорт " + file.getName());
+        List<ElementData> elements = document.getElements();
+        boolean completed = false;
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            SvgExporter exporter = new SvgExporter(writer);
+            exporter.begin(document);
+            for (int i = 0; i < elements.size(); i++) {
+                if (i % PROGRESS_STEP == 0) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    updateProgress(i, elements.size());
+                }
+                exporter.writeElement(elements.get(i));
+            }
+            exporter.end();
+            completed = !isCancelled();
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.myflowcharteditor.export;
+
+import com.example.myflowcharteditor.model.DiagramDocument;
+import com.example.myflowcharteditor.model.ElementData;
+import com.example.myflowcharteditor.model.ElementKind;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Запис документа діаграми у SVG напряму в потік, без побудови DOM.
+// Кожне зображення вбудовується один раз як <symbol>, а елементи посилаються на нього через <use>,
+// тож пам'ять не залежить від кількості елементів.
+public class SvgExporter {
+    private static final int DEFAULT_FONT_SIZE = 12;
+    private static final double TEXT_INSET = 7;
+    private static final int BASE64_CHUNK = 3 * 16 * 1024;
+
+    private final Writer out;
+    private final Map<String, String> imageIds = new HashMap<>();
+
+    public SvgExporter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(DiagramDocument document) throws IOException {
+        begin(document);
+        for (ElementData element : document.getElements()) {
+            writeElement(element);
+        }
+        end();
+    }
+
+    public void begin(DiagramDocument document) throws IOException {
+        double[] bounds = new double[4];
+        if (!document.getBounds(bounds)) {
+            bounds = new double[]{0, 0, 1, 1};
+        }
+        double minX = bounds[0] - DiagramRasterizer.PADDING;
+        double minY = bounds[1] - DiagramRasterizer.PADDING;
+        double width = bounds[2] + DiagramRasterizer.PADDING - minX;
+        double height = bounds[3] + DiagramRasterizer.PADDING - minY;
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"");
+        attribute("width", width);
+        attribute("height", height);
+        out.write(" viewBox=\"");
+        number(minX);
+        out.write(' ');
+        number(minY);
+        out.write(' ');
+        number(width);
+        out.write(' ');
+        number(height);
+        out.write("\">\n");
+    }
+
+    public void end() throws IOException {
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    public void writeElement(ElementData element) throws IOException {
+        double[] p = element.getGeometry();
+        switch (element.getKind()) {
+            case RECTANGLE -> {
+                out.write("<rect");
+                attribute("x", p[0]);
+                attribute("y", p[1]);
+                attribute("width", p[2]);
+                attribute("height", p[3]);
+                writeStyle(element.getFill(), element);
+                out.write("/>\n");
+            }
+            case CIRCLE -> {
+                out.write("<circle");
+                attribute("cx", p[0]);
+                attribute("cy", p[1]);
+                attribute("r", p[2]);
+                writeStyle(element.getFill(), element);
+                out.write("/>\n");
+            }
+            case ELLIPSE -> {
+                out.write("<ellipse");
+                attribute("cx", p[0]);
+                attribute("cy", p[1]);
+                attribute("rx", p[2]);
+                attribute("ry", p[3]);
+                writeStyle(element.getFill(), element);
+                out.write("/>\n");
+            }
+            case TRIANGLE, DECISION, INPUT_OUTPUT -> {
+                out.write("<polygon transform=\"translate(");
+                number(p[0]);
+                out.write(' ');
+                number(p[1]);
+                out.write(")\"");
+                writePoints(p, 2, p.length);
+                writeStyle(element.getFill(), element);
+                out.write("/>\n");
+            }
+            case LINE -> writePolyline(element, p, p.length);
+            case ARROW -> {
+                int lineLength = element.getLineLength();
+                writePolyline(element, p, lineLength);
+                out.write("<polygon");
+                writePoints(p, lineLength, p.length);
+                writePaint("fill", element.getFill());
+                out.write("/>\n");
+            }
+            case TEXT -> writeText(element, p);
+            default -> writeImage(element, p);
+        }
+    }
+
+    private void writePolyline(ElementData element, double[] p, int to) throws IOException {
+        out.write("<polyline");
+        writePoints(p, 0, to);
+        writeStyle(0, element);
+        out.write("/>\n");
+    }
+
+    private void writeText(ElementData element, double[] p) throws IOException {
+        if (element.getText() == null || element.getText().isEmpty()) {
+            return;
+        }
+        double height = p[3] < 0 ? ElementData.DEFAULT_TEXT_HEIGHT : p[3];
+        out.write("<text");
+        attribute("x", p[0] + TEXT_INSET);
+        attribute("y", p[1] + height / 2);
+        out.write(" dominant-baseline=\"central\"");
+        attribute("font-size", element.getFontSize() > 0 ? element.getFontSize() : DEFAULT_FONT_SIZE);
+        if (element.getFontFamily() != null) {
+            out.write(" font-family=\"");
+            escape(element.getFontFamily());
+            out.write('"');
+        }
+        out.write('>');
+        escape(element.getText());
+        out.write("</text>\n");
+    }
+
+    private void writeImage(ElementData element, double[] p) throws IOException {
+        String id = imageId(element.getKind(), element.getSource());
+        if (id == null) {
+            return;
+        }
+        out.write("<use xlink:href=\"#");
+        out.write(id);
+        out.write('"');
+        attribute("x", p[0]);
+        attribute("y", p[1]);
+        attribute("width", p[2]);
+        attribute("height", p[3]);
+        out.write("/>\n");
+    }
+
+    // Перше звернення до зображення записує його вміст у <symbol> з одиничним viewBox,
+    // щоб <use> могло масштабувати його до будь-якого розміру
+    private String imageId(ElementKind kind, String source) throws IOException {
+        if (source == null) {
+            return null;
+        }
+        String key = kind == ElementKind.IMAGE ? source : "/com/example/myflowcharteditor/" + source;
+        if (imageIds.containsKey(key)) {
+            return imageIds.get(key);
+        }
+
+        InputStream input = kind == ElementKind.IMAGE
+                ? new FileInputStream(key)
+                : SvgExporter.class.getResourceAsStream(key);
+        if (input == null) {
+            imageIds.put(key, null);
+            return null;
+        }
+        String id = "image" + imageIds.size();
+        try (input) {
+            out.write("<defs><symbol id=\"");
+            out.write(id);
+            out.write("\" viewBox=\"0 0 1 1\" preserveAspectRatio=\"none\">");
+            out.write("<image width=\"1\" height=\"1\" preserveAspectRatio=\"none\" xlink:href=\"data:");
+            out.write(mimeType(source));
+            out.write(";base64,");
+            writeBase64(input);
+            out.write("\"/></symbol></defs>\n");
+        }
+        imageIds.put(key, id);
+        return id;
+    }
+
+    // Кодування частинами, кратними трьом байтам, щоб не тримати весь файл у пам'яті
+    private void writeBase64(InputStream input) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] buffer = new byte[BASE64_CHUNK];
+        int length;
+        while ((length = input.readNBytes(buffer, 0, buffer.length)) > 0) {
+            byte[] chunk = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+            out.write(new String(encoder.encode(chunk), StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void writePoints(double[] p, int from, int to) throws IOException {
+        out.write(" points=\"");
+        for (int i = from; i < to; i += 2) {
+            if (i > from) {
+                out.write(' ');
+            }
+            number(p[i]);
+            out.write(',');
+            number(p[i + 1]);
+        }
+        out.write('"');
+    }
+
+    private void writeStyle(int fill, ElementData element) throws IOException {
+        writePaint("fill", fill);
+        if (element.getStroke() != 0) {
+            writePaint("stroke", element.getStroke());
+            attribute("stroke-width", element.getStrokeWidth());
+            out.write(" stroke-linecap=\"square\"");
+        }
+    }
+
+    private void writePaint(String name, int argb) throws IOException {
+        out.write(' ');
+        out.write(name);
+        if (argb == 0) {
+            out.write("=\"none\"");
+            return;
+        }
+        out.write("=\"#");
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            out.write(Character.forDigit((argb >> shift) & 0xF, 16));
+        }
+        out.write('"');
+        int alpha = argb >>> 24;
+        if (alpha != 0xFF) {
+            attribute(name + "-opacity", alpha / 255.0);
+        }
+    }
+
+    private void attribute(String name, double value) throws IOException {
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        number(value);
+        out.write('"');
+    }
+
+    // Не більше трьох знаків після коми, без String.format на кожне число
+    private void number(double value) throws IOException {
+        long scaled = Math.round(value * 1000);
+        if (Math.abs(value) >= 1e15 || Double.isNaN(value)) {
+            out.write(String.format(Locale.ROOT, "%.3f", value));
+            return;
+        }
+        if (scaled < 0) {
+            out.write('-');
+            scaled = -scaled;
+        }
+        out.write(Long.toString(scaled / 1000));
+        int fraction = (int) (scaled % 1000);
+        if (fraction != 0) {
+            out.write('.');
+            int digits = 3;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            String text = Integer.toString(fraction);
+            for (int i = text.length(); i < digits; i++) {
+                out.write('0');
+            }
+            out.write(text);
+        }
+    }
+
+    private void escape(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.write("&lt;");
+                case '>' -> out.write("&gt;");
+                case '&' -> out.write("&amp;");
+                case '"' -> out.write("&quot;");
+                default -> out.write(c);
+            }
+        }
+    }
+
+    private static String mimeType(String source) {
+        String name = source.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "image/jpeg";
+        }
+        if (name.endsWith(".gif")) {
+            return "image/gif";
+        }
+        if (name.endsWith(".bmp")) {
+            return "image/bmp";
+        }
+        return "image/png";
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.myflowcharteditor.export;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Transform;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.FutureTask;
+
+// Експорт у PNG довільної роздільної здатності: вузол знімається плитками через viewport
+// у SnapshotParameters, а кожна смуга плиток одразу передається в потоковий кодувальник.
+// У пам'яті одночасно тримається лише одна смуга та одна плитка.
+public class TiledPngExportTask extends Task<File> {
+    public static final double SCREEN_DPI = 96;
+
+    private static final int TILE_WIDTH = 2048;
+    private static final int MAX_BAND_HEIGHT = 2048;
+    private static final int MIN_BAND_HEIGHT = 16;
+    private static final long BAND_BUDGET_BYTES = 32L << 20;
+
+    private final Node node;
+    private final File file;
+    private final double dpi;
+    private final double scale;
+    private final Transform transform;
+    private final int width;
+    private final int height;
+    private final double originX;
+    private final double originY;
+
+    // Має створюватися в потоці JavaFX: тут зчитуються розміри та перетворення вузла
+    public TiledPngExportTask(Node node, File file, double dpi) throws NonInvertibleTransformException {
+        this.node = node;
+        this.file = file;
+        this.dpi = dpi;
+        this.scale = dpi / SCREEN_DPI;
+        // Snapshot додає власні перетворення вузла (масштаб робочої області), тому вони компенсуються
+        this.transform = Transform.scale(scale, scale)
+                .createConcatenation(node.getLocalToParentTransform().createInverse());
+        this.width = (int) Math.ceil(node.getLayoutBounds().getWidth() * scale);
+        this.height = (int) Math.ceil(node.getLayoutBounds().getHeight() * scale);
+        this.originX = node.getLayoutBounds().getMinX() * scale;
+        this.originY = node.getLayoutBounds().getMinY() * scale;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    protected File call() throws Exception {
+        updateMessage("Експорт " + file.getName() + " (" + width + "×" + height + ")");
+        int bandHeight = (int) Math.max(MIN_BAND_HEIGHT,
+                Math.min(MAX_BAND_HEIGHT, BAND_BUDGET_BYTES / (4L * width)));
+        bandHeight = Math.min(bandHeight, height);
+        int[] band = new int[width * bandHeight];
+        WritableImage tile = new WritableImage(Math.min(TILE_WIDTH, width), bandHeight);
+
+        boolean completed = false;
+        try (PngStreamWriter writer = new PngStreamWriter(new FileOutputStream(file), width, height, dpi)) {
+            for (int y = 0; y < height && !isCancelled(); y += bandHeight) {
+                int rows = Math.min(bandHeight, height - y);
+                for (int x = 0; x < width && !isCancelled(); x += TILE_WIDTH) {
+                    int columns = Math.min(TILE_WIDTH, width - x);
+                    Rectangle2D viewport = new Rectangle2D(originX + x, originY + y, columns, rows);
+                    int offset = x;
+                    // Знімок і зчитування пікселів — у потоці JavaFX, по одній плитці за раз,
+                    // щоб інтерфейс лишався чутливим між плитками; редагування на цей час заблоковане контролером
+                    FutureTask<Void> snapshot = new FutureTask<>(() -> {
+                        SnapshotParameters params = new SnapshotParameters();
+                        params.setFill(Color.TRANSPARENT);
+                        params.setTransform(transform);
+                        params.setViewport(viewport);
+                        node.snapshot(params, tile);
+                        tile.getPixelReader().getPixels(0, 0, columns, rows,
+                                PixelFormat.getIntArgbInstance(), band, offset, width);
+                        return null;
+                    });
+                    Platform.runLater(snapshot);
+                    snapshot.get();
+                }
+                if (isCancelled()) {
+                    break;
+                }
+                writer.writeRows(band, 0, width, rows);
+                updateProgress(y + rows, height);
+            }
+            completed = writer.getRowsWritten() == height;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        return file;
+    }
+}
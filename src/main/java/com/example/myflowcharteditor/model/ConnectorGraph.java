@@ -0,0 +1,83 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Суміжність фігур і прикріплених до них з'єднань.
+// Змінені фігури накопичуються, і з'єднання, що їх торкаються, оновлюються одним проходом за кадр,
+// тож перетягування вузла з сотнями з'єднань не перебудовує їх на кожну подію миші.
+class ConnectorGraph {
+    private final Map<Long, Set<Long>> connectorsByShape = new HashMap<>();
+    private final Map<Long, long[]> shapesByConnector = new HashMap<>();
+    private final Set<Long> changedShapes = new LinkedHashSet<>();
+    private final AnimationTimer flusher;
+
+    ConnectorGraph(Runnable onFlush) {
+        flusher = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                onFlush.run();
+            }
+        };
+    }
+
+    // Переіндексовує з'єднання за його поточними прикріпленнями
+    void update(ElementData connector) {
+        remove(connector.getId());
+        if (!connector.isAttached()) {
+            return;
+        }
+        long[] shapes = {connector.getStartShape(), connector.getEndShape()};
+        shapesByConnector.put(connector.getId(), shapes);
+        for (long shape : shapes) {
+            if (shape != 0) {
+                connectorsByShape.computeIfAbsent(shape, key -> new HashSet<>()).add(connector.getId());
+            }
+        }
+    }
+
+    void remove(long connectorId) {
+        long[] shapes = shapesByConnector.remove(connectorId);
+        if (shapes == null) {
+            return;
+        }
+        for (long shape : shapes) {
+            Set<Long> connectors = connectorsByShape.get(shape);
+            if (connectors != null) {
+                connectors.remove(connectorId);
+                if (connectors.isEmpty()) {
+                    connectorsByShape.remove(shape);
+                }
+            }
+        }
+    }
+
+    boolean hasConnectors(long shapeId) {
+        return connectorsByShape.containsKey(shapeId);
+    }
+
+    void markChanged(long shapeId) {
+        if (changedShapes.add(shapeId) && changedShapes.size() == 1) {
+            flusher.start();
+        }
+    }
+
+    // З'єднання, прикріплені до фігур, змінених з минулого проходу; скидає накопичене
+    Set<Long> takeChanged() {
+        Set<Long> connectors = new LinkedHashSet<>();
+        for (long shape : changedShapes) {
+            Set<Long> incident = connectorsByShape.get(shape);
+            if (incident != null) {
+                connectors.addAll(incident);
+            }
+        }
+        changedShapes.clear();
+        flusher.stop();
+        return connectors;
+    }
+}
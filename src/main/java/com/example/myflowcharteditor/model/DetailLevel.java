@@ -0,0 +1,21 @@
+package com.example.myflowcharteditor.model;
+
+// Рівень деталізації відображення залежно від масштабу робочої області
+public enum DetailLevel {
+    // Усе як є
+    FULL,
+    // Текст — сірі смуги, зображення — заглушки, без пунктирних ліній
+    REDUCED,
+    // Елементи знімаються зі сцени й малюються заповненими прямокутниками на одному канвасі
+    OUTLINE;
+
+    public static final double REDUCED_BELOW = 0.5;
+    public static final double OUTLINE_BELOW = 0.15;
+
+    public static DetailLevel forScale(double scale) {
+        if (scale < OUTLINE_BELOW) {
+            return OUTLINE;
+        }
+        return scale < REDUCED_BELOW ? REDUCED : FULL;
+    }
+}
@@ -5,11 +5,17 @@ import javafx.scene.shape.Polygon;
 import javafx.scene.shape.Polyline;
 
 public class DiagramArrow implements DiagramElement {
-    private final transient Group group; // Group не є Serializable
+    private final Group group;
     private final Polyline line;
     private final Polygon arrowHead;
+    private final ElementData data;
 
     public DiagramArrow(Group group, Polyline line, Polygon arrowHead) {
+        this(null, group, line, arrowHead);
+    }
+
+    public DiagramArrow(ElementData data, Group group, Polyline line, Polygon arrowHead) {
+        this.data = data;
         this.group = group;
         this.line = line;
         this.arrowHead = arrowHead;
@@ -20,6 +26,11 @@ public class DiagramArrow implements DiagramElement {
         return group;
     }
 
+    @Override
+    public ElementData getData() {
+        return data;
+    }
+
     public Polyline getLine() {
         return line;
     }
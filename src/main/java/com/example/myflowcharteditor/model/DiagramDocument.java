@@ -0,0 +1,125 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Документ діаграми: елементи в порядку малювання та доступ за стабільним ідентифікатором
+public class DiagramDocument {
+    private final List<ElementData> elements = new ArrayList<>();
+    private final Map<Long, ElementData> elementsById = new HashMap<>();
+    private long nextId = 1;
+
+    public long nextId() {
+        return nextId++;
+    }
+
+    public void add(ElementData element) {
+        if (elementsById.putIfAbsent(element.getId(), element) != null) {
+            throw new IllegalArgumentException("Duplicate element id: " + element.getId());
+        }
+        elements.add(element);
+        nextId = Math.max(nextId, element.getId() + 1);
+    }
+
+    // Ідентифікатори ніколи не використовуються повторно: історія змін може ще посилатися на вилучені елементи.
+    // Тому кожен завантажений ідентифікатор, який документ уже видавав, замінюється новим, прикріплення
+    // з'єднань переписуються, а решта ідентифікаторів резервується ще до вставки
+    public List<ElementData> resolveIds(List<ElementData> loaded) {
+        long firstFree = nextId;
+        Set<Long> loadedIds = new HashSet<>();
+        for (ElementData data : loaded) {
+            loadedIds.add(data.getId());
+        }
+        Map<Long, Long> remapped = new HashMap<>();
+        for (ElementData data : loaded) {
+            if (data.getId() < firstFree && !remapped.containsKey(data.getId())) {
+                long id = nextId();
+                while (loadedIds.contains(id)) {
+                    id = nextId();
+                }
+                remapped.put(data.getId(), id);
+            }
+        }
+        List<ElementData> resolved = new ArrayList<>(loaded.size());
+        for (ElementData data : loaded) {
+            Long id = remapped.get(data.getId());
+            ElementData copy = id == null ? data : data.copy(id);
+            copy.remapAttachments(remapped);
+            resolved.add(copy);
+            nextId = Math.max(nextId, copy.getId() + 1);
+        }
+        return resolved;
+    }
+
+    public ElementData get(long id) {
+        return elementsById.get(id);
+    }
+
+    public boolean contains(long id) {
+        return elementsById.containsKey(id);
+    }
+
+    public void remove(ElementData element) {
+        if (elementsById.remove(element.getId()) != null) {
+            elements.remove(element);
+        }
+    }
+
+    public void removeAll(Collection<ElementData> toRemove) {
+        Set<Long> ids = new HashSet<>();
+        for (ElementData element : toRemove) {
+            if (elementsById.remove(element.getId()) != null) {
+                ids.add(element.getId());
+            }
+        }
+        if (!ids.isEmpty()) {
+            elements.removeIf(element -> ids.contains(element.getId()));
+        }
+    }
+
+    public List<ElementData> getElements() {
+        return Collections.unmodifiableList(elements);
+    }
+
+    // Спільні межі всіх елементів: minX, minY, maxX, maxY; false, якщо документ порожній
+    public boolean getBounds(double[] out) {
+        if (elements.isEmpty()) {
+            return false;
+        }
+        double[] bounds = new double[4];
+        out[0] = out[1] = Double.POSITIVE_INFINITY;
+        out[2] = out[3] = Double.NEGATIVE_INFINITY;
+        for (ElementData element : elements) {
+            element.getBounds(bounds);
+            out[0] = Math.min(out[0], bounds[0]);
+            out[1] = Math.min(out[1], bounds[1]);
+            out[2] = Math.max(out[2], bounds[2]);
+            out[3] = Math.max(out[3], bounds[3]);
+        }
+        return true;
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public void clear() {
+        elements.clear();
+        elementsById.clear();
+    }
+
+    public DiagramDocument copy() {
+        DiagramDocument copy = new DiagramDocument();
+        for (ElementData element : elements) {
+            copy.add(element.copy(element.getId()));
+        }
+        copy.nextId = nextId;
+        return copy;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Записи історії для змін діаграми. Елементи адресуються ідентифікаторами,
+// тож запис лишається дійсним після від'єднання, видалення чи повторного створення вузлів.
+public final class DiagramEdits {
+    private static final long EDIT_OVERHEAD = 48;
+
+    private DiagramEdits() {
+    }
+
+    // Те, до чого застосовуються записи: DiagramModel у редакторі або будь-яка інша реалізація над даними
+    public interface Target {
+        void removeByIds(long[] ids);
+
+        // Елементи з ідентифікаторами, що вже є в документі, пропускаються
+        void restoreElements(List<ElementData> elements);
+
+        void translateByIds(long[] ids, double dx, double dy);
+
+        void setGeometryById(long id, double[] geometry);
+
+        void setLockedByIds(long[] ids, boolean locked);
+    }
+
+    public static UndoHistory.Edit added(Target model, List<ElementData> elements) {
+        return new ElementsEdit(model, elements, true);
+    }
+
+    public static UndoHistory.Edit removed(Target model, List<ElementData> elements) {
+        return new ElementsEdit(model, elements, false);
+    }
+
+    public static UndoHistory.Edit moved(Target model, long[] ids, double dx, double dy) {
+        return new MoveEdit(model, ids, dx, dy);
+    }
+
+    public static UndoHistory.Edit reshaped(Target model, long id, double[] before, double[] after) {
+        return new GeometryEdit(model, id, before, after);
+    }
+
+    public static UndoHistory.Edit locked(Target model, long[] ids, boolean locked) {
+        return new LockEdit(model, ids, locked);
+    }
+
+    // Спільна зміна геометрії багатьох елементів, напр. автокомпонування; фігури мають іти перед з'єднаннями
+    public static UndoHistory.Edit arranged(Target model, long[] ids, double[][] before, double[][] after) {
+        return new ArrangeEdit(model, ids, before, after);
+    }
+
+    private static long[] idsOf(List<ElementData> elements) {
+        long[] ids = new long[elements.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = elements.get(i).getId();
+        }
+        return ids;
+    }
+
+    // Додавання або видалення: зберігаються незалежні копії даних, вузли створюються заново
+    private static final class ElementsEdit implements UndoHistory.Edit {
+        private final Target model;
+        private final List<ElementData> elements;
+        private final long[] ids;
+        private final boolean added;
+        private final long size;
+
+        private ElementsEdit(Target model, List<ElementData> elements, boolean added) {
+            this.model = model;
+            this.elements = elements;
+            this.ids = idsOf(elements);
+            this.added = added;
+            long total = EDIT_OVERHEAD + ids.length * 8L;
+            for (ElementData element : elements) {
+                total += element.estimatedSize();
+            }
+            this.size = total;
+        }
+
+        @Override
+        public void undo() {
+            if (added) {
+                model.removeByIds(ids);
+            } else {
+                model.restoreElements(elements);
+            }
+        }
+
+        @Override
+        public void redo() {
+            if (added) {
+                model.restoreElements(elements);
+            } else {
+                model.removeByIds(ids);
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return size;
+        }
+    }
+
+    // Переміщення набору елементів: лише ідентифікатори та сумарний зсув
+    private static final class MoveEdit implements UndoHistory.Edit {
+        private final Target model;
+        private final long[] ids;
+        private double dx, dy;
+
+        private MoveEdit(Target model, long[] ids, double dx, double dy) {
+            this.model = model;
+            this.ids = ids;
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        @Override
+        public void undo() {
+            model.translateByIds(ids, -dx, -dy);
+        }
+
+        @Override
+        public void redo() {
+            model.translateByIds(ids, dx, dy);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return EDIT_OVERHEAD + ids.length * 8L;
+        }
+
+        @Override
+        public boolean merge(UndoHistory.Edit next) {
+            if (next instanceof MoveEdit move && Arrays.equals(ids, move.ids)) {
+                dx += move.dx;
+                dy += move.dy;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Зміна форми одного елемента (розмір, точки ламаної): геометрія до і після
+    private static final class GeometryEdit implements UndoHistory.Edit {
+        private final Target model;
+        private final long id;
+        private final double[] before;
+        private final double[] after;
+
+        private GeometryEdit(Target model, long id, double[] before, double[] after) {
+            this.model = model;
+            this.id = id;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void undo() {
+            model.setGeometryById(id, before);
+        }
+
+        @Override
+        public void redo() {
+            model.setGeometryById(id, after);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return EDIT_OVERHEAD + (before.length + after.length) * 8L;
+        }
+    }
+
+    private static final class LockEdit implements UndoHistory.Edit {
+        private final Target model;
+        private final long[] ids;
+        private final boolean locked;
+
+        private LockEdit(Target model, long[] ids, boolean locked) {
+            this.model = model;
+            this.ids = ids;
+            this.locked = locked;
+        }
+
+        @Override
+        public void undo() {
+            model.setLockedByIds(ids, !locked);
+        }
+
+        @Override
+        public void redo() {
+            model.setLockedByIds(ids, locked);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return EDIT_OVERHEAD + ids.length * 8L;
+        }
+    }
+
+    // Геометрія відновлюється в порядку ids, тож з'єднання прикріплюються до фігур, що вже на своїх місцях
+    private static final class ArrangeEdit implements UndoHistory.Edit {
+        private final Target model;
+        private final long[] ids;
+        private final double[][] before;
+        private final double[][] after;
+        private final long size;
+
+        private ArrangeEdit(Target model, long[] ids, double[][] before, double[][] after) {
+            this.model = model;
+            this.ids = ids;
+            this.before = before;
+            this.after = after;
+            long total = EDIT_OVERHEAD + ids.length * 8L;
+            for (int i = 0; i < ids.length; i++) {
+                total += (before[i].length + after[i].length) * 8L + 32;
+            }
+            this.size = total;
+        }
+
+        @Override
+        public void undo() {
+            for (int i = 0; i < ids.length; i++) {
+                model.setGeometryById(ids[i], before[i]);
+            }
+        }
+
+        @Override
+        public void redo() {
+            for (int i = 0; i < ids.length; i++) {
+                model.setGeometryById(ids[i], after[i]);
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return size;
+        }
+    }
+}
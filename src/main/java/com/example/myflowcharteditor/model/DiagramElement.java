@@ -2,8 +2,8 @@ package com.example.myflowcharteditor.model;
 
 import javafx.scene.Node;
 
-import java.io.Serializable;
-
-public interface DiagramElement extends Serializable {
+public interface DiagramElement {
     Node getNode();
+
+    ElementData getData();
 }
@@ -0,0 +1,382 @@
+package com.example.myflowcharteditor.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Двійковий формат файлу діаграми (.fcd).
+//
+// Заголовок (32 байти, little-endian):
+//   int magic, short version, short flags, int elementCount, int geometryLength,
+//   int stringCount, int bodyLength, int rawBodyLength, int reserved
+// Тіло (стиснене Deflate, якщо встановлено FLAG_DEFLATE), колонками:
+//   long id[n], long startShape[n], long endShape[n], double geometry[geometryLength], double strokeWidth[n],
+//   double fontSize[n], int geometryOffset[n + 1], int fill[n], int stroke[n], int text[n], int fontFamily[n],
+//   int source[n], byte kind[n], byte startPort[n], byte endPort[n], таблиця рядків (int довжина + UTF-8)
+// Рядкові колонки містять індекс у таблиці рядків або -1 для null.
+// Версія 1 не має колонок прикріплень (startShape, endShape, startPort, endPort) і читається з вільними кінцями.
+public final class DiagramFileFormat {
+    public static final String EXTENSION = "fcd";
+    public static final int VERSION = 2;
+    public static final int FLAG_DEFLATE = 1;
+
+    private static final int MAGIC = 0x4443464D; // "MFCD"
+    private static final int HEADER_SIZE = 32;
+    // Deflate не стискає сильніше ніж приблизно 1032:1, тож більший rawBodyLength означає пошкоджений заголовок
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    private DiagramFileFormat() {
+    }
+
+    public static void write(DiagramDocument document, Path path, boolean compress) throws IOException {
+        ByteBuffer[] buffers = encode(document, compress);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+
+    // Увесь файл у пам'яті, напр. для системного буфера обміну
+    public static byte[] toBytes(DiagramDocument document, boolean compress) {
+        ByteBuffer[] buffers = encode(document, compress);
+        byte[] bytes = new byte[buffers[0].remaining() + buffers[1].remaining()];
+        int headerLength = buffers[0].remaining();
+        buffers[0].get(bytes, 0, headerLength);
+        buffers[1].get(bytes, headerLength, bytes.length - headerLength);
+        return bytes;
+    }
+
+    // Заголовок і тіло файлу
+    private static ByteBuffer[] encode(DiagramDocument document, boolean compress) {
+        List<ElementData> elements = document.getElements();
+        int count = elements.size();
+
+        StringTable strings = new StringTable();
+        int geometryLength = 0;
+        for (ElementData element : elements) {
+            geometryLength += element.getGeometry().length;
+            strings.add(element.getText());
+            strings.add(element.getFontFamily());
+            strings.add(element.getSource());
+        }
+
+        int rawBodyLength = count * (8 * 3 + 8 + 8 + 4 * 6 + 1 + 2) + geometryLength * 8 + 4 + strings.byteLength();
+        ByteBuffer body = ByteBuffer.allocate(rawBodyLength).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (ElementData element : elements) {
+            body.putLong(element.getId());
+        }
+        for (ElementData element : elements) {
+            body.putLong(element.getStartShape());
+        }
+        for (ElementData element : elements) {
+            body.putLong(element.getEndShape());
+        }
+        for (ElementData element : elements) {
+            for (double value : element.getGeometry()) {
+                body.putDouble(value);
+            }
+        }
+        for (ElementData element : elements) {
+            body.putDouble(element.getStrokeWidth());
+        }
+        for (ElementData element : elements) {
+            body.putDouble(element.getFontSize());
+        }
+        int offset = 0;
+        for (ElementData element : elements) {
+            body.putInt(offset);
+            offset += element.getGeometry().length;
+        }
+        body.putInt(offset);
+        for (ElementData element : elements) {
+            body.putInt(element.getFill());
+        }
+        for (ElementData element : elements) {
+            body.putInt(element.getStroke());
+        }
+        for (ElementData element : elements) {
+            body.putInt(strings.indexOf(element.getText()));
+        }
+        for (ElementData element : elements) {
+            body.putInt(strings.indexOf(element.getFontFamily()));
+        }
+        for (ElementData element : elements) {
+            body.putInt(strings.indexOf(element.getSource()));
+        }
+        for (ElementData element : elements) {
+            body.put((byte) element.getKind().ordinal());
+        }
+        for (ElementData element : elements) {
+            body.put((byte) element.getStartPort());
+        }
+        for (ElementData element : elements) {
+            body.put((byte) element.getEndPort());
+        }
+        strings.writeTo(body);
+        body.flip();
+
+        ByteBuffer payload = compress ? deflate(body) : body;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort((short) VERSION);
+        header.putShort((short) (compress ? FLAG_DEFLATE : 0));
+        header.putInt(count);
+        header.putInt(geometryLength);
+        header.putInt(strings.size());
+        header.putInt(payload.remaining());
+        header.putInt(rawBodyLength);
+        header.putInt(0);
+        header.flip();
+        return new ByteBuffer[]{header, payload};
+    }
+
+    public static DiagramDocument read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a diagram file: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(mapped, path.toString());
+        }
+    }
+
+    public static DiagramDocument fromBytes(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_SIZE) {
+            throw new IOException("Not a diagram");
+        }
+        return read(ByteBuffer.wrap(bytes), "clipboard");
+    }
+
+    private static DiagramDocument read(ByteBuffer buffer, String source) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a diagram file: " + source);
+        }
+        int version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported diagram file version " + version + ": " + source);
+        }
+        int flags = buffer.getShort();
+        int count = buffer.getInt();
+        int geometryLength = buffer.getInt();
+        int stringCount = buffer.getInt();
+        int bodyLength = buffer.getInt();
+        int rawBodyLength = buffer.getInt();
+        buffer.getInt();
+
+        // Розміри із заголовка перевіряються до будь-якого виділення пам'яті
+        if (bodyLength < 0 || HEADER_SIZE + (long) bodyLength > buffer.limit()) {
+            throw new IOException("Truncated diagram file: " + source);
+        }
+        ByteBuffer body = buffer.slice(HEADER_SIZE, bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+        if ((flags & FLAG_DEFLATE) != 0) {
+            if (rawBodyLength < 0 || rawBodyLength > bodyLength * MAX_DEFLATE_RATIO + 64) {
+                throw new IOException("Corrupted diagram file header: " + source);
+            }
+            body = inflate(body, rawBodyLength);
+        }
+        long elementBytes = version >= 2 ? 8 * 3 + 8 + 8 + 4 * 6 + 1 + 2 : 8 + 8 + 8 + 4 * 6 + 1;
+        if (count < 0 || geometryLength < 0 || stringCount < 0
+                || count * elementBytes + 4 + geometryLength * 8L + stringCount * 4L > body.remaining()) {
+            throw new IOException("Corrupted diagram file header: " + source);
+        }
+        return readBody(body, version, count, geometryLength, stringCount);
+    }
+
+    private static DiagramDocument readBody(ByteBuffer body, int version, int count, int geometryLength,
+                                            int stringCount) throws IOException {
+        boolean attachments = version >= 2;
+        long[] ids = new long[count];
+        long[] startShapes = new long[count];
+        long[] endShapes = new long[count];
+        double[] geometry = new double[geometryLength];
+        double[] strokeWidths = new double[count];
+        double[] fontSizes = new double[count];
+        int[] offsets = new int[count + 1];
+        int[] fills = new int[count];
+        int[] strokes = new int[count];
+        int[] texts = new int[count];
+        int[] fonts = new int[count];
+        int[] sources = new int[count];
+        byte[] kinds = new byte[count];
+        byte[] startPorts = new byte[count];
+        byte[] endPorts = new byte[count];
+
+        try {
+            for (long[] column : attachments ? new long[][]{ids, startShapes, endShapes} : new long[][]{ids}) {
+                body.asLongBuffer().get(column);
+                body.position(body.position() + count * 8);
+            }
+            body.asDoubleBuffer().get(geometry);
+            body.position(body.position() + geometryLength * 8);
+            body.asDoubleBuffer().get(strokeWidths);
+            body.position(body.position() + count * 8);
+            body.asDoubleBuffer().get(fontSizes);
+            body.position(body.position() + count * 8);
+            body.asIntBuffer().get(offsets);
+            body.position(body.position() + (count + 1) * 4);
+            for (int[] column : new int[][]{fills, strokes, texts, fonts, sources}) {
+                body.asIntBuffer().get(column);
+                body.position(body.position() + count * 4);
+            }
+            body.get(kinds);
+            if (attachments) {
+                body.get(startPorts);
+                body.get(endPorts);
+            }
+
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int length = body.getInt();
+                if (length < 0 || length > body.remaining()) {
+                    throw new IOException("Corrupted diagram string table");
+                }
+                byte[] bytes = new byte[length];
+                body.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            ElementKind[] kindValues = ElementKind.values();
+            DiagramDocument document = new DiagramDocument();
+            for (int i = 0; i < count; i++) {
+                // Пошкоджені зміщення могли б запросити величезний масив, а порти — вийти за межі фігури
+                if (offsets[i] < 0 || offsets[i + 1] < offsets[i] || offsets[i + 1] > geometryLength
+                        || startPorts[i] < 0 || startPorts[i] >= ElementData.PORT_COUNT
+                        || endPorts[i] < 0 || endPorts[i] >= ElementData.PORT_COUNT) {
+                    throw new IOException("Corrupted diagram element " + i);
+                }
+                double[] elementGeometry = new double[offsets[i + 1] - offsets[i]];
+                System.arraycopy(geometry, offsets[i], elementGeometry, 0, elementGeometry.length);
+                ElementKind kind = kindValues[kinds[i]];
+                String text = lookup(strings, texts[i]);
+                String source = lookup(strings, sources[i]);
+                if (!isWellFormed(kind, elementGeometry, text, source)) {
+                    throw new IOException("Corrupted diagram element " + i);
+                }
+                ElementData element = new ElementData(ids[i], kind, elementGeometry);
+                element.setFill(fills[i]);
+                element.setStroke(strokes[i]);
+                element.setStrokeWidth(strokeWidths[i]);
+                element.setText(text);
+                element.setFont(lookup(strings, fonts[i]), fontSizes[i]);
+                element.setSource(source);
+                element.setStart(startShapes[i], startPorts[i]);
+                element.setEnd(endShapes[i], endPorts[i]);
+                document.add(element);
+            }
+            return document;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted diagram file", e);
+        }
+    }
+
+    // Довжина геометрії, яку для кожного типу читають проєкція, растеризатор і експорт SVG, та обов'язкові рядки:
+    // текст у підпису, шлях до зображення в картинках і бібліотечних фігурах
+    private static boolean isWellFormed(ElementKind kind, double[] geometry, String text, String source) {
+        int length = geometry.length;
+        return switch (kind) {
+            case CIRCLE -> length == 3;
+            case RECTANGLE, ELLIPSE -> length == 4;
+            case TRIANGLE, DECISION, INPUT_OUTPUT -> length >= 8 && length % 2 == 0;
+            case LINE -> length >= 4 && length % 2 == 0;
+            case ARROW -> length >= ElementData.ARROW_HEAD_LENGTH + 4 && length % 2 == 0;
+            case TEXT -> length == 4 && text != null;
+            case PROCESS, STORAGE, STEP, DOCUMENT, ACTOR, IMAGE -> length == 4 && source != null;
+        };
+    }
+
+    private static String lookup(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private static ByteBuffer deflate(ByteBuffer input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteBuffer output = ByteBuffer.allocate(Math.max(64, input.remaining() / 2));
+            while (!deflater.finished()) {
+                if (!output.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(output.capacity() * 2);
+                    output.flip();
+                    larger.put(output);
+                    output = larger;
+                }
+                deflater.deflate(output);
+            }
+            output.flip();
+            return output;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(ByteBuffer input, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteBuffer output = ByteBuffer.allocate(rawLength).order(ByteOrder.LITTLE_ENDIAN);
+            while (output.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(output) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed diagram body");
+                }
+            }
+            output.flip();
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted compressed diagram body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int byteLength;
+
+        private void add(String value) {
+            if (value != null && !indices.containsKey(value)) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                indices.put(value, encoded.size());
+                encoded.add(bytes);
+                byteLength += 4 + bytes.length;
+            }
+        }
+
+        private int indexOf(String value) {
+            return value == null ? -1 : indices.get(value);
+        }
+
+        private int size() {
+            return encoded.size();
+        }
+
+        private int byteLength() {
+            return byteLength;
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            for (byte[] bytes : encoded) {
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+// Фонове завантаження діаграми: файл розбирається поза потоком JavaFX,
+// а елементи додаються на робочу область порціями в межах бюджету одного кадру,
+// починаючи з найближчих до видимої частини
+public class DiagramLoader extends Task<Integer> {
+    private static final long FRAME_BUDGET_NANOS = 8_000_000;
+
+    private final DiagramModel model;
+    private final Path path;
+    private final double focusX;
+    private final double focusY;
+
+    public DiagramLoader(DiagramModel model, Path path, double focusX, double focusY) {
+        this.model = model;
+        this.path = path;
+        this.focusX = focusX;
+        this.focusY = focusY;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        updateMessage("Читання " + path.getFileName());
+        DiagramDocument loaded = DiagramFileFormat.read(path);
+        List<ElementData> elements = loaded.getElements();
+        Integer[] order = orderByDistance(elements);
+
+        if (isCancelled()) {
+            return 0;
+        }
+
+        CountDownLatch finished = new CountDownLatch(1);
+        // Конфлікти ідентифікаторів з уже відкритою діаграмою розв'язуються до вставки, разом з прикріпленнями
+        Platform.runLater(() -> new Inserter(model.resolveIds(elements), order, finished).start());
+        finished.await();
+        return elements.size();
+    }
+
+    private Integer[] orderByDistance(List<ElementData> elements) {
+        double[] distances = new double[elements.size()];
+        double[] bounds = new double[4];
+        Integer[] order = new Integer[elements.size()];
+        for (int i = 0; i < order.length; i++) {
+            elements.get(i).getBounds(bounds);
+            double dx = (bounds[0] + bounds[2]) / 2 - focusX;
+            double dy = (bounds[1] + bounds[3]) / 2 - focusY;
+            distances[i] = dx * dx + dy * dy;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+        return order;
+    }
+
+    private final class Inserter extends AnimationTimer {
+        private final List<ElementData> elements;
+        private final Integer[] order;
+        private final CountDownLatch finished;
+        private final DiagramElement[] inserted;
+        private int next;
+
+        private Inserter(List<ElementData> elements, Integer[] order, CountDownLatch finished) {
+            this.elements = elements;
+            this.order = order;
+            this.finished = finished;
+            this.inserted = new DiagramElement[elements.size()];
+        }
+
+        @Override
+        public void handle(long now) {
+            if (isCancelled()) {
+                stop();
+                List<DiagramElement> rollback = new ArrayList<>();
+                for (DiagramElement element : inserted) {
+                    if (element != null) {
+                        rollback.add(element);
+                    }
+                }
+                model.removeElements(rollback);
+                finished.countDown();
+                return;
+            }
+
+            // Вузли кадру будуються в межах бюджету і стають на робочу область однією перебудовою
+            long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+            int first = next;
+            List<ElementData> frame = new ArrayList<>();
+            while (next < order.length && System.nanoTime() < deadline) {
+                frame.add(elements.get(order[next++]));
+            }
+            List<DiagramElement> added = model.addData(frame);
+            for (int i = 0; i < added.size(); i++) {
+                inserted[order[first + i]] = added.get(i);
+            }
+            updateProgress(next, order.length);
+            updateMessage("Завантажено " + next + " з " + order.length);
+
+            if (next == order.length) {
+                stop();
+                // Порядок малювання відновлюється за порядком у файлі одним проходом
+                model.restoreOrder(Arrays.asList(inserted));
+                finished.countDown();
+            }
+        }
+    }
+}
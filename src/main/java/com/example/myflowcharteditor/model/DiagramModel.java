@@ -1,41 +1,218 @@
 package com.example.myflowcharteditor.model;
 
 import com.example.myflowcharteditor.controller.DiagramController;
+import com.example.myflowcharteditor.utillity.ElementHandle;
+import com.example.myflowcharteditor.utillity.HandleRegistry;
 import com.example.myflowcharteditor.utillity.LineHandles;
 import com.example.myflowcharteditor.utillity.ResizeBox;
-import javafx.scene.Group;
+import javafx.application.Platform;
+import javafx.geometry.BoundingBox;
 import javafx.scene.Node;
-import javafx.scene.control.TextField;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
-import javafx.scene.shape.*;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class DiagramModel implements DiagramEdits.Target {
+    private static final double SNAP_DISTANCE = 15;
+    private static final int LAYOUT_ANIMATION_LIMIT = 2000;
 
-public class DiagramModel {
     private final Pane workArea;
-    private List<DiagramElement> clipboard;
-    private DiagramController controller;
+    private final List<ElementData> clipboard;
+    private final DiagramController controller;
+    private final ElementIndex elementIndex = new ElementIndex();
+    private final DiagramDocument document = new DiagramDocument();
+    private final Map<Node, ElementData> dataByNode = new HashMap<>();
+    private final Map<Long, DiagramElement> elementsById = new HashMap<>();
+    private final Map<Node, Long> paintOrder = new HashMap<>();
+    private final ViewportCuller viewportCuller;
+    private final OrthogonalRouter router = new OrthogonalRouter();
+    private final ConnectorGraph connectorGraph = new ConnectorGraph(this::updateAttachedConnectors);
+    private final FlowchartValidator validator = new FlowchartValidator(Platform::runLater);
+    private long nextPaintOrder;
+    private DetailLevel detailLevel = DetailLevel.FULL;
+    private Consumer<DiagramElement> onRestore = element -> {
+    };
 
-    public DiagramModel(Pane workArea) {
+    public DiagramModel(Pane workArea, DiagramController controller) {
         this.workArea = workArea;
+        this.controller = controller;
         this.clipboard = new ArrayList<>();
+
+        viewportCuller = new ViewportCuller(workArea, elementIndex, node -> paintOrder.getOrDefault(node, -1L));
+        HandleRegistry handleRegistry = controller.getHandleRegistry();
+        viewportCuller.setPinned(node -> handleRegistry.getHandle(node) != null || node.isFocusWithin());
+        handleRegistry.setOnRegister(viewportCuller::ensureAttached);
+        elementIndex.setOnBoundsChange(node -> {
+            viewportCuller.boundsChanged(node);
+            ElementData data = dataByNode.get(node);
+            if (data != null && connectorGraph.hasConnectors(data.getId())) {
+                connectorGraph.markChanged(data.getId());
+            }
+        });
+        viewportCuller.setOnAttach(node -> {
+            ElementData data = dataByNode.get(node);
+            if (data != null) {
+                ElementProjection.applyDetail(data, node, detailLevel);
+            }
+        });
+    }
+
+    // Викликається для кожного елемента, відновленого історією змін
+    public void setOnRestore(Consumer<DiagramElement> onRestore) {
+        this.onRestore = onRestore;
+    }
+
+    public FlowchartValidator getValidator() {
+        return validator;
+    }
+
+    public ElementIndex getElementIndex() {
+        return elementIndex;
+    }
+
+    public ViewportCuller getViewportCuller() {
+        return viewportCuller;
+    }
+
+    public DetailLevel getDetailLevel() {
+        return detailLevel;
+    }
+
+    // Від'єднані елементи отримають новий рівень при поверненні на сцену
+    public void setDetailLevel(DetailLevel level) {
+        if (detailLevel == level) {
+            return;
+        }
+        detailLevel = level;
+        for (Map.Entry<Node, ElementData> entry : dataByNode.entrySet()) {
+            if (viewportCuller.isAttached(entry.getKey())) {
+                ElementProjection.applyDetail(entry.getValue(), entry.getKey(), level);
+            }
+        }
+        viewportCuller.setOutlineMode(level == DetailLevel.OUTLINE);
+    }
+
+    public DiagramElement createElement(ElementKind kind, double x, double y) {
+        DiagramElement element = ElementProjection.project(ElementFactory.createData(kind, document.nextId(), x, y));
+        addElement(element);
+        return element;
+    }
+
+    public DiagramElement createImageElement(String imagePath, double x, double y) {
+        DiagramElement element = ElementProjection.project(ElementFactory.createImageData(imagePath, document.nextId(), x, y));
+        addElement(element);
+        return element;
+    }
+
+    public void addElement(DiagramElement element) {
+        registerElement(element);
+        viewportCuller.add(element.getNode());
+    }
+
+    // Зміни робочої області, що застосовуються однією перебудовою списку дітей
+    public WorkAreaBatch beginBatch() {
+        return new WorkAreaBatch(workArea);
+    }
+
+    // Реєструє елементи, видимі вузли потрапляють у пакет
+    public void addElements(List<DiagramElement> elements, WorkAreaBatch batch) {
+        List<Node> nodes = new ArrayList<>(elements.size());
+        for (DiagramElement element : elements) {
+            registerElement(element);
+            nodes.add(element.getNode());
+        }
+        viewportCuller.addAll(nodes, batch);
+    }
+
+    public void addElements(List<DiagramElement> elements) {
+        WorkAreaBatch batch = beginBatch();
+        addElements(elements, batch);
+        batch.commit();
+    }
+
+    private void registerElement(DiagramElement element) {
+        ElementData data = element.getData();
+        document.add(data);
+        dataByNode.put(element.getNode(), data);
+        elementsById.put(data.getId(), element);
+        paintOrder.put(element.getNode(), nextPaintOrder++);
+        if (data.getKind().isConnector()) {
+            connectorGraph.update(data);
+        }
+        validator.elementAdded(data);
+        elementIndex.add(element.getNode());
+    }
+
+    // Документ вилучає всі дані одним проходом, а не по одному елементу зі списку
+    private void unregisterElements(Collection<Node> nodes) {
+        List<ElementData> removed = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            ElementData data = dataByNode.remove(node);
+            if (data != null) {
+                removed.add(data);
+                elementsById.remove(data.getId());
+                connectorGraph.remove(data.getId());
+                validator.elementRemoved(data);
+                paintOrder.remove(node);
+                elementIndex.remove(node);
+                viewportCuller.remove(node);
+            }
+        }
+        document.removeAll(removed);
+    }
+
+    // Прикріплення з'єднання змінилися: оновити суміжність і перевірку схеми
+    private void reattached(ElementData connector) {
+        connectorGraph.update(connector);
+        validator.elementChanged(connector);
+    }
+
+    public ElementData getData(Node node) {
+        return dataByNode.get(node);
+    }
+
+    public DiagramElement getElement(long id) {
+        return elementsById.get(id);
+    }
+
+    // Переносить поточний стан вузлів у документ; викликається на потоці JavaFX
+    public DiagramDocument syncDocument() {
+        LineHandles.flushPending();
+        updateAttachedConnectors();
+        for (ElementData data : document.getElements()) {
+            ElementProjection.capture(elementsById.get(data.getId()).getNode(), data);
+        }
+        return document;
+    }
+
+    // Незалежна копія документа, яку можна обробляти поза потоком JavaFX
+    public DiagramDocument snapshotDocument() {
+        return syncDocument().copy();
     }
 
-    public void deleteSelectedElements(List<Object> selectedElements) {
+    // Повертає незалежні копії даних видалених елементів для історії змін
+    public List<ElementData> deleteSelectedElements(List<Object> selectedElements) {
+        LineHandles.flushPending();
         List<Node> nodesToRemove = new ArrayList<>();
         for (Object element : selectedElements) {
             if (element instanceof ResizeBox resizeBox) {
-                if (resizeBox.isLocked()) {
+                if (resizeBox.isLocked() || isLocked(resizeBox.getNode())) {
                     continue;
                 }
                 nodesToRemove.add(resizeBox.getNode());
                 nodesToRemove.add(resizeBox);
             } else if (element instanceof LineHandles lineHandles) {
-                if (lineHandles.isLocked()) {
+                if (lineHandles.isLocked() || isLocked(lineHandles.getPolyline())) {
                     continue;
                 }
                 if (lineHandles.getArrowGroup() != null) {
@@ -49,251 +226,645 @@ public class DiagramModel {
                 nodesToRemove.add(lineHandles);
             }
         }
-        workArea.getChildren().removeAll(nodesToRemove);
+        List<ElementData> removed = new ArrayList<>();
+        for (Node node : nodesToRemove) {
+            ElementData data = dataByNode.get(node);
+            if (data != null) {
+                ElementProjection.capture(node, data);
+                removed.add(data.copy(data.getId()));
+            }
+        }
+        WorkAreaBatch batch = beginBatch();
+        batch.removeAll(nodesToRemove);
+        batch.commit();
+        unregisterElements(nodesToRemove);
         selectedElements.clear();
+        return removed;
+    }
+
+    // Елемент може бути замкнений іншим маркером, що лишився на робочій області
+    private boolean isLocked(Node node) {
+        return controller.getHandleRegistry().isLocked(node);
+    }
+
+    private Node getElementNode(Object element) {
+        if (element instanceof ResizeBox resizeBox) {
+            return resizeBox.isLocked() || isLocked(resizeBox.getNode()) ? null : resizeBox.getNode();
+        } else if (element instanceof LineHandles lineHandles) {
+            if (lineHandles.isLocked() || isLocked(lineHandles.getPolyline())) {
+                return null;
+            }
+            return lineHandles.getArrowGroup() != null ? lineHandles.getArrowGroup() : lineHandles.getPolyline();
+        }
+        return null;
     }
 
-    public void copySelectedElements(List<Object> selectedElements, Map<Node, String> elementTypesMap) {
+    public void copySelectedElements(List<Object> selectedElements) {
+        LineHandles.flushPending();
         clipboard.clear();
         for (Object element : selectedElements) {
-            if (element instanceof ResizeBox resizeBox) {
-                if (resizeBox.isLocked()) {
-                    continue;
-                }
-                Node node = resizeBox.getNode();
-                String elementType = elementTypesMap.get(node);
-                DiagramElement newElement = null;
-                if (node instanceof Rectangle rectangle) {
-                    Rectangle newRectangle = new Rectangle(rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight());
-                    newRectangle.setFill(rectangle.getFill());
-                    newRectangle.setStroke(rectangle.getStroke());
-                    newElement = new DiagramShape(newRectangle);
-                } else if (node instanceof Circle circle) {
-                    Circle newCircle = new Circle(circle.getCenterX(), circle.getCenterY(), circle.getRadius());
-                    newCircle.setFill(circle.getFill());
-                    newCircle.setStroke(circle.getStroke());
-                    newElement = new DiagramShape(newCircle);
-                } else if (node instanceof Ellipse ellipse) {
-                    Ellipse newEllipse = new Ellipse(ellipse.getCenterX(), ellipse.getCenterY(), ellipse.getRadiusX(), ellipse.getRadiusY());
-                    newEllipse.setFill(ellipse.getFill());
-                    newEllipse.setStroke(ellipse.getStroke());
-                    newElement = new DiagramShape(newEllipse);
-                } else if (node instanceof Polygon polygon) {
-                    Polygon newPolygon = new Polygon();
-                    newPolygon.getPoints().addAll(polygon.getPoints());
-                    newPolygon.setFill(polygon.getFill());
-                    newPolygon.setStroke(polygon.getStroke());
-                    newPolygon.setLayoutX(polygon.getLayoutX());
-                    newPolygon.setLayoutY(polygon.getLayoutY());
-                    newElement = new DiagramShape(newPolygon);
-                } else if (node instanceof ImageView imageView) {
-                    ImageView newImageView = new ImageView(imageView.getImage());
-                    newImageView.setX(imageView.getX());
-                    newImageView.setY(imageView.getY());
-                    newImageView.setFitWidth(imageView.getFitWidth());
-                    newImageView.setFitHeight(imageView.getFitHeight());
-                    newElement = new DiagramShape(newImageView);
-                } else if (node instanceof Pane pane) {
-                    TextField textField = (TextField) pane.getChildren().get(0);
-                    TextField newTextField = new TextField(textField.getText());
-                    newTextField.setStyle(textField.getStyle());
-                    newTextField.setPrefWidth(textField.getPrefWidth());
-                    Pane newTextPane = new Pane(newTextField);
-                    newTextPane.setLayoutX(pane.getLayoutX());
-                    newTextPane.setLayoutY(pane.getLayoutY());
-                    newTextPane.setPrefWidth(pane.getPrefWidth());
-                    newTextPane.setPrefHeight(pane.getPrefHeight());
-                    newElement = new DiagramShape(newTextPane);
-                }
-                clipboard.add(newElement);
-                elementTypesMap.put(newElement.getNode(), elementType);
-            } else if (element instanceof LineHandles lineHandles) {
-                if (lineHandles.isLocked()) {
-                    continue;
-                }
-                Node node = lineHandles.getPolyline();
-                String elementType = elementTypesMap.get(node);
-
-                if (lineHandles.getArrowHead() != null) {
-                    Polyline originalLine = lineHandles.getPolyline();
-                    Polygon originalArrowHead = lineHandles.getArrowHead();
-
-                    Polyline newLine = new Polyline();
-                    newLine.getPoints().addAll(originalLine.getPoints());
-                    newLine.setStroke(originalLine.getStroke());
-                    newLine.setStrokeWidth(originalLine.getStrokeWidth());
-
-                    Polygon newArrowHead = new Polygon();
-                    newArrowHead.getPoints().addAll(originalArrowHead.getPoints());
-                    newArrowHead.setFill(originalArrowHead.getFill());
-
-                    Group newGroup = new Group(newLine, newArrowHead);
-                    DiagramArrow newDiagramArrow = new DiagramArrow(newGroup, newLine, newArrowHead);
-                    clipboard.add(newDiagramArrow);
-                    elementTypesMap.put(newDiagramArrow.getNode(), "Arrow");
-                } else {
-                    Polyline newPolyline = new Polyline();
-                    newPolyline.getPoints().addAll(((Polyline) node).getPoints());
-                    newPolyline.setStroke(((Polyline) node).getStroke());
-                    newPolyline.setStrokeWidth(((Polyline) node).getStrokeWidth());
-                    clipboard.add(new DiagramShape(newPolyline));
-                    elementTypesMap.put(newPolyline, "Line");
-                }
+            Node node = getElementNode(element);
+            ElementData data = node == null ? null : dataByNode.get(node);
+            if (data != null) {
+                ElementProjection.capture(node, data);
+                clipboard.add(data.copy(data.getId()));
             }
         }
     }
 
-    public List<DiagramElement> pasteElements() {
-        List<DiagramElement> newElements = new ArrayList<>();
+    // Вузли будуються один раз з описів у буфері і додаються у пакет разом з маркерами
+    public List<DiagramElement> pasteElements(WorkAreaBatch batch) {
+        List<DiagramElement> newElements = new ArrayList<>(clipboard.size());
         double offsetX = 20;
         double offsetY = 20;
 
-        for (DiagramElement element : clipboard) {
-            DiagramElement newElement = null;
+        for (ElementData data : clipboard) {
+            // Вставлені елементи зсуваються кожен по-своєму, тож прикріплення копій не зберігаються
+            ElementData copy = data.copy(document.nextId(), offsetX, offsetY);
+            copy.detach();
+            newElements.add(ElementProjection.project(copy));
+
+            offsetX += 50;
+            offsetY += 50;
+        }
+        addElements(newElements, batch);
+        return newElements;
+    }
+
+    // Вміст буфера як окремий документ, напр. для системного буфера обміну
+    public DiagramDocument getClipboardDocument() {
+        DiagramDocument clipboardDocument = new DiagramDocument();
+        for (ElementData data : clipboard) {
+            clipboardDocument.add(data.copy(data.getId()));
+        }
+        return clipboardDocument;
+    }
+
+    // Замінює буфер елементами, скопійованими в іншій програмі
+    public void setClipboard(List<ElementData> elements) {
+        clipboard.clear();
+        for (ElementData data : elements) {
+            clipboard.add(data.copy(data.getId()));
+        }
+    }
 
-            if (element instanceof DiagramArrow diagramArrow) {
-                Polyline originalLine = diagramArrow.getLine();
-                Polygon originalArrowHead = diagramArrow.getArrowHead();
+    public List<ElementData> cutSelectedElements(List<Object> selectedElements) {
+        copySelectedElements(selectedElements);
+        return deleteSelectedElements(selectedElements);
+    }
+
+    // Повертає ідентифікатори елементів, чий стан замкнення змінився
+    public long[] lockSelectedElements(List<Object> selectedElements) {
+        return setLocked(selectedElements, true);
+    }
 
-                Polyline newLine = createNewPolyline(originalLine, offsetX, offsetY);
+    public long[] unlockSelectedElements(List<Object> selectedElements) {
+        return setLocked(selectedElements, false);
+    }
 
-                Polygon newArrowHead = new Polygon();
-                newArrowHead.getPoints().clear();
-                List<Double> newArrowHeadPoints = new ArrayList<>();
-                for (int i = 0; i < originalArrowHead.getPoints().size(); i += 2) {
-                    newArrowHeadPoints.add(originalArrowHead.getPoints().get(i) + offsetX);
-                    newArrowHeadPoints.add(originalArrowHead.getPoints().get(i + 1) + offsetY);
+    private long[] setLocked(List<Object> selectedElements, boolean locked) {
+        List<Long> changed = new ArrayList<>();
+        for (Object element : selectedElements) {
+            if (element instanceof ElementHandle handle && handle.isLocked() != locked) {
+                Node node = element instanceof ResizeBox resizeBox ? resizeBox.getNode()
+                        : ((LineHandles) element).getArrowGroup() != null ? ((LineHandles) element).getArrowGroup()
+                        : ((LineHandles) element).getPolyline();
+                if (locked) {
+                    handle.lock();
+                } else {
+                    handle.unlock();
                 }
-                newArrowHead.getPoints().addAll(newArrowHeadPoints);
-
-                Group newGroup = new Group(newLine, newArrowHead);
-                newElement = new DiagramArrow(newGroup, newLine, newArrowHead);
-            } else if (element instanceof DiagramShape diagramShape) {
-                Node node = diagramShape.getNode();
-                if (node instanceof Rectangle rectangle) {
-                    Rectangle newRectangle = new Rectangle(rectangle.getX() + offsetX, rectangle.getY() + offsetY, rectangle.getWidth(), rectangle.getHeight());
-                    newRectangle.setFill(rectangle.getFill());
-                    newRectangle.setStroke(rectangle.getStroke());
-                    newElement = new DiagramShape(newRectangle);
-                } else if (node instanceof Circle circle) {
-                    Circle newCircle = new Circle(circle.getCenterX() + offsetX, circle.getCenterY() + offsetY, circle.getRadius());
-                    newCircle.setFill(circle.getFill());
-                    newCircle.setStroke(circle.getStroke());
-                    newElement = new DiagramShape(newCircle);
-                } else if (node instanceof Ellipse ellipse) {
-                    Ellipse newEllipse = new Ellipse(ellipse.getCenterX() + offsetX, ellipse.getCenterY() + offsetY, ellipse.getRadiusX(), ellipse.getRadiusY());
-                    newEllipse.setFill(ellipse.getFill());
-                    newEllipse.setStroke(ellipse.getStroke());
-                    newElement = new DiagramShape(newEllipse);
-                } else if (node instanceof Polygon polygon) {
-                    Polygon newPolygon = new Polygon();
-                    for (int i = 0; i < polygon.getPoints().size(); i += 2) {
-                        newPolygon.getPoints().addAll(polygon.getPoints().get(i) + offsetX, polygon.getPoints().get(i + 1) + offsetY);
-                    }
-                    newPolygon.setFill(polygon.getFill());
-                    newPolygon.setStroke(polygon.getStroke());
-                    newPolygon.setLayoutX(polygon.getLayoutX() + offsetX);
-                    newPolygon.setLayoutY(polygon.getLayoutY() + offsetY);
-                    newElement = new DiagramShape(newPolygon);
-                } else if (node instanceof ImageView imageView) {
-                    ImageView newImageView = new ImageView(imageView.getImage());
-                    newImageView.setX(imageView.getX() + offsetX);
-                    newImageView.setY(imageView.getY() + offsetY);
-                    newImageView.setFitWidth(imageView.getFitWidth());
-                    newImageView.setFitHeight(imageView.getFitHeight());
-                    newElement = new DiagramShape(newImageView);
-                } else if (node instanceof Pane pane) {
-                    TextField textField = (TextField) pane.getChildren().get(0);
-                    TextField newTextField = new TextField(textField.getText());
-                    newTextField.setStyle(textField.getStyle());
-                    newTextField.setPrefWidth(textField.getPrefWidth());
-                    Pane newTextPane = new Pane(newTextField);
-                    newTextPane.setLayoutX(pane.getLayoutX() + offsetX);
-                    newTextPane.setLayoutY(pane.getLayoutY() + offsetY);
-                    newTextPane.setPrefWidth(pane.getPrefWidth());
-                    newTextPane.setPrefHeight(pane.getPrefHeight());
-                    newElement = new DiagramShape(newTextPane);
-                } else if (node instanceof Polyline originalPolyline) {
-                    Polyline newPolyline = createNewPolyline(originalPolyline, offsetX, offsetY);
-                    newElement = new DiagramShape(newPolyline);
+                ElementData data = dataByNode.get(node);
+                if (data != null) {
+                    changed.add(data.getId());
                 }
             }
+        }
+        long[] ids = new long[changed.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = changed.get(i);
+        }
+        return ids;
+    }
+
+    // Поточна геометрія вузла як незалежний масив
+    public double[] captureGeometry(Node node) {
+        LineHandles.flushPending();
+        ElementData data = dataByNode.get(node);
+        if (data == null) {
+            return null;
+        }
+        ElementProjection.capture(node, data);
+        return data.getGeometry().clone();
+    }
 
-            if (newElement != null) {
-                newElements.add(newElement);
+    // Прокладає незамкнені з'єднання ортогонально в обхід фігур, зберігаючи їхні кінці.
+    // Маршрути, яких зміни не торкнулися, беруться з кешу трасувальника. Повертає кількість змінених з'єднань.
+    public int routeConnectors() {
+        LineHandles.flushPending();
+        updateAttachedConnectors();
+        List<DiagramElement> connectors = new ArrayList<>();
+        double[] bounds = new double[4];
+        router.beginSync();
+        for (DiagramElement element : elementsById.values()) {
+            ElementData data = element.getData();
+            ElementProjection.capture(element.getNode(), data);
+            if (data.getKind().isConnector()) {
+                if (!isLocked(element.getNode())) {
+                    connectors.add(element);
+                }
+            } else if (data.getKind() != ElementKind.TEXT) {
+                // Підписи зазвичай лежать на самих з'єднаннях, тож перешкодами не вважаються
+                data.getBounds(bounds);
+                router.setObstacle(data.getId(), bounds[0], bounds[1], bounds[2], bounds[3]);
             }
+        }
+        router.endSync();
 
-            offsetX += 50;
-            offsetY += 50;
+        long[] ids = new long[connectors.size()];
+        double[] endpoints = new double[ids.length * 4];
+        for (int i = 0; i < ids.length; i++) {
+            ElementData data = connectors.get(i).getData();
+            double[] g = data.getGeometry();
+            int last = data.getLineLength() - 2;
+            ids[i] = data.getId();
+            endpoints[i * 4] = g[0];
+            endpoints[i * 4 + 1] = g[1];
+            endpoints[i * 4 + 2] = g[last];
+            endpoints[i * 4 + 3] = g[last + 1];
         }
+        double[][] routes = router.routeAll(ids, endpoints);
 
-        return newElements;
+        int changed = 0;
+        for (int i = 0; i < ids.length; i++) {
+            DiagramElement element = connectors.get(i);
+            ElementData data = element.getData();
+            double[] g = data.getGeometry();
+            int lineLength = data.getLineLength();
+            if (Arrays.equals(g, 0, lineLength, routes[i], 0, routes[i].length)) {
+                continue;
+            }
+            boolean arrow = data.getKind() == ElementKind.ARROW;
+            double[] geometry = Arrays.copyOf(routes[i], routes[i].length + (arrow ? ElementData.ARROW_HEAD_LENGTH : 0));
+            if (arrow) {
+                ElementData.computeArrowHead(geometry, routes[i].length, geometry, routes[i].length);
+            }
+            data.setGeometry(geometry);
+            ElementProjection.apply(data, element.getNode());
+            changed++;
+        }
+        return changed;
     }
 
-    private Polyline createNewPolyline(Polyline originalLine, double offsetX, double offsetY) {
-        Polyline newLine = new Polyline();
-        newLine.getPoints().clear();
-        List<Double> newLinePoints = new ArrayList<>();
-        for (int i = 0; i < originalLine.getPoints().size(); i += 2) {
-            newLinePoints.add(originalLine.getPoints().get(i) + offsetX);
-            newLinePoints.add(originalLine.getPoints().get(i + 1) + offsetY);
+    // Кінець з'єднання поблизу порту фігури прикріплюється до нього і притягується точно в порт, решта кінців від'єднуються
+    public void snapConnector(Node node) {
+        LineHandles.flushPending();
+        ElementData data = dataByNode.get(node);
+        if (data == null || !data.getKind().isConnector()) {
+            return;
+        }
+        ElementProjection.capture(node, data);
+        double[] g = data.getGeometry();
+        int lineLength = data.getLineLength();
+        long[] start = nearestPort(g[0], g[1]);
+        long[] end = nearestPort(g[lineLength - 2], g[lineLength - 1]);
+        data.setStart(start[0], (int) start[1]);
+        data.setEnd(end[0], (int) end[1]);
+        reattached(data);
+        if (placeEnds(data, new HashMap<>())) {
+            ElementProjection.apply(data, node);
         }
-        newLine.getPoints().addAll(newLinePoints);
-        newLine.setStroke(originalLine.getStroke());
-        newLine.setStrokeWidth(originalLine.getStrokeWidth());
-        return newLine;
     }
 
-    public void cutSelectedElements(List<Object> selectedElements, Map<Node, String> elementTypesMap) {
-        copySelectedElements(selectedElements, elementTypesMap);
-        deleteSelectedElements(selectedElements);
+    // Фігура та її порт, найближчий до точки в межах SNAP_DISTANCE; {0, 0}, якщо такого немає
+    private long[] nearestPort(double x, double y) {
+        long[] nearest = {0, 0};
+        double[] best = {SNAP_DISTANCE * SNAP_DISTANCE};
+        double[] bounds = new double[4];
+        double[] port = new double[2];
+        elementIndex.query(new BoundingBox(x - SNAP_DISTANCE, y - SNAP_DISTANCE, 2 * SNAP_DISTANCE, 2 * SNAP_DISTANCE), candidate -> {
+            ElementData shape = dataByNode.get(candidate);
+            if (shape == null || shape.getKind().isConnector() || shape.getKind() == ElementKind.TEXT) {
+                return;
+            }
+            ElementProjection.capture(candidate, shape);
+            shape.getBounds(bounds);
+            for (int i = 0; i < ElementData.PORT_COUNT; i++) {
+                ElementData.portPosition(bounds, i, port);
+                double distance = (port[0] - x) * (port[0] - x) + (port[1] - y) * (port[1] - y);
+                if (distance <= best[0]) {
+                    best[0] = distance;
+                    nearest[0] = shape.getId();
+                    nearest[1] = i;
+                }
+            }
+        });
+        return nearest;
     }
 
-    public void lockSelectedElements(List<Object> selectedElements) {
-        for (Object element : selectedElements) {
-            if (element instanceof ResizeBox) {
-                ((ResizeBox) element).lock();
-            } else if (element instanceof LineHandles) {
-                ((LineHandles) element).lock();
+    // Один прохід за кадр: кінці з'єднань, прикріплених до змінених фігур, переносяться на їхні порти
+    private void updateAttachedConnectors() {
+        Set<Long> connectors = connectorGraph.takeChanged();
+        if (connectors.isEmpty()) {
+            return;
+        }
+        LineHandles.flushPending();
+        Map<Long, double[]> boundsById = new HashMap<>();
+        for (long id : connectors) {
+            DiagramElement element = elementsById.get(id);
+            if (element == null) {
+                continue;
+            }
+            ElementProjection.capture(element.getNode(), element.getData());
+            if (placeEnds(element.getData(), boundsById)) {
+                ElementProjection.apply(element.getData(), element.getNode());
             }
         }
     }
 
-    public void unlockSelectedElements(List<Object> selectedElements) {
-        for (Object element : selectedElements) {
-            if (element instanceof ResizeBox) {
-                ((ResizeBox) element).unlock();
-            } else if (element instanceof LineHandles) {
-                ((LineHandles) element).unlock();
+    // Ставить прикріплені кінці в порти; сусідня точка зсувається разом, щоб крайній відрізок лишався горизонтальним чи вертикальним
+    private boolean placeEnds(ElementData data, Map<Long, double[]> boundsById) {
+        double[] g = data.getGeometry();
+        int lineLength = data.getLineLength();
+        boolean changed = placeEnd(g, lineLength, 0, 2, data.getStartShape(), data.getStartPort(), boundsById);
+        changed |= placeEnd(g, lineLength, lineLength - 2, lineLength - 4, data.getEndShape(), data.getEndPort(), boundsById);
+        if (changed && data.getKind() == ElementKind.ARROW) {
+            ElementData.computeArrowHead(g, lineLength, g, lineLength);
+        }
+        return changed;
+    }
+
+    private boolean placeEnd(double[] g, int lineLength, int end, int neighbour, long shapeId, int port,
+                             Map<Long, double[]> boundsById) {
+        double[] bounds = shapeId == 0 ? null : boundsById.computeIfAbsent(shapeId, this::captureBounds);
+        if (bounds == null) {
+            return false;
+        }
+        double[] position = new double[2];
+        ElementData.portPosition(bounds, port, position);
+        if (g[end] == position[0] && g[end + 1] == position[1]) {
+            return false;
+        }
+        if (lineLength >= 6) {
+            if (g[neighbour + 1] == g[end + 1]) {
+                g[neighbour + 1] = position[1];
+            } else if (g[neighbour] == g[end]) {
+                g[neighbour] = position[0];
+            }
+        }
+        g[end] = position[0];
+        g[end + 1] = position[1];
+        return true;
+    }
+
+    // Поточні межі фігури; null, якщо її немає на діаграмі (напр. видалена)
+    private double[] captureBounds(long shapeId) {
+        DiagramElement shape = elementsById.get(shapeId);
+        if (shape == null) {
+            return null;
+        }
+        ElementProjection.capture(shape.getNode(), shape.getData());
+        double[] bounds = new double[4];
+        shape.getData().getBounds(bounds);
+        return bounds;
+    }
+
+    // Граф для автокомпонування: незамкнені фігури та з'єднання між ними. Неприкріплений кінець
+    // відноситься до фігури, біля порту чи всередині якої він лежить
+    public LayeredLayout.Graph captureLayoutGraph() {
+        LineHandles.flushPending();
+        updateAttachedConnectors();
+        Map<Long, Integer> indexById = new HashMap<>();
+        List<double[]> shapeBounds = new ArrayList<>();
+        List<ElementData> connectors = new ArrayList<>();
+        double originX = Double.POSITIVE_INFINITY;
+        double originY = Double.POSITIVE_INFINITY;
+        for (ElementData data : document.getElements()) {
+            Node node = elementsById.get(data.getId()).getNode();
+            if (isLocked(node)) {
+                continue;
+            }
+            ElementProjection.capture(node, data);
+            if (data.getKind().isConnector()) {
+                connectors.add(data);
+            } else if (data.getKind() != ElementKind.TEXT) {
+                double[] bounds = new double[4];
+                data.getBounds(bounds);
+                indexById.put(data.getId(), shapeBounds.size());
+                shapeBounds.add(bounds);
+                originX = Math.min(originX, bounds[0]);
+                originY = Math.min(originY, bounds[1]);
+            }
+        }
+
+        int n = shapeBounds.size();
+        long[] nodeIds = new long[n];
+        double[] widths = new double[n];
+        double[] heights = new double[n];
+        for (Map.Entry<Long, Integer> entry : indexById.entrySet()) {
+            double[] bounds = shapeBounds.get(entry.getValue());
+            nodeIds[entry.getValue()] = entry.getKey();
+            widths[entry.getValue()] = bounds[2] - bounds[0];
+            heights[entry.getValue()] = bounds[3] - bounds[1];
+        }
+        long[] edgeIds = new long[connectors.size()];
+        int[] sources = new int[connectors.size()];
+        int[] targets = new int[connectors.size()];
+        int m = 0;
+        for (ElementData data : connectors) {
+            double[] g = data.getGeometry();
+            int last = data.getLineLength() - 2;
+            Integer source = indexById.get(data.getStartShape() != 0 ? data.getStartShape() : shapeAt(g[0], g[1]));
+            Integer target = indexById.get(data.getEndShape() != 0 ? data.getEndShape() : shapeAt(g[last], g[last + 1]));
+            if (source != null && target != null) {
+                edgeIds[m] = data.getId();
+                sources[m] = source;
+                targets[m++] = target;
             }
         }
+        return new LayeredLayout.Graph(nodeIds, widths, heights, Arrays.copyOf(edgeIds, m),
+                Arrays.copyOf(sources, m), Arrays.copyOf(targets, m), n == 0 ? 0 : originX, n == 0 ? 0 : originY);
+    }
+
+    // Фігура, біля порту чи всередині якої лежить точка; 0, якщо такої немає
+    private long shapeAt(double x, double y) {
+        long[] found = {nearestPort(x, y)[0]};
+        if (found[0] != 0) {
+            return found[0];
+        }
+        double[] bounds = new double[4];
+        elementIndex.query(new BoundingBox(x, y, 0, 0), candidate -> {
+            ElementData data = dataByNode.get(candidate);
+            if (found[0] != 0 || data == null || data.getKind().isConnector() || data.getKind() == ElementKind.TEXT) {
+                return;
+            }
+            data.getBounds(bounds);
+            if (x >= bounds[0] && x <= bounds[2] && y >= bounds[1] && y <= bounds[3]) {
+                found[0] = data.getId();
+            }
+        });
+        return found[0];
     }
 
-    public void loadFromFile(File file) {
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
-            List<DiagramElement> elements = (List<DiagramElement>) in.readObject();
-            addElementsToWorkArea(elements);
-            System.out.println("Diagram loaded from " + file.getName());
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
+    // Ставить фігури і з'єднання за результатом компонування одним пакетом змін; з'єднання прикріплюються
+    // до нижнього порту початкової фігури та верхнього порту кінцевої. Елементи, видалені поки
+    // компонування рахувалося, пропускаються. Повертає запис історії.
+    public UndoHistory.Edit applyLayout(LayeredLayout.Graph graph, LayeredLayout.Result result, boolean animate) {
+        LineHandles.flushPending();
+        updateAttachedConnectors();
+        List<Long> ids = new ArrayList<>();
+        List<double[]> before = new ArrayList<>();
+        List<double[]> after = new ArrayList<>();
+        List<Node> movedNodes = new ArrayList<>();
+        List<double[]> shifts = new ArrayList<>();
+        List<Node> connectorNodes = new ArrayList<>();
+        Map<Long, double[]> boundsById = new HashMap<>();
+        WorkAreaBatch batch = beginBatch();
+
+        for (int i = 0; i < graph.size(); i++) {
+            DiagramElement element = elementsById.get(graph.nodeIds[i]);
+            if (element == null) {
+                continue;
+            }
+            ElementData data = element.getData();
+            ElementProjection.capture(element.getNode(), data);
+            double[] bounds = new double[4];
+            data.getBounds(bounds);
+            double dx = result.getX(i) - bounds[0];
+            double dy = result.getY(i) - bounds[1];
+            ids.add(data.getId());
+            before.add(data.getGeometry().clone());
+            data.translate(dx, dy);
+            after.add(data.getGeometry().clone());
+            data.getBounds(bounds);
+            boundsById.put(data.getId(), bounds);
+            movedNodes.add(element.getNode());
+            shifts.add(new double[]{-dx, -dy});
+            batch.change(() -> ElementProjection.apply(data, element.getNode()));
+        }
+
+        double[] start = new double[2];
+        double[] end = new double[2];
+        for (int k = 0; k < graph.edgeCount(); k++) {
+            DiagramElement element = elementsById.get(graph.edgeIds[k]);
+            long sourceId = graph.nodeIds[graph.sources[k]];
+            long targetId = graph.nodeIds[graph.targets[k]];
+            double[] sourceBounds = boundsById.get(sourceId);
+            double[] targetBounds = boundsById.get(targetId);
+            if (element == null || sourceBounds == null || targetBounds == null || sourceId == targetId) {
+                continue;
+            }
+            ElementData data = element.getData();
+            ElementProjection.capture(element.getNode(), data);
+            boolean downward = targetBounds[1] >= sourceBounds[3];
+            int startPort = downward ? 2 : 0;
+            int endPort = downward ? 0 : 2;
+            ElementData.portPosition(sourceBounds, startPort, start);
+            ElementData.portPosition(targetBounds, endPort, end);
+
+            double[] bends = result.getBends(k);
+            int lineLength = bends.length + 4;
+            boolean arrow = data.getKind() == ElementKind.ARROW;
+            double[] geometry = new double[lineLength + (arrow ? ElementData.ARROW_HEAD_LENGTH : 0)];
+            geometry[0] = start[0];
+            geometry[1] = start[1];
+            System.arraycopy(bends, 0, geometry, 2, bends.length);
+            geometry[lineLength - 2] = end[0];
+            geometry[lineLength - 1] = end[1];
+            if (arrow) {
+                ElementData.computeArrowHead(geometry, lineLength, geometry, lineLength);
+            }
+            ids.add(data.getId());
+            before.add(data.getGeometry().clone());
+            after.add(geometry.clone());
+            data.setGeometry(geometry);
+            data.setStart(sourceId, startPort);
+            data.setEnd(targetId, endPort);
+            reattached(data);
+            connectorNodes.add(element.getNode());
+            batch.change(() -> ElementProjection.apply(data, element.getNode()));
+        }
+        batch.commit();
+
+        if (animate && movedNodes.size() <= LAYOUT_ANIMATION_LIMIT) {
+            double[] shiftX = new double[shifts.size()];
+            double[] shiftY = new double[shifts.size()];
+            for (int i = 0; i < shiftX.length; i++) {
+                shiftX[i] = shifts.get(i)[0];
+                shiftY[i] = shifts.get(i)[1];
+            }
+            new LayoutAnimation(movedNodes, shiftX, shiftY, connectorNodes).start();
+        }
+
+        long[] editIds = new long[ids.size()];
+        for (int i = 0; i < editIds.length; i++) {
+            editIds[i] = ids.get(i);
         }
+        return DiagramEdits.arranged(this, editIds, before.toArray(new double[0][]), after.toArray(new double[0][]));
     }
 
-    private void addElementsToWorkArea(List<DiagramElement> elements) {
+    @Override
+    public void removeByIds(long[] ids) {
+        List<DiagramElement> elements = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            DiagramElement element = elementsById.get(id);
+            if (element != null) {
+                elements.add(element);
+            }
+        }
+        removeElements(elements);
+    }
+
+    @Override
+    public void restoreElements(List<ElementData> elements) {
+        List<DiagramElement> restored = new ArrayList<>(elements.size());
+        for (ElementData data : elements) {
+            if (!document.contains(data.getId())) {
+                restored.add(ElementProjection.project(data.copy(data.getId())));
+            }
+        }
+        WorkAreaBatch batch = beginBatch();
+        addElements(restored, batch);
+        batch.change(() -> restored.forEach(onRestore));
+        batch.commit();
+    }
+
+    @Override
+    public void translateByIds(long[] ids, double dx, double dy) {
+        LineHandles.flushPending();
+        for (long id : ids) {
+            DiagramElement element = elementsById.get(id);
+            if (element != null) {
+                ElementData data = element.getData();
+                ElementProjection.capture(element.getNode(), data);
+                data.translate(dx, dy);
+                ElementProjection.apply(data, element.getNode());
+            }
+        }
+        // Прикріплення з'єднань перевіряються, коли всі фігури вже на нових місцях
+        for (long id : ids) {
+            DiagramElement element = elementsById.get(id);
+            if (element != null && element.getData().getKind().isConnector()) {
+                snapConnector(element.getNode());
+            }
+        }
+    }
+
+    @Override
+    public void setGeometryById(long id, double[] geometry) {
+        LineHandles.flushPending();
+        DiagramElement element = elementsById.get(id);
+        if (element != null) {
+            ElementData data = element.getData();
+            ElementProjection.capture(element.getNode(), data);
+            data.setGeometry(geometry.clone());
+            ElementProjection.apply(data, element.getNode());
+            if (data.getKind().isConnector()) {
+                snapConnector(element.getNode());
+            }
+        }
+    }
+
+    // Замкнений елемент завжди має маркер на робочій області; для замкнення він створюється за потреби
+    @Override
+    public void setLockedByIds(long[] ids, boolean locked) {
+        HandleRegistry registry = controller.getHandleRegistry();
+        for (long id : ids) {
+            DiagramElement element = elementsById.get(id);
+            if (element == null) {
+                continue;
+            }
+            if (!locked) {
+                registry.getHandles(element.getNode()).forEach(ElementHandle::unlock);
+                continue;
+            }
+            ElementHandle handle = registry.getHandle(element.getNode());
+            if (handle == null) {
+                handle = controller.showHandle(element);
+            }
+            handle.lock();
+        }
+    }
+
+    public void saveToFile(File file) throws IOException {
+        DiagramFileFormat.write(snapshotDocument(), file.toPath(), true);
+    }
+
+    public DiagramLoader createLoader(File file, double focusX, double focusY) {
+        return new DiagramLoader(this, file.toPath(), focusX, focusY);
+    }
+
+    // Додає завантажений елемент; ідентифікатор змінюється лише при конфлікті з уже наявним
+    public DiagramElement addData(ElementData data) {
+        DiagramElement element = ElementProjection.project(resolveId(data));
+        addElement(element);
+        return element;
+    }
+
+    // Пакетний варіант: усі вузли стають на робочу область одною перебудовою
+    public List<DiagramElement> addData(List<ElementData> data) {
+        List<DiagramElement> elements = new ArrayList<>(data.size());
+        for (ElementData item : data) {
+            DiagramElement element = ElementProjection.project(resolveId(item));
+            elements.add(element);
+            // Ідентифікатор має бути зайнятий до перевірки наступного елемента
+            registerElement(element);
+        }
+        WorkAreaBatch batch = beginBatch();
+        List<Node> nodes = new ArrayList<>(elements.size());
         for (DiagramElement element : elements) {
-            Node node = element.getNode();
-            workArea.getChildren().add(node);
-            if (element instanceof DiagramArrow) {
-                LineHandles lineHandles = new LineHandles(element, controller);
-                workArea.getChildren().add(lineHandles);
-                controller.getSelectedElements().add(lineHandles);
-            } else if (element instanceof DiagramShape) {
-                ResizeBox resizeBox = new ResizeBox(node, controller);
-                workArea.getChildren().add(resizeBox);
-                controller.getSelectedElements().add(resizeBox);
-            }
-            controller.getElementTypesMap().put(node, element.getClass().getSimpleName());
+            nodes.add(element.getNode());
         }
+        viewportCuller.addAll(nodes, batch);
+        batch.commit();
+        return elements;
+    }
+
+    // Завантажені елементи отримують ідентифікатори, яких діаграма ще не видавала
+    public List<ElementData> resolveIds(List<ElementData> elements) {
+        return document.resolveIds(elements);
+    }
+
+    private ElementData resolveId(ElementData data) {
+        return document.contains(data.getId()) ? data.copy(document.nextId()) : data;
+    }
+
+    public void removeElements(List<DiagramElement> elements) {
+        Set<Node> nodes = new HashSet<>();
+        for (DiagramElement element : elements) {
+            nodes.add(element.getNode());
+        }
+        WorkAreaBatch batch = beginBatch();
+        batch.removeAll(nodes);
+        batch.commit();
+        unregisterElements(nodes);
+    }
+
+    // Переставляє вказані елементи в кінець порядку малювання в заданій послідовності;
+    // елементи, які вже видалено (наприклад, користувачем під час завантаження), пропускаються
+    public void restoreOrder(List<DiagramElement> elements) {
+        List<Node> nodes = new ArrayList<>(elements.size());
+        List<ElementData> data = new ArrayList<>(elements.size());
+        for (DiagramElement element : elements) {
+            if (dataByNode.get(element.getNode()) != element.getData()) {
+                continue;
+            }
+            nodes.add(element.getNode());
+            data.add(element.getData());
+            paintOrder.put(element.getNode(), nextPaintOrder++);
+        }
+        Set<Node> moved = new HashSet<>(nodes);
+        List<Node> children = new ArrayList<>(workArea.getChildren());
+        children.removeIf(moved::contains);
+        for (Node node : nodes) {
+            if (viewportCuller.isAttached(node)) {
+                children.add(node);
+            }
+        }
+        workArea.getChildren().setAll(children);
+
+        document.removeAll(data);
+        data.forEach(document::add);
     }
 
 }
@@ -3,9 +3,15 @@ package com.example.myflowcharteditor.model;
 import javafx.scene.Node;
 
 public class DiagramShape implements DiagramElement {
-    private final transient Node node;  // Node не є Serializable
+    private final Node node;
+    private final ElementData data;
 
     public DiagramShape(Node node) {
+        this(null, node);
+    }
+
+    public DiagramShape(ElementData data, Node node) {
+        this.data = data;
         this.node = node;
     }
 
@@ -13,4 +19,9 @@ public class DiagramShape implements DiagramElement {
     public Node getNode() {
         return node;
     }
+
+    @Override
+    public ElementData getData() {
+        return data;
+    }
 }
@@ -0,0 +1,309 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Дані одного елемента діаграми без жодних вузлів JavaFX.
+// Розкладка geometry залежить від kind:
+//   RECTANGLE                       x, y, width, height
+//   CIRCLE                          centerX, centerY, radius
+//   ELLIPSE                         centerX, centerY, radiusX, radiusY
+//   TRIANGLE, DECISION, INPUT_OUTPUT layoutX, layoutY, далі точки багатокутника
+//   LINE                            точки ламаної
+//   ARROW                           точки ламаної, далі 6 координат наконечника
+//   PROCESS ... IMAGE, TEXT         x, y, width, height (від'ємний розмір означає "обчислюваний")
+// Кінці LINE та ARROW можуть бути прикріплені до портів фігур: ідентифікатор фігури (0 — вільний кінець) і номер порту.
+public class ElementData {
+    public static final int ARROW_HEAD_LENGTH = 6;
+    public static final double DEFAULT_TEXT_WIDTH = 100;
+    public static final double DEFAULT_TEXT_HEIGHT = 25;
+    private static final double ARROW_LENGTH = 10;
+    private static final double ARROW_WIDTH = 5;
+    // Порти фігури: середини верхньої, правої, нижньої та лівої сторін меж
+    public static final int PORT_COUNT = 4;
+
+    private final long id;
+    private final ElementKind kind;
+    private double[] geometry;
+    private int fill;
+    private int stroke;
+    private double strokeWidth = 1;
+    private String text;
+    private String fontFamily;
+    private double fontSize;
+    private String source;
+    private long startShape;
+    private int startPort;
+    private long endShape;
+    private int endPort;
+
+    public ElementData(long id, ElementKind kind, double[] geometry) {
+        this.id = id;
+        this.kind = kind;
+        this.geometry = geometry;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ElementKind getKind() {
+        return kind;
+    }
+
+    public double[] getGeometry() {
+        return geometry;
+    }
+
+    public void setGeometry(double[] geometry) {
+        this.geometry = geometry;
+    }
+
+    public int getFill() {
+        return fill;
+    }
+
+    public void setFill(int fill) {
+        this.fill = fill;
+    }
+
+    public int getStroke() {
+        return stroke;
+    }
+
+    public void setStroke(int stroke) {
+        this.stroke = stroke;
+    }
+
+    public double getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public void setStrokeWidth(double strokeWidth) {
+        this.strokeWidth = strokeWidth;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getFontFamily() {
+        return fontFamily;
+    }
+
+    public double getFontSize() {
+        return fontSize;
+    }
+
+    public void setFont(String fontFamily, double fontSize) {
+        this.fontFamily = fontFamily;
+        this.fontSize = fontSize;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public long getStartShape() {
+        return startShape;
+    }
+
+    public int getStartPort() {
+        return startPort;
+    }
+
+    public void setStart(long shapeId, int port) {
+        this.startShape = shapeId;
+        this.startPort = port;
+    }
+
+    public long getEndShape() {
+        return endShape;
+    }
+
+    public int getEndPort() {
+        return endPort;
+    }
+
+    public void setEnd(long shapeId, int port) {
+        this.endShape = shapeId;
+        this.endPort = port;
+    }
+
+    public boolean isAttached() {
+        return startShape != 0 || endShape != 0;
+    }
+
+    public void detach() {
+        setStart(0, 0);
+        setEnd(0, 0);
+    }
+
+    // Переписує прикріплення після зміни ідентифікаторів фігур; ids — старий ідентифікатор на новий.
+    // 0 означає "не прикріплено" і не переписується
+    public void remapAttachments(Map<Long, Long> ids) {
+        if (startShape != 0) {
+            startShape = ids.getOrDefault(startShape, startShape);
+        }
+        if (endShape != 0) {
+            endShape = ids.getOrDefault(endShape, endShape);
+        }
+    }
+
+    // Кількість координат ламаної для LINE та ARROW
+    public int getLineLength() {
+        return kind == ElementKind.ARROW ? geometry.length - ARROW_HEAD_LENGTH : geometry.length;
+    }
+
+    public ElementData copy(long newId) {
+        return copyWithGeometry(newId, geometry.clone());
+    }
+
+    // Копія зі зсувом за один прохід: для вставки та створення з шаблону
+    public ElementData copy(long newId, double dx, double dy) {
+        return copyWithGeometry(newId, shiftedCopy(kind, geometry, dx, dy));
+    }
+
+    private ElementData copyWithGeometry(long newId, double[] newGeometry) {
+        ElementData copy = new ElementData(newId, kind, newGeometry);
+        copy.fill = fill;
+        copy.stroke = stroke;
+        copy.strokeWidth = strokeWidth;
+        copy.text = text;
+        copy.fontFamily = fontFamily;
+        copy.fontSize = fontSize;
+        copy.source = source;
+        copy.setStart(startShape, startPort);
+        copy.setEnd(endShape, endPort);
+        return copy;
+    }
+
+    static double[] shiftedCopy(ElementKind kind, double[] geometry, double dx, double dy) {
+        double[] shifted = geometry.clone();
+        if (kind.isConnector()) {
+            for (int i = 0; i < shifted.length; i += 2) {
+                shifted[i] += dx;
+                shifted[i + 1] += dy;
+            }
+        } else {
+            shifted[0] += dx;
+            shifted[1] += dy;
+        }
+        return shifted;
+    }
+
+    public void translate(double dx, double dy) {
+        if (kind.isConnector()) {
+            for (int i = 0; i < geometry.length; i += 2) {
+                geometry[i] += dx;
+                geometry[i + 1] += dy;
+            }
+        } else {
+            geometry[0] += dx;
+            geometry[1] += dy;
+        }
+    }
+
+    // Приблизний обсяг у пам'яті для обліку історії змін; рядки здебільшого спільні, тож рахуються грубо
+    long estimatedSize() {
+        long size = 104 + 16 + geometry.length * 8L;
+        if (text != null) {
+            size += 40 + text.length();
+        }
+        return size;
+    }
+
+    // Точки наконечника за останнім відрізком ламаної points[0, lineLength); пишуться в out від offset
+    public static void computeArrowHead(double[] points, int lineLength, double[] out, int offset) {
+        int last = lineLength - 2;
+        double endX = points[last];
+        double endY = points[last + 1];
+        double angle = Math.atan2(endY - points[last - 1], endX - points[last - 2]);
+        double sin = Math.sin(angle);
+        double cos = Math.cos(angle);
+
+        out[offset] = endX - ARROW_LENGTH * cos + ARROW_WIDTH * sin;
+        out[offset + 1] = endY - ARROW_LENGTH * sin - ARROW_WIDTH * cos;
+        out[offset + 2] = endX;
+        out[offset + 3] = endY;
+        out[offset + 4] = endX - ARROW_LENGTH * cos - ARROW_WIDTH * sin;
+        out[offset + 5] = endY - ARROW_LENGTH * sin + ARROW_WIDTH * cos;
+    }
+
+    // Положення порту на межах фігури bounds (minX, minY, maxX, maxY); out — x, y
+    public static void portPosition(double[] bounds, int port, double[] out) {
+        double centerX = (bounds[0] + bounds[2]) / 2;
+        double centerY = (bounds[1] + bounds[3]) / 2;
+        switch (port) {
+            case 0 -> {
+                out[0] = centerX;
+                out[1] = bounds[1];
+            }
+            case 1 -> {
+                out[0] = bounds[2];
+                out[1] = centerY;
+            }
+            case 2 -> {
+                out[0] = centerX;
+                out[1] = bounds[3];
+            }
+            default -> {
+                out[0] = bounds[0];
+                out[1] = centerY;
+            }
+        }
+    }
+
+    // Межі елемента у координатах робочої області: minX, minY, maxX, maxY
+    public void getBounds(double[] out) {
+        double[] g = geometry;
+        switch (kind) {
+            case CIRCLE -> setBounds(out, g[0] - g[2], g[1] - g[2], g[0] + g[2], g[1] + g[2]);
+            case ELLIPSE -> setBounds(out, g[0] - g[2], g[1] - g[3], g[0] + g[2], g[1] + g[3]);
+            case TRIANGLE, DECISION, INPUT_OUTPUT -> {
+                pointBounds(out, g, 2, g.length);
+                out[0] += g[0];
+                out[1] += g[1];
+                out[2] += g[0];
+                out[3] += g[1];
+            }
+            case LINE, ARROW -> pointBounds(out, g, 0, g.length);
+            case TEXT -> setBounds(out, g[0], g[1],
+                    g[0] + (g[2] < 0 ? DEFAULT_TEXT_WIDTH : g[2]),
+                    g[1] + (g[3] < 0 ? DEFAULT_TEXT_HEIGHT : g[3]));
+            default -> setBounds(out, g[0], g[1], g[0] + g[2], g[1] + g[3]);
+        }
+    }
+
+    private static void pointBounds(double[] out, double[] points, int from, int to) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxY = Math.max(maxY, points[i + 1]);
+        }
+        setBounds(out, minX, minY, maxX, maxY);
+    }
+
+    private static void setBounds(double[] out, double minX, double minY, double maxX, double maxY) {
+        out[0] = minX;
+        out[1] = minY;
+        out[2] = maxX;
+        out[3] = maxY;
+    }
+
+    @Override
+    public String toString() {
+        return kind.getDisplayName() + "#" + id + Arrays.toString(geometry);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.myflowcharteditor.model;
+
+import com.example.myflowcharteditor.utillity.QuadTree;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Просторовий індекс меж елементів діаграми, що оновлюється при кожній зміні boundsInParent
+public class ElementIndex {
+    private static final double WORLD_EXTENT = 1 << 17;
+
+    private final QuadTree<Node> tree = new QuadTree<>(-WORLD_EXTENT, -WORLD_EXTENT, WORLD_EXTENT, WORLD_EXTENT);
+    private final Map<Node, InvalidationListener> boundsListeners = new HashMap<>();
+    private Runnable onChange = () -> {
+    };
+    private Consumer<Node> onBoundsChange = node -> {
+    };
+
+    // Викликається після кожної зміни вмісту індексу
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    // Викликається для вузла, межі якого щойно змінилися
+    public void setOnBoundsChange(Consumer<Node> onBoundsChange) {
+        this.onBoundsChange = onBoundsChange;
+    }
+
+    public void add(Node node) {
+        if (boundsListeners.containsKey(node)) {
+            return;
+        }
+        InvalidationListener listener = obs -> updateBounds(node);
+        boundsListeners.put(node, listener);
+        node.boundsInParentProperty().addListener(listener);
+        updateBounds(node);
+    }
+
+    public void remove(Node node) {
+        InvalidationListener listener = boundsListeners.remove(node);
+        if (listener != null) {
+            node.boundsInParentProperty().removeListener(listener);
+            tree.remove(node);
+            onChange.run();
+        }
+    }
+
+    public boolean contains(Node node) {
+        return boundsListeners.containsKey(node);
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    public void query(Bounds area, Consumer<Node> action) {
+        tree.query(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), action);
+    }
+
+    private void updateBounds(Node node) {
+        Bounds bounds = node.getBoundsInParent();
+        tree.insert(node, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+        onBoundsChange.accept(node);
+        onChange.run();
+    }
+}
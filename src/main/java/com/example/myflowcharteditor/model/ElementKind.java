@@ -0,0 +1,58 @@
+package com.example.myflowcharteditor.model;
+
+// Порядок констант є частиною формату файлу (DiagramFileFormat зберігає ordinal), нові види додаються лише в кінець
+public enum ElementKind {
+    TEXT("Text", null),
+    RECTANGLE("Rectangle", null),
+    CIRCLE("Circle", null),
+    ELLIPSE("Ellipse", null),
+    TRIANGLE("Triangle", null),
+    DECISION("Decision", null),
+    INPUT_OUTPUT("Input/Output", null),
+    LINE("Line", null),
+    ARROW("Arrow", null),
+    PROCESS("Process", "process.png"),
+    STORAGE("Storage", "storage.png"),
+    STEP("Step", "step.png"),
+    DOCUMENT("Document", "document.png"),
+    ACTOR("Actor", "actor.png"),
+    IMAGE("Image", null);
+
+    private final String displayName;
+    private final String resource;
+
+    ElementKind(String displayName, String resource) {
+        this.displayName = displayName;
+        this.resource = resource;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Вбудований ресурс зображення для стандартних блоків; для IMAGE шлях зберігається в самому елементі
+    public String getResource() {
+        return resource;
+    }
+
+    public boolean isConnector() {
+        return this == LINE || this == ARROW;
+    }
+
+    public boolean isPolygon() {
+        return this == TRIANGLE || this == DECISION || this == INPUT_OUTPUT;
+    }
+
+    public boolean isImage() {
+        return resource != null || this == IMAGE;
+    }
+
+    public static ElementKind fromDisplayName(String displayName) {
+        for (ElementKind kind : values()) {
+            if (kind.displayName.equals(displayName)) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported element type: " + displayName);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.collections.ObservableList;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.*;
+import javafx.scene.text.Font;
+
+import java.util.List;
+
+// Перетворення між ElementData та вузлами JavaFX, що його відображають
+public class ElementProjection {
+    private static final String TEXT_STYLE = "-fx-background-color: transparent; -fx-text-fill: black;";
+    private static final String TEXT_BAR_STYLE = "-fx-background-color: #b4b4b4;";
+    private static final String FULL_IMAGE_KEY = "detail.fullImage";
+    private static final Image IMAGE_PLACEHOLDER = createPlaceholder();
+
+    public static DiagramElement project(ElementData data) {
+        ElementKind kind = data.getKind();
+        DiagramElement element;
+        if (kind == ElementKind.ARROW) {
+            Polyline line = new Polyline();
+            Polygon arrowHead = new Polygon();
+            element = new DiagramArrow(data, new Group(line, arrowHead), line, arrowHead);
+        } else {
+            element = new DiagramShape(data, createNode(kind));
+        }
+        apply(data, element.getNode());
+        return element;
+    }
+
+    private static Node createNode(ElementKind kind) {
+        switch (kind) {
+            case RECTANGLE:
+                return new Rectangle();
+            case CIRCLE:
+                return new Circle();
+            case ELLIPSE:
+                return new Ellipse();
+            case TRIANGLE:
+            case DECISION:
+            case INPUT_OUTPUT:
+                return new Polygon();
+            case LINE:
+                return new Polyline();
+            case TEXT:
+                TextField textField = new TextField();
+                textField.setStyle(TEXT_STYLE);
+                return new Pane(textField);
+            default:
+                return new ImageView();
+        }
+    }
+
+    // Записує дані елемента у вузол
+    public static void apply(ElementData data, Node node) {
+        double[] g = data.getGeometry();
+        switch (data.getKind()) {
+            case RECTANGLE -> {
+                Rectangle rectangle = (Rectangle) node;
+                rectangle.setX(g[0]);
+                rectangle.setY(g[1]);
+                rectangle.setWidth(g[2]);
+                rectangle.setHeight(g[3]);
+                applyStyle(data, rectangle);
+            }
+            case CIRCLE -> {
+                Circle circle = (Circle) node;
+                circle.setCenterX(g[0]);
+                circle.setCenterY(g[1]);
+                circle.setRadius(g[2]);
+                applyStyle(data, circle);
+            }
+            case ELLIPSE -> {
+                Ellipse ellipse = (Ellipse) node;
+                ellipse.setCenterX(g[0]);
+                ellipse.setCenterY(g[1]);
+                ellipse.setRadiusX(g[2]);
+                ellipse.setRadiusY(g[3]);
+                applyStyle(data, ellipse);
+            }
+            case TRIANGLE, DECISION, INPUT_OUTPUT -> {
+                Polygon polygon = (Polygon) node;
+                polygon.setLayoutX(g[0]);
+                polygon.setLayoutY(g[1]);
+                setPoints(polygon.getPoints(), g, 2, g.length);
+                applyStyle(data, polygon);
+            }
+            case LINE -> {
+                Polyline polyline = (Polyline) node;
+                setPoints(polyline.getPoints(), g, 0, g.length);
+                polyline.setStroke(toPaint(data.getStroke()));
+                polyline.setStrokeWidth(data.getStrokeWidth());
+            }
+            case ARROW -> {
+                Group group = (Group) node;
+                Polyline line = (Polyline) group.getChildren().get(0);
+                Polygon arrowHead = (Polygon) group.getChildren().get(1);
+                int lineLength = data.getLineLength();
+                setPoints(line.getPoints(), g, 0, lineLength);
+                setPoints(arrowHead.getPoints(), g, lineLength, g.length);
+                line.setStroke(toPaint(data.getStroke()));
+                line.setStrokeWidth(data.getStrokeWidth());
+                arrowHead.setFill(toPaint(data.getFill()));
+            }
+            case TEXT -> {
+                Pane pane = (Pane) node;
+                TextField textField = (TextField) pane.getChildren().get(0);
+                pane.setLayoutX(g[0]);
+                pane.setLayoutY(g[1]);
+                textField.setPrefWidth(g[2]);
+                textField.setPrefHeight(g[3]);
+                if (!data.getText().equals(textField.getText())) {
+                    textField.setText(data.getText());
+                }
+                if (data.getFontFamily() != null) {
+                    textField.setFont(Font.font(data.getFontFamily(), data.getFontSize()));
+                }
+            }
+            default -> {
+                ImageView imageView = (ImageView) node;
+                imageView.setX(g[0]);
+                imageView.setY(g[1]);
+                imageView.setFitWidth(g[2]);
+                imageView.setFitHeight(g[3]);
+                if (data.getKind() == ElementKind.IMAGE) {
+                    ImagePyramid.forFile(data.getSource()).bind(imageView);
+                } else if (imageView.getImage() == null) {
+                    imageView.setImage(ElementFactory.loadImage(data.getKind(), data.getSource()));
+                }
+            }
+        }
+    }
+
+    // Спрощує або відновлює вигляд вузла для заданого рівня деталізації; геометрія не змінюється
+    public static void applyDetail(ElementData data, Node node, DetailLevel level) {
+        boolean full = level == DetailLevel.FULL;
+        if (data.getKind() == ElementKind.TEXT) {
+            Pane pane = (Pane) node;
+            pane.getChildren().get(0).setVisible(full);
+            pane.setStyle(full ? "" : TEXT_BAR_STYLE);
+        } else if (data.getKind().isImage()) {
+            ImageView imageView = (ImageView) node;
+            Image current = imageView.getImage();
+            if (full && current == IMAGE_PLACEHOLDER) {
+                imageView.setImage((Image) imageView.getProperties().remove(FULL_IMAGE_KEY));
+            } else if (!full && current != IMAGE_PLACEHOLDER) {
+                imageView.getProperties().put(FULL_IMAGE_KEY, current);
+                imageView.setImage(IMAGE_PLACEHOLDER);
+            }
+        }
+    }
+
+    // Показує нове зображення, не знімаючи заглушку рівня деталізації, якщо вона зараз на місці
+    public static void showImage(ImageView imageView, Image image) {
+        if (imageView.getImage() == IMAGE_PLACEHOLDER) {
+            imageView.getProperties().put(FULL_IMAGE_KEY, image);
+        } else {
+            imageView.setImage(image);
+        }
+    }
+
+    // Один світло-сірий піксель, розтягнутий до розміру зображення
+    private static Image createPlaceholder() {
+        WritableImage image = new WritableImage(1, 1);
+        image.getPixelWriter().setColor(0, 0, Color.gray(0.85));
+        return image;
+    }
+
+    // Зчитує поточний стан вузла назад у дані елемента
+    public static void capture(Node node, ElementData data) {
+        switch (data.getKind()) {
+            case RECTANGLE -> {
+                Rectangle rectangle = (Rectangle) node;
+                data.setGeometry(new double[]{rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight()});
+                captureStyle(rectangle, data);
+            }
+            case CIRCLE -> {
+                Circle circle = (Circle) node;
+                data.setGeometry(new double[]{circle.getCenterX(), circle.getCenterY(), circle.getRadius()});
+                captureStyle(circle, data);
+            }
+            case ELLIPSE -> {
+                Ellipse ellipse = (Ellipse) node;
+                data.setGeometry(new double[]{ellipse.getCenterX(), ellipse.getCenterY(), ellipse.getRadiusX(), ellipse.getRadiusY()});
+                captureStyle(ellipse, data);
+            }
+            case TRIANGLE, DECISION, INPUT_OUTPUT -> {
+                Polygon polygon = (Polygon) node;
+                List<Double> points = polygon.getPoints();
+                double[] g = new double[points.size() + 2];
+                g[0] = polygon.getLayoutX();
+                g[1] = polygon.getLayoutY();
+                getPoints(points, g, 2);
+                data.setGeometry(g);
+                captureStyle(polygon, data);
+            }
+            case LINE -> {
+                Polyline polyline = (Polyline) node;
+                double[] g = new double[polyline.getPoints().size()];
+                getPoints(polyline.getPoints(), g, 0);
+                data.setGeometry(g);
+                data.setStroke(toArgb(polyline.getStroke()));
+                data.setStrokeWidth(polyline.getStrokeWidth());
+            }
+            case ARROW -> {
+                Group group = (Group) node;
+                Polyline line = (Polyline) group.getChildren().get(0);
+                Polygon arrowHead = (Polygon) group.getChildren().get(1);
+                int lineLength = line.getPoints().size();
+                double[] g = new double[lineLength + arrowHead.getPoints().size()];
+                getPoints(line.getPoints(), g, 0);
+                getPoints(arrowHead.getPoints(), g, lineLength);
+                data.setGeometry(g);
+                data.setStroke(toArgb(line.getStroke()));
+                data.setStrokeWidth(line.getStrokeWidth());
+                data.setFill(toArgb(arrowHead.getFill()));
+            }
+            case TEXT -> {
+                Pane pane = (Pane) node;
+                TextField textField = (TextField) pane.getChildren().get(0);
+                data.setGeometry(new double[]{pane.getLayoutX(), pane.getLayoutY(), textField.getPrefWidth(), textField.getPrefHeight()});
+                data.setText(textField.getText());
+                data.setFont(textField.getFont().getFamily(), textField.getFont().getSize());
+            }
+            default -> {
+                ImageView imageView = (ImageView) node;
+                data.setGeometry(new double[]{imageView.getX(), imageView.getY(), imageView.getFitWidth(), imageView.getFitHeight()});
+            }
+        }
+    }
+
+    private static void applyStyle(ElementData data, Shape shape) {
+        shape.setFill(toPaint(data.getFill()));
+        shape.setStroke(toPaint(data.getStroke()));
+        shape.setStrokeWidth(data.getStrokeWidth());
+    }
+
+    private static void captureStyle(Shape shape, ElementData data) {
+        data.setFill(toArgb(shape.getFill()));
+        data.setStroke(toArgb(shape.getStroke()));
+        data.setStrokeWidth(shape.getStrokeWidth());
+    }
+
+    private static void setPoints(ObservableList<Double> target, double[] source, int from, int to) {
+        Double[] points = new Double[to - from];
+        for (int i = from; i < to; i++) {
+            points[i - from] = source[i];
+        }
+        target.setAll(points);
+    }
+
+    private static void getPoints(List<Double> source, double[] target, int offset) {
+        for (int i = 0; i < source.size(); i++) {
+            target[offset + i] = source.get(i);
+        }
+    }
+
+    public static int toArgb(Paint paint) {
+        if (!(paint instanceof Color color)) {
+            return 0;
+        }
+        return ((int) Math.round(color.getOpacity() * 255) << 24)
+                | ((int) Math.round(color.getRed() * 255) << 16)
+                | ((int) Math.round(color.getGreen() * 255) << 8)
+                | (int) Math.round(color.getBlue() * 255);
+    }
+
+    public static Color toPaint(int argb) {
+        if (argb == 0) {
+            return null;
+        }
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.myflowcharteditor.model;
+
+// Незмінний шаблон елемента: геометрія відносно точки вставки, стиль і тип маркера.
+// Новий елемент — це одна копія масиву геометрії зі зсувом, без повторного обчислення форми.
+public final class ElementPrototype {
+    public enum HandleType {
+        // Рамка з кутовими маркерами (ResizeBox)
+        BOX,
+        // Маркери точок ламаної (LineHandles)
+        LINE
+    }
+
+    private final ElementKind kind;
+    private final double[] geometry;
+    private final int fill;
+    private final int stroke;
+    private final double strokeWidth;
+    private final String text;
+    private final String fontFamily;
+    private final double fontSize;
+    private final String source;
+    private final HandleType handleType;
+
+    // Шаблоном стає знімок даних елемента, розміщеного в точці (0, 0)
+    public ElementPrototype(ElementData template) {
+        this.kind = template.getKind();
+        this.geometry = template.getGeometry().clone();
+        this.fill = template.getFill();
+        this.stroke = template.getStroke();
+        this.strokeWidth = template.getStrokeWidth();
+        this.text = template.getText();
+        this.fontFamily = template.getFontFamily();
+        this.fontSize = template.getFontSize();
+        this.source = template.getSource();
+        this.handleType = kind.isConnector() ? HandleType.LINE : HandleType.BOX;
+    }
+
+    public ElementKind getKind() {
+        return kind;
+    }
+
+    public HandleType getHandleType() {
+        return handleType;
+    }
+
+    public ElementData instantiate(long id, double x, double y) {
+        ElementData data = new ElementData(id, kind, ElementData.shiftedCopy(kind, geometry, x, y));
+        data.setFill(fill);
+        data.setStroke(stroke);
+        data.setStrokeWidth(strokeWidth);
+        data.setText(text);
+        data.setFont(fontFamily, fontSize);
+        data.setSource(source);
+        return data;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Реєстр шаблонів для всіх видів елементів; шаблони будуються один раз при завантаженні класу
+public final class ElementPrototypes {
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final Map<ElementKind, ElementPrototype> prototypes = new EnumMap<>(ElementKind.class);
+
+    static {
+        register(shape(ElementKind.RECTANGLE, 100, 50));
+        register(shape(ElementKind.CIRCLE, 50));
+        register(shape(ElementKind.ELLIPSE, 50, 30));
+
+        ElementData line = new ElementData(0, ElementKind.LINE, new double[]{0, 0, 50, 0, 100, 0, 150, 0});
+        line.setStroke(BLACK);
+        register(line);
+
+        ElementData arrow = new ElementData(0, ElementKind.ARROW, new double[]{
+                0, 0, 50, 0, 100, 0, 150, 0,
+                150.0, -5.0, 160.0, 0, 150.0, 5.0
+        });
+        arrow.setStroke(BLACK);
+        arrow.setFill(BLACK);
+        register(arrow);
+
+        register(shape(ElementKind.TRIANGLE,
+                50.0, 0.0,
+                0.0, 100.0,
+                100.0, 100.0));
+        register(shape(ElementKind.DECISION,
+                50.0, 0.0,
+                100.0, 50.0,
+                50.0, 100.0,
+                0.0, 50.0));
+        register(shape(ElementKind.INPUT_OUTPUT,
+                0.0, 0.0,
+                80.0, 0.0,
+                100.0, 50.0,
+                20.0, 50.0));
+
+        for (ElementKind kind : ElementKind.values()) {
+            if (kind.isImage()) {
+                // Для IMAGE джерело задається при створенні
+                ElementData image = new ElementData(0, kind, new double[]{0, 0, 100, 60});
+                image.setSource(kind.getResource());
+                register(image);
+            }
+        }
+
+        ElementData text = new ElementData(0, ElementKind.TEXT, new double[]{0, 0, 100, -1});
+        text.setText("text");
+        register(text);
+    }
+
+    private ElementPrototypes() {
+    }
+
+    public static ElementPrototype get(ElementKind kind) {
+        ElementPrototype prototype = prototypes.get(kind);
+        if (prototype == null) {
+            throw new IllegalArgumentException("Unsupported element type: " + kind);
+        }
+        return prototype;
+    }
+
+    public static void register(ElementData template) {
+        prototypes.put(template.getKind(), new ElementPrototype(template));
+    }
+
+    private static ElementData shape(ElementKind kind, double... size) {
+        double[] geometry = new double[size.length + 2];
+        System.arraycopy(size, 0, geometry, 2, size.length);
+        ElementData shape = new ElementData(0, kind, geometry);
+        shape.setFill(WHITE);
+        shape.setStroke(BLACK);
+        return shape;
+    }
+}
@@ -0,0 +1,549 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Фонова перевірка структури блок-схеми: розгалуження без двох виходів, недосяжні блоки,
+// висячі стрілки та цикли без розгалуження.
+// Потік JavaFX лише ставить зміни в чергу; окремий потік веде власний граф фігур і стрілок
+// і після кожної порції змін перевіряє тільки зачеплені компоненти зв'язності.
+// Зміни набору зауважень передаються слухачу через publisher (на потік JavaFX).
+public class FlowchartValidator {
+    public static final String DECISION_OUTPUTS = "Розгалуження має менше двох виходів";
+    public static final String UNREACHABLE = "Блок недосяжний від початку";
+    public static final String DANGLING = "Стрілка не з'єднана з фігурою";
+    public static final String CYCLE = "Цикл без розгалуження";
+
+    public interface Listener {
+        // changed — нові або змінені зауваження за ідентифікатором елемента, cleared — зняті
+        void issuesChanged(Map<Long, String> changed, Set<Long> cleared);
+    }
+
+    private record Change(boolean removed, long id, ElementKind kind, long source, long target) {
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flowchart-validator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Executor publisher;
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Listener listener = (changed, cleared) -> {
+    };
+    private volatile long lastCheckNanos;
+
+    // Стан нижче належить лише потоку перевірки. Фігури й стрілки займають щільні слоти,
+    // тож обхід графа йде по масивах, без пошуку в мапах на кожному кроці.
+    private final Map<Long, Integer> nodeSlots = new HashMap<>();
+    private final Map<Long, Integer> arrowSlots = new HashMap<>();
+    // Стрілки, що посилаються на фігуру з цим ідентифікатором, навіть якщо її ще чи вже немає
+    private final Map<Long, List<Integer>> arrowsByShape = new HashMap<>();
+    private final ArrayDeque<Integer> freeNodes = new ArrayDeque<>();
+    private final ArrayDeque<Integer> freeArrows = new ArrayDeque<>();
+    private long[] nodeIds = new long[64];
+    private ElementKind[] nodeKinds = new ElementKind[64];
+    private IntList[] outgoing = new IntList[64];
+    private IntList[] incoming = new IntList[64];
+    private boolean[] start = new boolean[64];
+    private int nodeSlotCount;
+    private long[] arrowIds = new long[64];
+    private long[] arrowSources = new long[64];
+    private long[] arrowTargets = new long[64];
+    private int[] arrowFrom = new int[64];
+    private int[] arrowTo = new int[64];
+    private int arrowSlotCount;
+    private int startCount;
+    private final Map<Long, String> issues = new HashMap<>();
+    private final Set<Long> dirtyNodes = new HashSet<>();
+    private final Set<Long> dirtyArrows = new HashSet<>();
+    // Робочі масиви обходу; mark[slot] == epoch означає "вже відвіданий у цій перевірці"
+    private int[] mark = new int[64];
+    private int[] queue = new int[64];
+    private int[] localIndex = new int[64];
+    private int epoch;
+
+    public FlowchartValidator(Executor publisher) {
+        this.publisher = publisher;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Тривалість останньої перевірки зачепленої частини графа
+    public long getLastCheckNanos() {
+        return lastCheckNanos;
+    }
+
+    // Для тестів: чекає, доки потік перевірки обробить усі вже передані зміни
+    void awaitIdle() throws InterruptedException {
+        try {
+            worker.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void elementAdded(ElementData data) {
+        elementChanged(data);
+    }
+
+    // Для стрілок — нові прикріплення кінців; фігури не змінюють свого місця в графі
+    public void elementChanged(ElementData data) {
+        if (data.getKind() == ElementKind.ARROW) {
+            submit(new Change(false, data.getId(), data.getKind(), data.getStartShape(), data.getEndShape()));
+        } else if (isFlowNode(data.getKind())) {
+            submit(new Change(false, data.getId(), data.getKind(), 0, 0));
+        }
+    }
+
+    public void elementRemoved(ElementData data) {
+        if (data.getKind() == ElementKind.ARROW || isFlowNode(data.getKind())) {
+            submit(new Change(true, data.getId(), data.getKind(), 0, 0));
+        }
+    }
+
+    // Підписи й довільні зображення не є кроками схеми
+    private static boolean isFlowNode(ElementKind kind) {
+        return !kind.isConnector() && kind != ElementKind.TEXT && kind != ElementKind.IMAGE;
+    }
+
+    private static boolean isTerminator(ElementKind kind) {
+        return kind == ElementKind.ELLIPSE || kind == ElementKind.CIRCLE;
+    }
+
+    private void submit(Change change) {
+        changes.add(change);
+        if (scheduled.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        Change change;
+        while ((change = changes.poll()) != null) {
+            apply(change);
+        }
+        long start = System.nanoTime();
+        Map<Long, String> changed = new HashMap<>();
+        Set<Long> cleared = new HashSet<>();
+        revalidate(changed, cleared);
+        lastCheckNanos = System.nanoTime() - start;
+        if (!changed.isEmpty() || !cleared.isEmpty()) {
+            Listener target = listener;
+            publisher.execute(() -> target.issuesChanged(changed, cleared));
+        }
+    }
+
+    private void apply(Change change) {
+        if (change.kind() == ElementKind.ARROW) {
+            applyArrow(change);
+        } else if (change.removed()) {
+            removeNode(change.id());
+        } else if (!nodeSlots.containsKey(change.id())) {
+            addNode(change.id(), change.kind());
+        }
+    }
+
+    private void applyArrow(Change change) {
+        Integer slot = arrowSlots.get(change.id());
+        if (slot != null) {
+            unlink(slot);
+            forget(slot, arrowSources[slot]);
+            forget(slot, arrowTargets[slot]);
+            dirtyNodes.add(arrowSources[slot]);
+            dirtyNodes.add(arrowTargets[slot]);
+            if (change.removed()) {
+                arrowSlots.remove(change.id());
+                freeArrows.add(slot);
+            }
+        }
+        dirtyArrows.add(change.id());
+        if (change.removed()) {
+            return;
+        }
+        if (slot == null) {
+            slot = allocateArrow(change.id());
+        }
+        arrowSources[slot] = change.source();
+        arrowTargets[slot] = change.target();
+        for (long shape : new long[]{change.source(), change.target()}) {
+            if (shape != 0) {
+                arrowsByShape.computeIfAbsent(shape, key -> new ArrayList<>()).add(slot);
+                dirtyNodes.add(shape);
+            }
+        }
+        link(slot);
+    }
+
+    private void forget(int arrow, long shape) {
+        List<Integer> referencing = arrowsByShape.get(shape);
+        if (referencing != null) {
+            referencing.remove((Integer) arrow);
+            if (referencing.isEmpty()) {
+                arrowsByShape.remove(shape);
+            }
+        }
+    }
+
+    private void addNode(long id, ElementKind kind) {
+        int slot = freeNodes.isEmpty() ? nodeSlotCount++ : freeNodes.poll();
+        ensureNodeCapacity(nodeSlotCount);
+        nodeIds[slot] = id;
+        nodeKinds[slot] = kind;
+        outgoing[slot] = new IntList();
+        incoming[slot] = new IntList();
+        start[slot] = false;
+        nodeSlots.put(id, slot);
+        relinkNeighbours(id);
+        dirtyNodes.add(id);
+    }
+
+    private void removeNode(long id) {
+        Integer slot = nodeSlots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        if (start[slot]) {
+            start[slot] = false;
+            startCount--;
+        }
+        List<Integer> referencing = arrowsByShape.getOrDefault(id, List.of());
+        for (int arrow : referencing) {
+            unlink(arrow);
+        }
+        nodeKinds[slot] = null;
+        outgoing[slot] = null;
+        incoming[slot] = null;
+        freeNodes.add(slot);
+        relinkNeighbours(id);
+        dirtyNodes.add(id);
+    }
+
+    // Поява чи зникнення фігури змінює стан прикріплених до неї стрілок
+    private void relinkNeighbours(long id) {
+        for (int arrow : arrowsByShape.getOrDefault(id, List.of())) {
+            unlink(arrow);
+            link(arrow);
+            dirtyArrows.add(arrowIds[arrow]);
+            dirtyNodes.add(arrowSources[arrow]);
+            dirtyNodes.add(arrowTargets[arrow]);
+        }
+    }
+
+    // Стрілка входить у граф, лише якщо обидва її кінці прикріплені до наявних фігур
+    private void link(int arrow) {
+        arrowFrom[arrow] = slotOf(arrowSources[arrow]);
+        arrowTo[arrow] = slotOf(arrowTargets[arrow]);
+        if (isLinked(arrow)) {
+            outgoing[arrowFrom[arrow]].add(arrow);
+            incoming[arrowTo[arrow]].add(arrow);
+        }
+    }
+
+    private void unlink(int arrow) {
+        if (isLinked(arrow)) {
+            outgoing[arrowFrom[arrow]].remove(arrow);
+            incoming[arrowTo[arrow]].remove(arrow);
+        }
+        arrowFrom[arrow] = -1;
+        arrowTo[arrow] = -1;
+    }
+
+    private boolean isLinked(int arrow) {
+        return arrowFrom[arrow] >= 0 && arrowTo[arrow] >= 0;
+    }
+
+    private int slotOf(long id) {
+        Integer slot = id == 0 ? null : nodeSlots.get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    private int allocateArrow(long id) {
+        int slot = freeArrows.isEmpty() ? arrowSlotCount++ : freeArrows.poll();
+        if (slot >= arrowIds.length) {
+            int capacity = arrowIds.length * 2;
+            arrowIds = Arrays.copyOf(arrowIds, capacity);
+            arrowSources = Arrays.copyOf(arrowSources, capacity);
+            arrowTargets = Arrays.copyOf(arrowTargets, capacity);
+            arrowFrom = Arrays.copyOf(arrowFrom, capacity);
+            arrowTo = Arrays.copyOf(arrowTo, capacity);
+        }
+        arrowIds[slot] = id;
+        arrowFrom[slot] = -1;
+        arrowTo[slot] = -1;
+        arrowSlots.put(id, slot);
+        return slot;
+    }
+
+    private void ensureNodeCapacity(int size) {
+        if (size <= nodeIds.length) {
+            return;
+        }
+        int capacity = nodeIds.length * 2;
+        nodeIds = Arrays.copyOf(nodeIds, capacity);
+        nodeKinds = Arrays.copyOf(nodeKinds, capacity);
+        outgoing = Arrays.copyOf(outgoing, capacity);
+        incoming = Arrays.copyOf(incoming, capacity);
+        start = Arrays.copyOf(start, capacity);
+        mark = Arrays.copyOf(mark, capacity);
+        queue = Arrays.copyOf(queue, capacity);
+        localIndex = Arrays.copyOf(localIndex, capacity);
+    }
+
+    private void revalidate(Map<Long, String> changed, Set<Long> cleared) {
+        for (long id : dirtyArrows) {
+            Integer arrow = arrowSlots.get(id);
+            report(id, arrow == null ? null : isLinked(arrow) ? "" : DANGLING, changed, cleared);
+        }
+        dirtyArrows.clear();
+
+        // Початок схеми — термінатор без входів; коли такі з'являються чи зникають усі, змінюються правила для всього графа
+        boolean hadStarts = startCount > 0;
+        for (long id : dirtyNodes) {
+            int slot = slotOf(id);
+            if (slot >= 0) {
+                boolean isStart = isTerminator(nodeKinds[slot]) && incoming[slot].size() == 0;
+                if (isStart != start[slot]) {
+                    start[slot] = isStart;
+                    startCount += isStart ? 1 : -1;
+                }
+            }
+        }
+        if (hadStarts != startCount > 0) {
+            dirtyNodes.addAll(nodeSlots.keySet());
+        }
+
+        epoch++;
+        for (long id : dirtyNodes) {
+            int slot = slotOf(id);
+            if (slot < 0) {
+                report(id, null, changed, cleared);
+            } else if (mark[slot] != epoch) {
+                checkComponent(component(slot), changed, cleared);
+            }
+        }
+        dirtyNodes.clear();
+    }
+
+    // Слоти компоненти слабкої зв'язності навколо вузла
+    private int[] component(int root) {
+        int tail = 0;
+        queue[tail++] = root;
+        mark[root] = epoch;
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            IntList out = outgoing[node];
+            for (int k = 0; k < out.size(); k++) {
+                int next = arrowTo[out.get(k)];
+                if (mark[next] != epoch) {
+                    mark[next] = epoch;
+                    queue[tail++] = next;
+                }
+            }
+            IntList in = incoming[node];
+            for (int k = 0; k < in.size(); k++) {
+                int previous = arrowFrom[in.get(k)];
+                if (mark[previous] != epoch) {
+                    mark[previous] = epoch;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    private void checkComponent(int[] nodes, Map<Long, String> changed, Set<Long> cleared) {
+        // Компонента переводиться в локальні індекси і стиснутий список суміжності
+        int n = nodes.length;
+        for (int i = 0; i < n; i++) {
+            localIndex[nodes[i]] = i;
+        }
+        int[] first = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            first[i + 1] = first[i] + outgoing[nodes[i]].size();
+        }
+        int[] targets = new int[first[n]];
+        for (int i = 0; i < n; i++) {
+            IntList out = outgoing[nodes[i]];
+            for (int k = 0; k < out.size(); k++) {
+                targets[first[i] + k] = localIndex[arrowTo[out.get(k)]];
+            }
+        }
+
+        String[] found = new String[n];
+        for (int i = 0; i < n; i++) {
+            if (nodeKinds[nodes[i]] == ElementKind.DECISION && first[i + 1] - first[i] < 2) {
+                found[i] = add(found[i], DECISION_OUTPUTS);
+            }
+        }
+
+        // Досяжність: від початків схеми, а якщо їх немає ніде — від блоків без входів у цій компоненті
+        boolean[] reached = new boolean[n];
+        int[] pending = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            int slot = nodes[i];
+            if (startCount > 0 ? start[slot] : incoming[slot].size() == 0) {
+                reached[i] = true;
+                pending[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            for (int k = first[pending[head]]; k < first[pending[head] + 1]; k++) {
+                if (!reached[targets[k]]) {
+                    reached[targets[k]] = true;
+                    pending[tail++] = targets[k];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (!reached[i]) {
+                found[i] = add(found[i], UNREACHABLE);
+            }
+        }
+
+        int[] component = stronglyConnected(n, first, targets);
+        int[] size = new int[n];
+        boolean[] selfLoop = new boolean[n];
+        boolean[] hasDecision = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            size[component[i]]++;
+            hasDecision[component[i]] |= nodeKinds[nodes[i]] == ElementKind.DECISION;
+            for (int k = first[i]; k < first[i + 1]; k++) {
+                selfLoop[component[i]] |= targets[k] == i;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int c = component[i];
+            if ((size[c] > 1 || selfLoop[c]) && !hasDecision[c]) {
+                found[i] = add(found[i], CYCLE);
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            report(nodeIds[nodes[i]], found[i], changed, cleared);
+        }
+    }
+
+    // Номер сильно зв'язної компоненти кожного вузла; ітеративний алгоритм Тар'яна
+    private static int[] stronglyConnected(int n, int[] start, int[] targets) {
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int components = 0;
+        int top = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = start[root];
+            index[root] = low[root] = counter++;
+            stack[top++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callEdge[depth] < start[node + 1]) {
+                    int child = targets[callEdge[depth]++];
+                    if (index[child] < 0) {
+                        index[child] = low[child] = counter++;
+                        stack[top++] = child;
+                        onStack[child] = true;
+                        depth++;
+                        callNode[depth] = child;
+                        callEdge[depth] = start[child];
+                    } else if (onStack[child]) {
+                        low[node] = Math.min(low[node], index[child]);
+                    }
+                    continue;
+                }
+                if (low[node] == index[node]) {
+                    int member;
+                    do {
+                        member = stack[--top];
+                        onStack[member] = false;
+                        component[member] = components;
+                    } while (member != node);
+                    components++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    low[callNode[depth]] = Math.min(low[callNode[depth]], low[node]);
+                }
+            }
+        }
+        return component;
+    }
+
+    private static String add(String found, String message) {
+        return found == null ? message : found + "; " + message;
+    }
+
+    // Порожнє повідомлення чи null знімають зауваження
+    private void report(long id, String message, Map<Long, String> changed, Set<Long> cleared) {
+        if (message == null || message.isEmpty()) {
+            if (issues.remove(id) != null) {
+                cleared.add(id);
+                changed.remove(id);
+            }
+        } else if (!message.equals(issues.put(id, message))) {
+            changed.put(id, message);
+            cleared.remove(id);
+        }
+    }
+
+    // Список int без упаковки; видалення лінійне, бо степені вузлів малі
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.scene.image.Image;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Спільний кеш розкодованих зображень за адресою та цільовим розміром.
+// Кількість записів обмежена (LRU), а самі зображення тримаються через SoftReference,
+// тож при нестачі пам'яті їх може звільнити збирач сміття.
+public class ImageCache {
+    private final int capacity;
+    private final ReferenceQueue<Image> collected = new ReferenceQueue<>();
+    private final Map<Key, SoftEntry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ImageCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SoftEntry> eldest) {
+                if (size() > ImageCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // width/height — розмір, до якого зображення масштабується при розкодуванні; 0 — природний
+    public synchronized Image get(String url, double width, double height, Supplier<Image> loader) {
+        expungeCollected();
+        Key key = new Key(url, width, height);
+        SoftEntry entry = entries.get(key);
+        Image image = entry == null ? null : entry.get();
+        if (image != null && !image.isError()) {
+            hits++;
+            return image;
+        }
+
+        misses++;
+        image = loader.get();
+        if (image != null && !image.isError()) {
+            entries.put(key, new SoftEntry(key, image, collected));
+        } else {
+            entries.remove(key);
+        }
+        return image;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // Записи, чиї зображення вже звільнив збирач сміття, вилучаються з мапи
+    private void expungeCollected() {
+        SoftEntry entry;
+        while ((entry = (SoftEntry) collected.poll()) != null) {
+            if (entries.get(entry.key) == entry) {
+                entries.remove(entry.key);
+                evictions++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ImageCache[size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private record Key(String url, double width, double height) {
+    }
+
+    private static final class SoftEntry extends SoftReference<Image> {
+        private final Key key;
+
+        private SoftEntry(Key key, Image image, ReferenceQueue<Image> queue) {
+            super(image, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Піраміда рівнів для зображень користувача: ImageView показує рівень, що відповідає
+// його розміру на екрані (розмір елемента × масштаб), а рівні розкодовуються у фоні.
+// Пам'ять залежить від кількості пікселів на екрані, а не від розміру файлу.
+public class ImagePyramid {
+    private static final int MIN_LEVEL = 64;
+    private static final int MAX_LEVEL = 4096;
+    private static final Image LOADING = createLoadingImage();
+    private static final Map<String, ImagePyramid> pyramids = new ConcurrentHashMap<>();
+    private static final String BINDING_KEY = "pyramid.binding";
+    // Прив'язка живе у властивостях самого ImageView, тут лише слабкі посилання на вузли
+    private static final Set<ImageView> boundViews = Collections.newSetFromMap(new WeakHashMap<>());
+    private static final ExecutorService headerReader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-header");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static double exportScale = 0;
+
+    private final String path;
+    private final String url;
+    private final Executor fxThread;
+    // Розмір оригіналу; 0, доки заголовок файлу ще не прочитано
+    private int sourceSize;
+    private boolean headerRequested;
+    // Прив'язки, що чекають на заголовок; усі оновлюються, щойно розмір стане відомим
+    private final List<Binding> waiting = new ArrayList<>();
+
+    private ImagePyramid(String path) {
+        this(path, Platform::runLater);
+    }
+
+    ImagePyramid(String path, Executor fxThread) {
+        this.path = path;
+        this.url = new File(path).toURI().toString();
+        this.fxThread = fxThread;
+    }
+
+    public static ImagePyramid forFile(String path) {
+        return pyramids.computeIfAbsent(path, ImagePyramid::new);
+    }
+
+    // Прив'язує ImageView до піраміди: рівень оновлюється при зміні розміру елемента та масштабу батька
+    public void bind(ImageView imageView) {
+        if (imageView.getProperties().containsKey(BINDING_KEY)) {
+            return;
+        }
+        Binding binding = new Binding(imageView);
+        imageView.getProperties().put(BINDING_KEY, binding);
+        boundViews.add(imageView);
+        if (imageView.getImage() == null) {
+            imageView.setImage(LOADING);
+        }
+        binding.update();
+    }
+
+    // Поки експорт знімком активний, рівні вибираються за масштабом експорту і розкодовуються одразу;
+    // 0 повертає звичайний режим
+    public static void setExportScale(double scale) {
+        exportScale = scale;
+        for (ImageView imageView : new ArrayList<>(boundViews)) {
+            ((Binding) imageView.getProperties().get(BINDING_KEY)).update();
+        }
+    }
+
+    private void requestHeader(Binding binding) {
+        if (!waiting.contains(binding)) {
+            waiting.add(binding);
+        }
+        if (headerRequested) {
+            return;
+        }
+        headerRequested = true;
+        // Розмір стає видимим прив'язкам лише в потоці JavaFX, разом з оновленням тих, що чекають
+        headerReader.execute(() -> {
+            int size = readSourceSize();
+            fxThread.execute(() -> {
+                if (sourceSize == 0) {
+                    sourceSize = size;
+                }
+                List<Binding> ready = new ArrayList<>(waiting);
+                waiting.clear();
+                ready.forEach(Binding::update);
+            });
+        });
+    }
+
+    private int readSourceSize() {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(path))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(input, true, true);
+                    return Math.max(reader.getWidth(0), reader.getHeight(0));
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return MAX_LEVEL; // формат невідомий — обмежуємося найбільшим рівнем
+    }
+
+    // Найменший рівень (степінь двійки від MIN_LEVEL), не менший за потрібний розмір
+    private int levelFor(double pixels) {
+        int limit = Math.min(sourceSize, MAX_LEVEL);
+        int level = MIN_LEVEL;
+        while (level < pixels && level < limit) {
+            level *= 2;
+        }
+        return Math.min(level, limit);
+    }
+
+    Image loadLevel(int level, boolean background) {
+        Image image = ElementFactory.getImageCache().get(url, level, level,
+                () -> new Image(url, level, level, true, true, background));
+        if (!background && image.getProgress() < 1) {
+            // У кеші ще розкодовується фонова копія, а експорту потрібне готове зображення
+            image = new Image(url, level, level, true, true, false);
+        }
+        return image;
+    }
+
+    private static Image createLoadingImage() {
+        WritableImage image = new WritableImage(1, 1);
+        image.getPixelWriter().setColor(0, 0, Color.gray(0.93));
+        return image;
+    }
+
+    private final class Binding {
+        private final ImageView imageView;
+        private final InvalidationListener scaleListener = obs -> update();
+        private int shownLevel;
+        private int requestedLevel;
+
+        private Binding(ImageView imageView) {
+            this.imageView = imageView;
+            InvalidationListener sizeListener = obs -> update();
+            imageView.fitWidthProperty().addListener(sizeListener);
+            imageView.fitHeightProperty().addListener(sizeListener);
+            imageView.parentProperty().addListener((obs, oldParent, newParent) -> {
+                if (oldParent != null) {
+                    oldParent.scaleXProperty().removeListener(scaleListener);
+                }
+                if (newParent != null) {
+                    newParent.scaleXProperty().addListener(scaleListener);
+                    update();
+                }
+            });
+            if (imageView.getParent() != null) {
+                imageView.getParent().scaleXProperty().addListener(scaleListener);
+            }
+        }
+
+        private void update() {
+            if (sourceSize == 0 && exportScale > 0) {
+                sourceSize = readSourceSize();
+            } else if (sourceSize == 0) {
+                requestHeader(this);
+                return;
+            }
+            // Повний масштаб до сцени: під час перетягування батьком стає DragLayer без власного масштабу
+            Transform toScene = imageView.getLocalToSceneTransform();
+            double scale = exportScale > 0 ? exportScale : Math.hypot(toScene.getMxx(), toScene.getMyx());
+            double pixels = Math.max(imageView.getFitWidth(), imageView.getFitHeight()) * scale;
+            int level = levelFor(pixels);
+            if (level == shownLevel || level == requestedLevel) {
+                return;
+            }
+            requestedLevel = level;
+
+            Image image = loadLevel(level, exportScale == 0);
+            if (image.getProgress() >= 1) {
+                show(image, level);
+            } else {
+                image.progressProperty().addListener((obs, oldProgress, progress) -> {
+                    if (progress.doubleValue() >= 1 && requestedLevel == level) {
+                        show(image, level);
+                    }
+                });
+            }
+        }
+
+        private void show(Image image, int level) {
+            if (image.isError()) {
+                image.getException().printStackTrace();
+                return;
+            }
+            shownLevel = level;
+            requestedLevel = 0;
+            ElementProjection.showImage(imageView, image);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Пошарове компонування орієнтованого графа (за Сугіямою): розрив циклів, розподіл по шарах,
+// зменшення перетинів барицентричними проходами, призначення координат.
+// Працює лише з масивами, без JavaFX, тож виконується у фоні; широкі шари та підрахунок перетинів
+// між парами шарів розпаралелюються на переданому ForkJoinPool.
+public class LayeredLayout {
+    private static final double LAYER_GAP = 60;
+    private static final double NODE_GAP = 30;
+    private static final double DUMMY_WIDTH = 10;
+    private static final int MAX_SWEEPS = 12;
+    private static final int PLACEMENT_PASSES = 4;
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final int INDEX_BITS = 24;
+
+    private final ForkJoinPool pool;
+
+    public LayeredLayout(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Вузли (фігури з розмірами) та ребра між ними за індексами вузлів; origin — лівий верхній кут результату
+    public static final class Graph {
+        final long[] nodeIds;
+        final double[] widths;
+        final double[] heights;
+        final long[] edgeIds;
+        final int[] sources;
+        final int[] targets;
+        final double originX;
+        final double originY;
+
+        public Graph(long[] nodeIds, double[] widths, double[] heights,
+                     long[] edgeIds, int[] sources, int[] targets, double originX, double originY) {
+            this.nodeIds = nodeIds;
+            this.widths = widths;
+            this.heights = heights;
+            this.edgeIds = edgeIds;
+            this.sources = sources;
+            this.targets = targets;
+            this.originX = originX;
+            this.originY = originY;
+        }
+
+        public int size() {
+            return nodeIds.length;
+        }
+
+        public int edgeCount() {
+            return edgeIds.length;
+        }
+    }
+
+    // Лівий верхній кут кожного вузла та проміжні точки кожного ребра від початку до кінця (x, y, x, y...)
+    public static final class Result {
+        private final double[] x;
+        private final double[] y;
+        private final double[][] bends;
+        private final long crossings;
+
+        private Result(double[] x, double[] y, double[][] bends, long crossings) {
+            this.x = x;
+            this.y = y;
+            this.bends = bends;
+            this.crossings = crossings;
+        }
+
+        public double getX(int node) {
+            return x[node];
+        }
+
+        public double getY(int node) {
+            return y[node];
+        }
+
+        public double[] getBends(int edge) {
+            return bends[edge];
+        }
+
+        public long getCrossings() {
+            return crossings;
+        }
+    }
+
+    public Result layout(Graph graph) {
+        return pool.submit(() -> compute(graph)).join();
+    }
+
+    private Result compute(Graph graph) {
+        int n = graph.size();
+        int m = graph.edgeCount();
+
+        // Ребра, що замикають цикли, розвертаються; петлі не беруть участі
+        boolean[] reversed = breakCycles(n, graph.sources, graph.targets);
+        int[] from = new int[m];
+        int[] to = new int[m];
+        for (int e = 0; e < m; e++) {
+            int source = graph.sources[e];
+            int target = graph.targets[e];
+            if (source == target) {
+                from[e] = to[e] = -1;
+            } else {
+                from[e] = reversed[e] ? target : source;
+                to[e] = reversed[e] ? source : target;
+            }
+        }
+        int[] layer = assignLayers(n, from, to);
+
+        // Довгі ребра розбиваються фіктивними вузлами, по одному на кожен проміжний шар
+        int segmentCount = 0;
+        int dummyCount = 0;
+        for (int e = 0; e < m; e++) {
+            if (from[e] >= 0) {
+                int span = layer[to[e]] - layer[from[e]];
+                segmentCount += span;
+                dummyCount += span - 1;
+            }
+        }
+        int total = n + dummyCount;
+        int[] nodeLayer = Arrays.copyOf(layer, total);
+        int[] upper = new int[segmentCount];
+        int[] lower = new int[segmentCount];
+        int[][] chains = new int[m][];
+        int nextDummy = n;
+        int segment = 0;
+        for (int e = 0; e < m; e++) {
+            if (from[e] < 0) {
+                chains[e] = new int[0];
+                continue;
+            }
+            int span = layer[to[e]] - layer[from[e]];
+            int[] chain = new int[span - 1];
+            int previous = from[e];
+            for (int k = 0; k < chain.length; k++) {
+                int dummy = nextDummy++;
+                nodeLayer[dummy] = layer[from[e]] + k + 1;
+                chain[k] = dummy;
+                upper[segment] = previous;
+                lower[segment++] = dummy;
+                previous = dummy;
+            }
+            upper[segment] = previous;
+            lower[segment++] = to[e];
+            chains[e] = chain;
+        }
+        int[] upStart = offsets(total, lower, segmentCount);
+        int[] upList = neighbours(upStart, lower, upper, segmentCount);
+        int[] downStart = offsets(total, upper, segmentCount);
+        int[] downList = neighbours(downStart, upper, lower, segmentCount);
+
+        int layerCount = 0;
+        for (int v = 0; v < total; v++) {
+            layerCount = Math.max(layerCount, nodeLayer[v] + 1);
+        }
+        int[] layerStart = offsets(layerCount, nodeLayer, total);
+        int[] byLayer = neighbours(layerStart, nodeLayer, identity(total), total);
+        int[][] order = new int[layerCount][];
+        int[] pos = new int[total];
+        for (int l = 0; l < layerCount; l++) {
+            order[l] = Arrays.copyOfRange(byLayer, layerStart[l], layerStart[l + 1]);
+            updatePositions(order[l], pos);
+        }
+
+        long crossings = minimizeCrossings(order, pos, upStart, upList, downStart, downList);
+
+        double[] width = new double[total];
+        double[] height = new double[total];
+        for (int v = 0; v < total; v++) {
+            width[v] = v < n ? graph.widths[v] : DUMMY_WIDTH;
+            height[v] = v < n ? graph.heights[v] : 0;
+        }
+        double[] layerTop = new double[layerCount];
+        double[] layerHeight = new double[layerCount];
+        for (int v = 0; v < total; v++) {
+            layerHeight[nodeLayer[v]] = Math.max(layerHeight[nodeLayer[v]], height[v]);
+        }
+        for (int l = 1; l < layerCount; l++) {
+            layerTop[l] = layerTop[l - 1] + layerHeight[l - 1] + LAYER_GAP;
+        }
+        double[] centerX = assignX(order, width, upStart, upList, downStart, downList);
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = graph.originX + centerX[v] - width[v] / 2;
+            y[v] = graph.originY + layerTop[layer[v]] + (layerHeight[layer[v]] - height[v]) / 2;
+        }
+        double[][] bends = new double[m][];
+        for (int e = 0; e < m; e++) {
+            int[] chain = chains[e];
+            double[] points = new double[chain.length * 2];
+            for (int k = 0; k < chain.length; k++) {
+                int dummy = chain[reversed[e] ? chain.length - 1 - k : k];
+                int l = nodeLayer[dummy];
+                points[k * 2] = graph.originX + centerX[dummy];
+                points[k * 2 + 1] = graph.originY + layerTop[l] + layerHeight[l] / 2;
+            }
+            bends[e] = points;
+        }
+        return new Result(x, y, bends, crossings);
+    }
+
+    // Ітеративний пошук у глибину: ребро до вузла, що ще на стеку, замикає цикл
+    private static boolean[] breakCycles(int n, int[] sources, int[] targets) {
+        int m = sources.length;
+        int[] start = offsets(n, sources, m);
+        int[] edges = neighbours(start, sources, identity(m), m);
+        byte[] state = new byte[n];
+        int[] stackNode = new int[n];
+        int[] stackNext = new int[n];
+        boolean[] reversed = new boolean[m];
+        for (int root = 0; root < n; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int top = 0;
+            stackNode[0] = root;
+            stackNext[0] = start[root];
+            state[root] = 1;
+            while (top >= 0) {
+                int node = stackNode[top];
+                if (stackNext[top] == start[node + 1]) {
+                    state[node] = 2;
+                    top--;
+                    continue;
+                }
+                int e = edges[stackNext[top]++];
+                int next = targets[e];
+                if (state[next] == 1) {
+                    reversed[e] = true;
+                } else if (state[next] == 0) {
+                    state[next] = 1;
+                    top++;
+                    stackNode[top] = next;
+                    stackNext[top] = start[next];
+                }
+            }
+        }
+        return reversed;
+    }
+
+    // Найдовший шлях: вузол стоїть на шар нижче за найглибшого з попередників
+    private static int[] assignLayers(int n, int[] from, int[] to) {
+        int m = from.length;
+        int[] indegree = new int[n];
+        int[] keys = new int[m];
+        int[] valid = new int[m];
+        int count = 0;
+        for (int e = 0; e < m; e++) {
+            if (from[e] >= 0) {
+                indegree[to[e]]++;
+                keys[count] = from[e];
+                valid[count++] = e;
+            }
+        }
+        int[] start = offsets(n, keys, count);
+        int[] edges = neighbours(start, keys, valid, count);
+
+        int[] layer = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (indegree[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int k = start[v]; k < start[v + 1]; k++) {
+                int w = to[edges[k]];
+                layer[w] = Math.max(layer[w], layer[v] + 1);
+                if (--indegree[w] == 0) {
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return layer;
+    }
+
+    // Прохід вниз і вгору за барицентрами сусідів; зберігається порядок з найменшою кількістю перетинів
+    private long minimizeCrossings(int[][] order, int[] pos, int[] upStart, int[] upList, int[] downStart, int[] downList) {
+        long best = countCrossings(order, pos, downStart, downList);
+        int[][] bestOrder = copy(order);
+        int stale = 0;
+        for (int sweep = 0; sweep < MAX_SWEEPS && best > 0 && stale < 2; sweep++) {
+            for (int l = 1; l < order.length; l++) {
+                reorder(order[l], order[l - 1].length, pos, upStart, upList);
+            }
+            for (int l = order.length - 2; l >= 0; l--) {
+                reorder(order[l], order[l + 1].length, pos, downStart, downList);
+            }
+            long crossings = countCrossings(order, pos, downStart, downList);
+            if (crossings < best) {
+                best = crossings;
+                bestOrder = copy(order);
+                stale = 0;
+            } else {
+                stale++;
+            }
+        }
+        for (int l = 0; l < order.length; l++) {
+            order[l] = bestOrder[l];
+            updatePositions(order[l], pos);
+        }
+        return best;
+    }
+
+    // Ключ сортування: барицентр у старших бітах, поточна позиція — в молодших, тож рівні зберігають порядок
+    private static void reorder(int[] nodes, int adjacentSize, int[] pos, int[] start, int[] list) {
+        int size = nodes.length;
+        long[] keys = new long[size];
+        double scale = size > 1 ? (double) adjacentSize / size : 0;
+        forEach(size, i -> {
+            int v = nodes[i];
+            int a = start[v];
+            int b = start[v + 1];
+            double barycenter;
+            if (a == b) {
+                barycenter = i * scale;
+            } else {
+                long sum = 0;
+                for (int k = a; k < b; k++) {
+                    sum += pos[list[k]];
+                }
+                barycenter = (double) sum / (b - a);
+            }
+            keys[i] = ((long) (barycenter * 16) << INDEX_BITS) | i;
+        });
+        Arrays.sort(keys);
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = nodes[(int) (keys[i] & ((1 << INDEX_BITS) - 1))];
+        }
+        System.arraycopy(sorted, 0, nodes, 0, size);
+        updatePositions(nodes, pos);
+    }
+
+    // Пари сусідніх шарів незалежні, тож рахуються паралельно
+    private static long countCrossings(int[][] order, int[] pos, int[] downStart, int[] downList) {
+        return IntStream.range(0, Math.max(0, order.length - 1)).parallel()
+                .mapToLong(l -> crossings(order[l], order[l + 1].length, pos, downStart, downList))
+                .sum();
+    }
+
+    // Перетини між двома шарами як кількість інверсій нижніх кінців у дереві Фенвіка
+    private static long crossings(int[] upperNodes, int lowerSize, int[] pos, int[] downStart, int[] downList) {
+        long[] tree = new long[lowerSize + 1];
+        long count = 0;
+        long seen = 0;
+        for (int v : upperNodes) {
+            int a = downStart[v];
+            int b = downStart[v + 1];
+            int[] ends = new int[b - a];
+            for (int k = a; k < b; k++) {
+                ends[k - a] = pos[downList[k]];
+            }
+            Arrays.sort(ends);
+            for (int end : ends) {
+                long notGreater = 0;
+                for (int i = end + 1; i > 0; i -= i & -i) {
+                    notGreater += tree[i];
+                }
+                count += seen - notGreater;
+                for (int i = end + 1; i <= lowerSize; i += i & -i) {
+                    tree[i]++;
+                }
+                seen++;
+            }
+        }
+        return count;
+    }
+
+    // Центри вузлів тягнуться до середнього сусідів, зберігаючи порядок і відступи в шарі
+    private static double[] assignX(int[][] order, double[] width, int[] upStart, int[] upList, int[] downStart, int[] downList) {
+        double[] centerX = new double[width.length];
+        for (int[] nodes : order) {
+            double x = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                if (i > 0) {
+                    x += (width[nodes[i - 1]] + width[nodes[i]]) / 2 + NODE_GAP;
+                }
+                centerX[nodes[i]] = x;
+            }
+        }
+        for (int pass = 0; pass < PLACEMENT_PASSES; pass++) {
+            for (int l = 1; l < order.length; l++) {
+                place(order[l], width, centerX, upStart, upList);
+            }
+            for (int l = order.length - 2; l >= 0; l--) {
+                place(order[l], width, centerX, downStart, downList);
+            }
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < width.length; v++) {
+            minX = Math.min(minX, centerX[v] - width[v] / 2);
+        }
+        for (int v = 0; v < width.length; v++) {
+            centerX[v] -= minX;
+        }
+        return centerX;
+    }
+
+    // Найближчі до бажаних положення з дотриманням порядку: після віднімання мінімальних відступів
+    // задача зводиться до ізотонної регресії, яку розв'язує злиття сусідніх порушників (PAV)
+    private static void place(int[] nodes, double[] width, double[] centerX, int[] start, int[] list) {
+        int size = nodes.length;
+        double[] offset = new double[size];
+        double[] target = new double[size];
+        forEach(size, i -> {
+            int v = nodes[i];
+            int a = start[v];
+            int b = start[v + 1];
+            double desired = centerX[v];
+            if (a < b) {
+                double sum = 0;
+                for (int k = a; k < b; k++) {
+                    sum += centerX[list[k]];
+                }
+                desired = sum / (b - a);
+            }
+            target[i] = desired;
+        });
+        for (int i = 1; i < size; i++) {
+            offset[i] = offset[i - 1] + (width[nodes[i - 1]] + width[nodes[i]]) / 2 + NODE_GAP;
+        }
+
+        double[] blockSum = new double[size];
+        int[] blockCount = new int[size];
+        int blocks = 0;
+        for (int i = 0; i < size; i++) {
+            blockSum[blocks] = target[i] - offset[i];
+            blockCount[blocks] = 1;
+            blocks++;
+            while (blocks > 1 && blockSum[blocks - 2] / blockCount[blocks - 2] > blockSum[blocks - 1] / blockCount[blocks - 1]) {
+                blockSum[blocks - 2] += blockSum[blocks - 1];
+                blockCount[blocks - 2] += blockCount[blocks - 1];
+                blocks--;
+            }
+        }
+        int i = 0;
+        for (int block = 0; block < blocks; block++) {
+            double value = blockSum[block] / blockCount[block];
+            for (int k = 0; k < blockCount[block]; k++, i++) {
+                centerX[nodes[i]] = value + offset[i];
+            }
+        }
+    }
+
+    private static void forEach(int size, IntConsumer action) {
+        if (size >= PARALLEL_THRESHOLD) {
+            IntStream.range(0, size).parallel().forEach(action);
+        } else {
+            for (int i = 0; i < size; i++) {
+                action.accept(i);
+            }
+        }
+    }
+
+    private static void updatePositions(int[] nodes, int[] pos) {
+        for (int i = 0; i < nodes.length; i++) {
+            pos[nodes[i]] = i;
+        }
+    }
+
+    private static int[][] copy(int[][] order) {
+        int[][] copy = new int[order.length][];
+        for (int l = 0; l < order.length; l++) {
+            copy[l] = order[l].clone();
+        }
+        return copy;
+    }
+
+    private static int[] identity(int n) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+
+    // Початки груп у стиснутому поданні: keys[i] — номер групи (0..groups-1) для перших count записів
+    private static int[] offsets(int groups, int[] keys, int count) {
+        int[] start = new int[groups + 1];
+        for (int i = 0; i < count; i++) {
+            start[keys[i] + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            start[g + 1] += start[g];
+        }
+        return start;
+    }
+
+    // Значення values, розкладені за групами keys у межах offsets
+    private static int[] neighbours(int[] start, int[] keys, int[] values, int count) {
+        int[] fill = Arrays.copyOf(start, start.length - 1);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[fill[keys[i]]++] = values[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+
+import java.util.List;
+
+// Перехід до нового компонування: фігури вже мають нову геометрію, а зсув translate від старих
+// положень згасає до нуля; з'єднання, одразу прокладені по-новому, тим часом проявляються
+class LayoutAnimation extends AnimationTimer {
+    private static final long DURATION_NANOS = 400_000_000L;
+
+    private final List<Node> nodes;
+    private final double[] shiftX;
+    private final double[] shiftY;
+    private final List<Node> connectors;
+    private long startTime = -1;
+
+    LayoutAnimation(List<Node> nodes, double[] shiftX, double[] shiftY, List<Node> connectors) {
+        this.nodes = nodes;
+        this.shiftX = shiftX;
+        this.shiftY = shiftY;
+        this.connectors = connectors;
+        apply(0);
+    }
+
+    @Override
+    public void handle(long now) {
+        if (startTime < 0) {
+            startTime = now;
+        }
+        double t = Math.min(1, (double) (now - startTime) / DURATION_NANOS);
+        apply(t);
+        if (t >= 1) {
+            stop();
+        }
+    }
+
+    private void apply(double t) {
+        double remaining = (1 - t) * (1 - t) * (1 - t);
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).setTranslateX(shiftX[i] * remaining);
+            nodes.get(i).setTranslateY(shiftY[i] * remaining);
+        }
+        for (Node connector : connectors) {
+            connector.setOpacity(t);
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.example.myflowcharteditor.model;
+
+import com.example.myflowcharteditor.utillity.QuadTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Ортогональне трасування з'єднань в обхід фігур.
+// Маршрут шукається A* по розрідженій сітці видимості: лінії сітки проходять по краях перешкод
+// (з відступом) і через кінці з'єднання, тож розмір сітки залежить лише від перешкод поблизу.
+// Перешкоди та готові маршрути лежать у квадродеревах; маршрут перераховується, лише коли
+// змінилися його кінці або перешкода поруч зі шляхом.
+public class OrthogonalRouter {
+    private static final double WORLD_EXTENT = 1 << 17;
+    private static final double MARGIN = 10;
+    private static final double BEND_PENALTY = 30;
+    private static final int MAX_CELLS = 1 << 20;
+    private static final int ATTEMPTS = 4;
+
+    private final Map<Long, Obstacle> obstaclesById = new HashMap<>();
+    private final QuadTree<Obstacle> obstacles = new QuadTree<>(-WORLD_EXTENT, -WORLD_EXTENT, WORLD_EXTENT, WORLD_EXTENT);
+    private final Map<Long, Route> routesById = new HashMap<>();
+    private final QuadTree<Route> routes = new QuadTree<>(-WORLD_EXTENT, -WORLD_EXTENT, WORLD_EXTENT, WORLD_EXTENT);
+    private int generation;
+    private int computedCount;
+
+    // Синхронізація перешкод: перешкоди, не передані між beginSync та endSync, вилучаються
+    public void beginSync() {
+        generation++;
+    }
+
+    public void endSync() {
+        List<Long> stale = new ArrayList<>();
+        for (Obstacle obstacle : obstaclesById.values()) {
+            if (obstacle.generation != generation) {
+                stale.add(obstacle.id);
+            }
+        }
+        stale.forEach(this::removeObstacle);
+    }
+
+    public void setObstacle(long id, double minX, double minY, double maxX, double maxY) {
+        Obstacle obstacle = obstaclesById.get(id);
+        if (obstacle == null) {
+            obstacle = new Obstacle(id);
+            obstaclesById.put(id, obstacle);
+        } else if (obstacle.minX == minX && obstacle.minY == minY && obstacle.maxX == maxX && obstacle.maxY == maxY) {
+            obstacle.generation = generation;
+            return;
+        } else {
+            invalidateNear(obstacle.minX, obstacle.minY, obstacle.maxX, obstacle.maxY);
+        }
+        obstacle.generation = generation;
+        obstacle.minX = minX;
+        obstacle.minY = minY;
+        obstacle.maxX = maxX;
+        obstacle.maxY = maxY;
+        obstacles.insert(obstacle, minX, minY, maxX, maxY);
+        invalidateNear(minX, minY, maxX, maxY);
+    }
+
+    public void removeObstacle(long id) {
+        Obstacle obstacle = obstaclesById.remove(id);
+        if (obstacle != null) {
+            obstacles.remove(obstacle);
+            invalidateNear(obstacle.minX, obstacle.minY, obstacle.maxX, obstacle.maxY);
+        }
+    }
+
+    public int getComputedCount() {
+        return computedCount;
+    }
+
+    // Маршрути для з'єднань ids з кінцями endpoints (sx, sy, tx, ty на кожне).
+    // Недійсні маршрути рахуються паралельно; маршрути інших з'єднань забуваються.
+    public double[][] routeAll(long[] ids, double[] endpoints) {
+        double[][] result = new double[ids.length][];
+        List<Integer> missing = new ArrayList<>();
+        Set<Long> requested = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            requested.add(ids[i]);
+            Route route = routesById.get(ids[i]);
+            int e = i * 4;
+            if (route != null && route.valid && route.matches(endpoints[e], endpoints[e + 1], endpoints[e + 2], endpoints[e + 3])) {
+                result[i] = route.points;
+            } else {
+                missing.add(i);
+            }
+        }
+
+        // Пошук лише читає дерево перешкод, тож маршрути незалежні між собою
+        int[] indices = missing.stream().mapToInt(Integer::intValue).toArray();
+        double[][] computed = new double[indices.length][];
+        IntStream.range(0, indices.length).parallel().forEach(k -> {
+            int e = indices[k] * 4;
+            computed[k] = compute(endpoints[e], endpoints[e + 1], endpoints[e + 2], endpoints[e + 3]);
+        });
+        for (int k = 0; k < indices.length; k++) {
+            int i = indices[k];
+            int e = i * 4;
+            store(ids[i], endpoints[e], endpoints[e + 1], endpoints[e + 2], endpoints[e + 3], computed[k]);
+            result[i] = computed[k];
+        }
+        computedCount += indices.length;
+
+        List<Long> forgotten = new ArrayList<>();
+        for (Long id : routesById.keySet()) {
+            if (!requested.contains(id)) {
+                forgotten.add(id);
+            }
+        }
+        for (Long id : forgotten) {
+            routes.remove(routesById.remove(id));
+        }
+        return result;
+    }
+
+    private void store(long id, double sx, double sy, double tx, double ty, double[] points) {
+        Route route = routesById.computeIfAbsent(id, key -> new Route());
+        route.sx = sx;
+        route.sy = sy;
+        route.tx = tx;
+        route.ty = ty;
+        route.points = points;
+        route.valid = true;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.length; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxY = Math.max(maxY, points[i + 1]);
+        }
+        routes.insert(route, minX, minY, maxX, maxY);
+    }
+
+    // Маршрут, що проходить поруч із прямокутником, міг огинати його — такий маршрут недійсний
+    private void invalidateNear(double minX, double minY, double maxX, double maxY) {
+        double qMinX = minX - 2 * MARGIN, qMinY = minY - 2 * MARGIN;
+        double qMaxX = maxX + 2 * MARGIN, qMaxY = maxY + 2 * MARGIN;
+        routes.query(qMinX, qMinY, qMaxX, qMaxY, route -> {
+            if (route.valid && route.crosses(qMinX, qMinY, qMaxX, qMaxY)) {
+                route.valid = false;
+            }
+        });
+    }
+
+    private double[] compute(double sx, double sy, double tx, double ty) {
+        // Спершу вузький коридор навколо кінців; область розширюється, лише якщо шляху немає
+        double pad = 8 * MARGIN;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            double[] points = search(sx, sy, tx, ty,
+                    Math.min(sx, tx) - pad, Math.min(sy, ty) - pad, Math.max(sx, tx) + pad, Math.max(sy, ty) + pad);
+            if (points != null) {
+                return points;
+            }
+            pad *= 3;
+        }
+        // Обійти не вдалося: простий Z-подібний маршрут
+        double midX = (sx + tx) / 2;
+        return simplify(new double[]{sx, sy, midX, sy, midX, ty, tx, ty});
+    }
+
+    private double[] search(double sx, double sy, double tx, double ty,
+                            double minX, double minY, double maxX, double maxY) {
+        List<double[]> boxes = new ArrayList<>();
+        obstacles.query(minX - MARGIN, minY - MARGIN, maxX + MARGIN, maxY + MARGIN, obstacle -> {
+            // Кінець усередині фігури: фігура не заважає. Кінець на краю: без відступу, щоб з нього можна було вийти
+            if (obstacle.strictlyContains(sx, sy) || obstacle.strictlyContains(tx, ty)) {
+                return;
+            }
+            double margin = obstacle.withinMargin(sx, sy) || obstacle.withinMargin(tx, ty) ? 0 : MARGIN;
+            boxes.add(new double[]{obstacle.minX - margin, obstacle.minY - margin, obstacle.maxX + margin, obstacle.maxY + margin});
+        });
+
+        double[] xs = axis(boxes, 0, sx, tx, minX, maxX);
+        double[] ys = axis(boxes, 1, sy, ty, minY, maxY);
+        int nx = xs.length;
+        int ny = ys.length;
+        if ((long) nx * ny > MAX_CELLS) {
+            return null;
+        }
+
+        // Заблоковані відрізки сітки: різницеві масиви, потім префіксні суми
+        int[] horizontal = new int[(nx + 1) * (ny + 1)];
+        int[] vertical = new int[(nx + 1) * (ny + 1)];
+        // Перешкода, що виходить за межі області, блокує і межу області з того боку
+        for (double[] box : boxes) {
+            int a = box[0] < minX ? -1 : index(xs, box[0]);
+            int b = box[2] > maxX ? nx : index(xs, box[2]);
+            int c = box[1] < minY ? -1 : index(ys, box[1]);
+            int d = box[3] > maxY ? ny : index(ys, box[3]);
+            mark(horizontal, nx, ny, a, b - 1, c + 1, d - 1);
+            mark(vertical, nx, ny, a + 1, b - 1, c, d - 1);
+        }
+        prefix(horizontal, nx, ny);
+        prefix(vertical, nx, ny);
+
+        int start = index(xs, sx) + index(ys, sy) * nx;
+        int goalI = index(xs, tx);
+        int goalJ = index(ys, ty);
+
+        int states = nx * ny * 4;
+        double[] cost = new double[states];
+        int[] parent = new int[states];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        Heap heap = new Heap();
+        for (int dir = 0; dir < 4; dir++) {
+            cost[start * 4 + dir] = 0;
+            parent[start * 4 + dir] = -1;
+            heap.push(start * 4 + dir, Math.abs(tx - sx) + Math.abs(ty - sy));
+        }
+
+        int found = -1;
+        while (!heap.isEmpty()) {
+            double key = heap.topKey();
+            int state = heap.pop();
+            int cell = state >> 2;
+            int dir = state & 3;
+            int i = cell % nx;
+            int j = cell / nx;
+            double g = cost[state];
+            if (key > g + Math.abs(tx - xs[i]) + Math.abs(ty - ys[j]) + 1e-9) {
+                continue;
+            }
+            if (i == goalI && j == goalJ) {
+                found = state;
+                break;
+            }
+            for (int next = 0; next < 4; next++) {
+                if ((next ^ 1) == dir) {
+                    continue;
+                }
+                int ni = i, nj = j;
+                boolean blocked;
+                switch (next) {
+                    case 0 -> {
+                        ni = i + 1;
+                        blocked = ni >= nx || horizontal[j * (nx + 1) + i] > 0;
+                    }
+                    case 1 -> {
+                        ni = i - 1;
+                        blocked = ni < 0 || horizontal[j * (nx + 1) + ni] > 0;
+                    }
+                    case 2 -> {
+                        nj = j + 1;
+                        blocked = nj >= ny || vertical[j * (nx + 1) + i] > 0;
+                    }
+                    default -> {
+                        nj = j - 1;
+                        blocked = nj < 0 || vertical[nj * (nx + 1) + i] > 0;
+                    }
+                }
+                if (blocked) {
+                    continue;
+                }
+                double step = Math.abs(xs[ni] - xs[i]) + Math.abs(ys[nj] - ys[j]);
+                double nextCost = g + step + (next != dir && parent[state] != -1 ? BEND_PENALTY : 0);
+                int nextState = (nj * nx + ni) * 4 + next;
+                if (nextCost < cost[nextState]) {
+                    cost[nextState] = nextCost;
+                    parent[nextState] = state;
+                    heap.push(nextState, nextCost + Math.abs(tx - xs[ni]) + Math.abs(ty - ys[nj]));
+                }
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+
+        List<double[]> path = new ArrayList<>();
+        for (int state = found; state != -1; state = parent[state]) {
+            int cell = state >> 2;
+            path.add(new double[]{xs[cell % nx], ys[cell / nx]});
+        }
+        double[] points = new double[path.size() * 2];
+        for (int k = 0; k < path.size(); k++) {
+            double[] point = path.get(path.size() - 1 - k);
+            points[k * 2] = point[0];
+            points[k * 2 + 1] = point[1];
+        }
+        return simplify(points);
+    }
+
+    // Координати ліній сітки вздовж однієї осі
+    private static double[] axis(List<double[]> boxes, int offset, double s, double t, double min, double max) {
+        double[] values = new double[boxes.size() * 2 + 4];
+        int count = 0;
+        values[count++] = s;
+        values[count++] = t;
+        values[count++] = min;
+        values[count++] = max;
+        for (double[] box : boxes) {
+            double low = box[offset];
+            double high = box[offset + 2];
+            if (low > min && low < max) {
+                values[count++] = low;
+            }
+            if (high > min && high < max) {
+                values[count++] = high;
+            }
+        }
+        Arrays.sort(values, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, unique);
+    }
+
+    private static int index(double[] axis, double value) {
+        int index = Arrays.binarySearch(axis, value);
+        return index >= 0 ? index : Math.min(axis.length - 1, -index - 1);
+    }
+
+    private static void mark(int[] diff, int nx, int ny, int i0, int i1, int j0, int j1) {
+        i0 = Math.max(i0, 0);
+        j0 = Math.max(j0, 0);
+        i1 = Math.min(i1, nx - 1);
+        j1 = Math.min(j1, ny - 1);
+        if (i0 > i1 || j0 > j1) {
+            return;
+        }
+        int stride = nx + 1;
+        diff[j0 * stride + i0]++;
+        diff[j0 * stride + i1 + 1]--;
+        diff[(j1 + 1) * stride + i0]--;
+        diff[(j1 + 1) * stride + i1 + 1]++;
+    }
+
+    private static void prefix(int[] diff, int nx, int ny) {
+        int stride = nx + 1;
+        for (int j = 0; j <= ny; j++) {
+            for (int i = 0; i <= nx; i++) {
+                int value = diff[j * stride + i];
+                if (i > 0) {
+                    value += diff[j * stride + i - 1];
+                }
+                if (j > 0) {
+                    value += diff[(j - 1) * stride + i];
+                }
+                if (i > 0 && j > 0) {
+                    value -= diff[(j - 1) * stride + i - 1];
+                }
+                diff[j * stride + i] = value;
+            }
+        }
+    }
+
+    // Прибирає проміжні точки на прямих відрізках
+    private static double[] simplify(double[] points) {
+        double[] result = new double[points.length];
+        int count = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            double x = points[i];
+            double y = points[i + 1];
+            if (count >= 2 && result[count - 2] == x && result[count - 1] == y) {
+                continue;
+            }
+            if (count >= 4) {
+                double px = result[count - 4], py = result[count - 3];
+                double mx = result[count - 2], my = result[count - 1];
+                if ((px == mx && mx == x) || (py == my && my == y)) {
+                    result[count - 2] = x;
+                    result[count - 1] = y;
+                    continue;
+                }
+            }
+            result[count++] = x;
+            result[count++] = y;
+        }
+        if (count < 4) {
+            return new double[]{points[0], points[1], points[points.length - 2], points[points.length - 1]};
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static final class Obstacle {
+        private final long id;
+        private double minX, minY, maxX, maxY;
+        private int generation;
+
+        private Obstacle(long id) {
+            this.id = id;
+        }
+
+        private boolean strictlyContains(double x, double y) {
+            return x > minX && x < maxX && y > minY && y < maxY;
+        }
+
+        private boolean withinMargin(double x, double y) {
+            return x > minX - MARGIN && x < maxX + MARGIN && y > minY - MARGIN && y < maxY + MARGIN;
+        }
+    }
+
+    private static final class Route {
+        private double sx, sy, tx, ty;
+        private double[] points;
+        private boolean valid;
+
+        private boolean matches(double sx, double sy, double tx, double ty) {
+            return this.sx == sx && this.sy == sy && this.tx == tx && this.ty == ty;
+        }
+
+        private boolean crosses(double minX, double minY, double maxX, double maxY) {
+            for (int i = 0; i + 3 < points.length; i += 2) {
+                double x0 = Math.min(points[i], points[i + 2]), x1 = Math.max(points[i], points[i + 2]);
+                double y0 = Math.min(points[i + 1], points[i + 3]), y1 = Math.max(points[i + 1], points[i + 3]);
+                if (x0 <= maxX && x1 >= minX && y0 <= maxY && y1 >= minY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Двійкова купа станів за пріоритетом; застарілі записи відкидаються при вийманні
+    private static final class Heap {
+        private int[] states = new int[256];
+        private double[] keys = new double[256];
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private double topKey() {
+            return keys[0];
+        }
+
+        private void push(int state, double key) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int up = (i - 1) / 2;
+                if (keys[up] <= key) {
+                    break;
+                }
+                states[i] = states[up];
+                keys[i] = keys[up];
+                i = up;
+            }
+            states[i] = state;
+            keys[i] = key;
+        }
+
+        private int pop() {
+            int top = states[0];
+            int lastState = states[--size];
+            double lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = i * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                states[i] = states[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            states[i] = lastState;
+            keys[i] = lastKey;
+            return top;
+        }
+    }
+}
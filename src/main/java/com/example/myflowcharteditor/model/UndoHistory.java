@@ -0,0 +1,123 @@
+package com.example.myflowcharteditor.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Історія змін для скасування та повторення. Кожен запис — стисла дельта
+// (ідентифікатори елементів і примітивні дані до/після), а не копії вузлів.
+// Обсяг обох стеків обмежено бюджетом, найстаріші записи витісняються першими.
+public class UndoHistory {
+    public interface Edit {
+        void undo();
+
+        void redo();
+
+        long sizeInBytes();
+
+        // Поглинає наступний запис того самого жесту; false, якщо злиття неможливе
+        default boolean merge(Edit next) {
+            return false;
+        }
+    }
+
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    private final long budget;
+    private long size;
+    private boolean gestureOpen = false;
+    private Edit gestureEdit;
+
+    public UndoHistory(long budget) {
+        this.budget = budget;
+    }
+
+    public void record(Edit edit) {
+        clearRedo();
+        Edit top = undoStack.peekLast();
+        if (gestureOpen && top != null && top == gestureEdit) {
+            long before = top.sizeInBytes();
+            if (top.merge(edit)) {
+                size += top.sizeInBytes() - before;
+                trim();
+                return;
+            }
+        }
+        undoStack.addLast(edit);
+        size += edit.sizeInBytes();
+        if (gestureOpen) {
+            gestureEdit = edit;
+        }
+        trim();
+    }
+
+    // Записи одного жесту (напр. кроки перетягування) зливаються в один
+    public void beginGesture() {
+        if (!gestureOpen) {
+            gestureOpen = true;
+            gestureEdit = null;
+        }
+    }
+
+    public void endGesture() {
+        gestureOpen = false;
+        gestureEdit = null;
+    }
+
+    public boolean undo() {
+        endGesture();
+        Edit edit = undoStack.pollLast();
+        if (edit == null) {
+            return false;
+        }
+        edit.undo();
+        redoStack.addLast(edit);
+        return true;
+    }
+
+    public boolean redo() {
+        endGesture();
+        Edit edit = redoStack.pollLast();
+        if (edit == null) {
+            return false;
+        }
+        edit.redo();
+        undoStack.addLast(edit);
+        return true;
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    public long getSizeInBytes() {
+        return size;
+    }
+
+    public int getUndoCount() {
+        return undoStack.size();
+    }
+
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        size = 0;
+        endGesture();
+    }
+
+    private void clearRedo() {
+        for (Edit edit : redoStack) {
+            size -= edit.sizeInBytes();
+        }
+        redoStack.clear();
+    }
+
+    private void trim() {
+        while (size > budget && undoStack.size() > 1) {
+            size -= undoStack.removeFirst().sizeInBytes();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Віртуалізація робочої області: до графа сцени приєднані лише елементи, що перетинають
+// видиму частину з запасом. Решта вузлів живе окремо і повертається при прокручуванні чи масштабуванні.
+// Елементи з маркерами або фокусом не від'єднуються ніколи.
+public class ViewportCuller {
+    private static final double MIN_MARGIN = 256;
+
+    private final Pane workArea;
+    private final ElementIndex elementIndex;
+    private final ToLongFunction<Node> paintOrder;
+    private final Set<Node> elements = new HashSet<>();
+    private final Set<Node> attached = new HashSet<>();
+    private final Set<Node> pendingAttach = new LinkedHashSet<>();
+    private Predicate<Node> pinned = node -> false;
+    private Consumer<Node> onAttach = node -> {
+    };
+    private Supplier<Bounds> visibleBounds = () -> null;
+    private Bounds region;
+    private boolean enabled = true;
+    private boolean outlineMode = false;
+    private boolean refreshPending = false;
+    private boolean frozen = false;
+
+    public ViewportCuller(Pane workArea, ElementIndex elementIndex, ToLongFunction<Node> paintOrder) {
+        this.workArea = workArea;
+        this.elementIndex = elementIndex;
+        this.paintOrder = paintOrder;
+    }
+
+    public void setPinned(Predicate<Node> pinned) {
+        this.pinned = pinned;
+    }
+
+    // Викликається для кожного вузла перед поверненням на сцену
+    public void setOnAttach(Consumer<Node> onAttach) {
+        this.onAttach = onAttach;
+    }
+
+    public void bind(ScrollPane scrollPane, Supplier<Bounds> visibleBounds) {
+        this.visibleBounds = visibleBounds;
+        InvalidationListener listener = obs -> requestRefresh();
+        scrollPane.hvalueProperty().addListener(listener);
+        scrollPane.vvalueProperty().addListener(listener);
+        scrollPane.viewportBoundsProperty().addListener(listener);
+        workArea.widthProperty().addListener(listener);
+        workArea.heightProperty().addListener(listener);
+        workArea.scaleXProperty().addListener(listener);
+        workArea.scaleYProperty().addListener(listener);
+        requestRefresh();
+    }
+
+    // Вимкнення повертає на сцену всі елементи, напр. на час експорту знімком
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        region = null;
+        if (enabled) {
+            requestRefresh();
+        } else {
+            List<Node> missing = new ArrayList<>();
+            for (Node node : elements) {
+                if (!attached.contains(node)) {
+                    missing.add(node);
+                }
+            }
+            update(Set.of(), missing);
+        }
+    }
+
+    // У режимі контурів на сцені лишаються тільки закріплені елементи, решту малює шар контурів
+    public void setOutlineMode(boolean outlineMode) {
+        if (this.outlineMode != outlineMode) {
+            this.outlineMode = outlineMode;
+            region = null;
+            requestRefresh();
+        }
+    }
+
+    // Поки шар перетягування тримає частину вузлів, список дітей робочої області не перебудовується
+    public void setFrozen(boolean frozen) {
+        if (this.frozen != frozen) {
+            this.frozen = frozen;
+            if (!frozen) {
+                region = null;
+                requestRefresh();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isAttached(Node node) {
+        return attached.contains(node);
+    }
+
+    public int getAttachedCount() {
+        return attached.size();
+    }
+
+    // Новий елемент стає на сцену одразу, якщо він у видимій області
+    public void add(Node node) {
+        if (!elements.add(node)) {
+            return;
+        }
+        if (shouldAttach(node)) {
+            onAttach.accept(node);
+            workArea.getChildren().add(node);
+            attached.add(node);
+        }
+    }
+
+    // Пакетне додавання: видимі вузли стають на сцену разом з рештою змін пакета
+    public void addAll(List<Node> nodes, WorkAreaBatch batch) {
+        for (Node node : nodes) {
+            if (elements.add(node) && shouldAttach(node)) {
+                onAttach.accept(node);
+                batch.add(node);
+                attached.add(node);
+            }
+        }
+    }
+
+    private boolean shouldAttach(Node node) {
+        return !enabled || pinned.test(node) || (!outlineMode && (region == null || region.intersects(node.getBoundsInParent())));
+    }
+
+    // Вузол уже прибрано з робочої області моделлю
+    public void remove(Node node) {
+        elements.remove(node);
+        attached.remove(node);
+    }
+
+    // Повертає елемент на сцену, напр. коли для нього створено маркер.
+    // Може викликатися зі слухача змін дітей робочої області, тому виконується відкладено.
+    public void ensureAttached(Node node) {
+        if (elements.contains(node) && !attached.contains(node) && pendingAttach.add(node)) {
+            requestRefresh();
+        }
+    }
+
+    // Межі елемента змінилися без прокручування (скасування, компонування, трасування з'єднань):
+    // від'єднаний елемент, що потрапив у поточну область, повертається на сцену
+    public void boundsChanged(Node node) {
+        if (enabled && !outlineMode && region != null && !attached.contains(node)
+                && region.intersects(node.getBoundsInParent())) {
+            ensureAttached(node);
+        }
+    }
+
+    public void requestRefresh() {
+        if (!refreshPending) {
+            refreshPending = true;
+            Platform.runLater(() -> {
+                refreshPending = false;
+                refresh();
+            });
+        }
+    }
+
+    private void refresh() {
+        if (frozen) {
+            return;
+        }
+        if (!pendingAttach.isEmpty()) {
+            List<Node> nodes = new ArrayList<>();
+            for (Node node : pendingAttach) {
+                if (elements.contains(node) && !attached.contains(node)) {
+                    nodes.add(node);
+                }
+            }
+            pendingAttach.clear();
+            update(Set.of(), nodes);
+        }
+        if (!enabled) {
+            return;
+        }
+        Bounds visible = visibleBounds.get();
+        if (visible == null) {
+            return;
+        }
+        double marginX = Math.max(MIN_MARGIN, visible.getWidth() / 2);
+        double marginY = Math.max(MIN_MARGIN, visible.getHeight() / 2);
+        // Поки видима частина лишається всередині області з половиною запасу, перебудова не потрібна
+        if (region != null && region.contains(expand(visible, marginX / 2, marginY / 2))) {
+            return;
+        }
+        region = expand(visible, marginX, marginY);
+
+        Set<Node> wanted = new HashSet<>();
+        if (!outlineMode) {
+            elementIndex.query(region, node -> {
+                if (elements.contains(node)) {
+                    wanted.add(node);
+                }
+            });
+        }
+
+        Set<Node> toDetach = new HashSet<>();
+        for (Node node : attached) {
+            if (!wanted.contains(node) && !pinned.test(node)) {
+                toDetach.add(node);
+            }
+        }
+        List<Node> toAttach = new ArrayList<>();
+        for (Node node : wanted) {
+            if (!attached.contains(node)) {
+                toAttach.add(node);
+            }
+        }
+        update(toDetach, toAttach);
+    }
+
+    // Одна заміна списку дітей: від'єднані вилучаються, нові вставляються за порядком малювання
+    private void update(Set<Node> toDetach, List<Node> toAttach) {
+        if (toDetach.isEmpty() && toAttach.isEmpty()) {
+            return;
+        }
+        List<Node> incoming = new ArrayList<>(toAttach);
+        incoming.sort(Comparator.comparingLong(paintOrder));
+        incoming.forEach(onAttach);
+
+        List<Node> children = new ArrayList<>(workArea.getChildren().size() + incoming.size());
+        int next = 0;
+        int afterLastElement = -1;
+        for (Node child : workArea.getChildren()) {
+            if (toDetach.contains(child)) {
+                continue;
+            }
+            if (elements.contains(child)) {
+                long order = paintOrder.applyAsLong(child);
+                while (next < incoming.size() && paintOrder.applyAsLong(incoming.get(next)) < order) {
+                    children.add(incoming.get(next++));
+                }
+                children.add(child);
+                afterLastElement = children.size();
+            } else {
+                children.add(child);
+            }
+        }
+        List<Node> rest = incoming.subList(next, incoming.size());
+        if (afterLastElement < 0) {
+            children.addAll(rest);
+        } else {
+            children.addAll(afterLastElement, rest);
+        }
+        workArea.getChildren().setAll(children);
+
+        attached.removeAll(toDetach);
+        attached.addAll(toAttach);
+    }
+
+    private static Bounds expand(Bounds bounds, double dx, double dy) {
+        return new BoundingBox(bounds.getMinX() - dx, bounds.getMinY() - dy,
+                bounds.getWidth() + 2 * dx, bounds.getHeight() + 2 * dy);
+    }
+}
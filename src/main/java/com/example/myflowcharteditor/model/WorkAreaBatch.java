@@ -0,0 +1,76 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Набір змін робочої області, що застосовується разом: спершу відкладені зміни властивостей,
+// потім список дітей перебудовується одним setAll. Замість removeAll/add по одному вузлу,
+// кожен з яких шукає лінійно і запускає окрему подію та перекомпонування.
+public class WorkAreaBatch {
+    private final Pane workArea;
+    private final Set<Node> removals = new HashSet<>();
+    private final Set<Node> inserts = new LinkedHashSet<>();
+    private final List<Runnable> changes = new ArrayList<>();
+    private boolean committed = false;
+
+    public WorkAreaBatch(Pane workArea) {
+        this.workArea = workArea;
+    }
+
+    // Вставлені вузли йдуть у кінець у порядку додавання; пізніша дія над вузлом скасовує попередню
+    public void add(Node node) {
+        removals.remove(node);
+        inserts.add(node);
+    }
+
+    public void addAll(Collection<? extends Node> nodes) {
+        nodes.forEach(this::add);
+    }
+
+    public void remove(Node node) {
+        if (!inserts.remove(node)) {
+            removals.add(node);
+        }
+    }
+
+    public void removeAll(Collection<? extends Node> nodes) {
+        nodes.forEach(this::remove);
+    }
+
+    // Зміни властивостей виконуються до перебудови, поки нові вузли ще не на сцені
+    public void change(Runnable change) {
+        changes.add(change);
+    }
+
+    public boolean isEmpty() {
+        return removals.isEmpty() && inserts.isEmpty() && changes.isEmpty();
+    }
+
+    public void commit() {
+        if (committed) {
+            throw new IllegalStateException("Batch already committed");
+        }
+        committed = true;
+        changes.forEach(Runnable::run);
+        if (removals.isEmpty() && inserts.isEmpty()) {
+            return;
+        }
+
+        List<Node> current = workArea.getChildren();
+        List<Node> children = new ArrayList<>(current.size() + inserts.size());
+        for (Node child : current) {
+            if (!removals.contains(child) && !inserts.contains(child)) {
+                children.add(child);
+            }
+        }
+        children.addAll(inserts);
+        workArea.getChildren().setAll(children);
+    }
+}
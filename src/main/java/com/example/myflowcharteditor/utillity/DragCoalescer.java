@@ -0,0 +1,65 @@
+package com.example.myflowcharteditor.utillity;
+
+import javafx.animation.AnimationTimer;
+
+// Накопичує зсуви перетягування між кадрами і застосовує їх один раз за імпульс JavaFX.
+// До сітки прив'язується сумарний зсув; залишок, менший за крок сітки, переходить у наступний кадр.
+public class DragCoalescer extends AnimationTimer {
+    public interface MoveTarget {
+        void move(double offsetX, double offsetY);
+    }
+
+    private final double gridGap;
+    private final MoveTarget target;
+    private double pendingX, pendingY;
+    private boolean running = false;
+
+    public DragCoalescer(double gridGap, MoveTarget target) {
+        this.gridGap = gridGap;
+        this.target = target;
+    }
+
+    public void add(double offsetX, double offsetY) {
+        pendingX += offsetX;
+        pendingY += offsetY;
+        if (!running) {
+            running = true;
+            start();
+        }
+    }
+
+    @Override
+    public void handle(long now) {
+        if (!apply()) {
+            running = false;
+            stop();
+        }
+    }
+
+    // Застосовує накопичене негайно і скидає залишок; викликається при відпусканні миші
+    public void finish() {
+        apply();
+        pendingX = 0;
+        pendingY = 0;
+        if (running) {
+            running = false;
+            stop();
+        }
+    }
+
+    private boolean apply() {
+        double snappedX = snapToGrid(pendingX);
+        double snappedY = snapToGrid(pendingY);
+        if (snappedX == 0 && snappedY == 0) {
+            return false;
+        }
+        pendingX -= snappedX;
+        pendingY -= snappedY;
+        target.move(snappedX, snappedY);
+        return true;
+    }
+
+    private double snapToGrid(double value) {
+        return Math.round(value / gridGap) * gridGap;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.myflowcharteditor.utillity;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Шар для перетягування великого виділення: вузли тимчасово переносяться в одну групу,
+// і за кадр змінюється лише її зсув. Геометрію елементів оновлює контролер після завершення.
+public class DragLayer extends Group {
+    private final Pane workArea;
+    private List<Node> savedOrder;
+    private double offsetX, offsetY;
+
+    public DragLayer(Pane workArea) {
+        this.workArea = workArea;
+        setManaged(false);
+    }
+
+    public boolean isActive() {
+        return savedOrder != null;
+    }
+
+    public double getOffsetX() {
+        return offsetX;
+    }
+
+    public double getOffsetY() {
+        return offsetY;
+    }
+
+    // Переносить вузли в шар, зберігаючи їхній порядок малювання; по одній заміні списку дітей
+    public void begin(Collection<Node> nodes) {
+        Set<Node> toMove = new HashSet<>(nodes);
+        savedOrder = new ArrayList<>(workArea.getChildren());
+        List<Node> remaining = new ArrayList<>(savedOrder.size() + 1);
+        List<Node> moved = new ArrayList<>(toMove.size());
+        for (Node child : savedOrder) {
+            if (toMove.contains(child)) {
+                moved.add(child);
+            } else {
+                remaining.add(child);
+            }
+        }
+        remaining.add(this);
+        offsetX = 0;
+        offsetY = 0;
+        setTranslateX(0);
+        setTranslateY(0);
+        workArea.getChildren().setAll(remaining);
+        getChildren().setAll(moved);
+    }
+
+    public void translate(double dx, double dy) {
+        offsetX += dx;
+        offsetY += dy;
+        setTranslateX(offsetX);
+        setTranslateY(offsetY);
+    }
+
+    // Повертає вузли на робочу область на попередні місця; додані під час перетягування лишаються в кінці
+    public void end() {
+        Set<Node> moved = new HashSet<>(getChildren());
+        getChildren().clear();
+        Set<Node> current = new HashSet<>(workArea.getChildren());
+        current.remove(this);
+
+        List<Node> restored = new ArrayList<>(savedOrder.size());
+        for (Node node : savedOrder) {
+            if (moved.contains(node) || current.remove(node)) {
+                restored.add(node);
+            }
+        }
+        for (Node node : workArea.getChildren()) {
+            if (current.contains(node)) {
+                restored.add(node);
+            }
+        }
+        workArea.getChildren().setAll(restored);
+
+        savedOrder = null;
+        setTranslateX(0);
+        setTranslateY(0);
+    }
+}
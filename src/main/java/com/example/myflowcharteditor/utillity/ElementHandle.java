@@ -0,0 +1,10 @@
+package com.example.myflowcharteditor.utillity;
+
+// Спільний контракт для ResizeBox та LineHandles
+public interface ElementHandle {
+    boolean isLocked();
+
+    void lock();
+
+    void unlock();
+}
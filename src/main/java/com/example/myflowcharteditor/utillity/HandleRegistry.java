@@ -0,0 +1,72 @@
+package com.example.myflowcharteditor.utillity;
+
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Відповідність між вузлами діаграми та маркерами, що зараз стоять на робочій області
+public class HandleRegistry {
+    private final Map<Node, Entry> entries = new HashMap<>();
+    private Consumer<Node> onRegister = node -> {
+    };
+
+    // Викликається для вузла щоразу, коли до нього додається маркер
+    public void setOnRegister(Consumer<Node> onRegister) {
+        this.onRegister = onRegister;
+    }
+
+    public void register(Node node, ElementHandle handle) {
+        Entry entry = entries.computeIfAbsent(node, key -> new Entry());
+        if (!entry.handles.contains(handle)) {
+            entry.handles.add(handle);
+            if (handle.isLocked()) {
+                entry.lockedCount++;
+            }
+            onRegister.accept(node);
+        }
+    }
+
+    public void unregister(Node node, ElementHandle handle) {
+        Entry entry = entries.get(node);
+        if (entry != null && entry.handles.remove(handle)) {
+            if (handle.isLocked()) {
+                entry.lockedCount--;
+            }
+            if (entry.handles.isEmpty()) {
+                entries.remove(node);
+            }
+        }
+    }
+
+    // Викликається маркером одразу після зміни його стану замкнення
+    public void lockChanged(Node node, ElementHandle handle) {
+        Entry entry = entries.get(node);
+        if (entry != null && entry.handles.contains(handle)) {
+            entry.lockedCount += handle.isLocked() ? 1 : -1;
+        }
+    }
+
+    public boolean isLocked(Node node) {
+        Entry entry = entries.get(node);
+        return entry != null && entry.lockedCount > 0;
+    }
+
+    public ElementHandle getHandle(Node node) {
+        Entry entry = entries.get(node);
+        return entry == null ? null : entry.handles.get(entry.handles.size() - 1);
+    }
+
+    public List<ElementHandle> getHandles(Node node) {
+        Entry entry = entries.get(node);
+        return entry == null ? List.of() : List.copyOf(entry.handles);
+    }
+
+    private static final class Entry {
+        private final List<ElementHandle> handles = new ArrayList<>(1);
+        private int lockedCount;
+    }
+}
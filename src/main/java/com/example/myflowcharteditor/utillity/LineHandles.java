@@ -4,15 +4,37 @@ import com.example.myflowcharteditor.controller.DiagramController;
 import com.example.myflowcharteditor.model.DiagramArrow;
 import com.example.myflowcharteditor.model.DiagramElement;
 import com.example.myflowcharteditor.model.DiagramShape;
+import com.example.myflowcharteditor.model.ElementData;
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
 import javafx.scene.Group;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.*;
 
-public class LineHandles extends Pane {
+import java.util.ArrayList;
+import java.util.List;
+
+// Маркери ламаної. Геометрія редагується в примітивних масивах, а у Polyline та наконечник
+// публікується одним setAll на кадр, без поелементних set/get над списком Double.
+public class LineHandles extends Pane implements ElementHandle {
+    private static final List<LineHandles> dirtyHandles = new ArrayList<>();
+    private static final AnimationTimer publisher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            publishDirty();
+        }
+    };
+
     private final Polyline polyline;
     private final Polygon arrowHead;
-    private final Circle startHandle, endHandle, midHandle1, midHandle2;
+    private Circle[] handles;
+    private double[] points;
+    private Double[] boxedPoints;
+    private final double[] head = new double[6];
+    private final Double[] boxedHead = new Double[6];
+    private boolean dirty = false;
+    private boolean publishing = false;
     private double startX, startY;
     private double accumulatedOffsetX, accumulatedOffsetY;
     private final int gridGap = 10;
@@ -21,6 +43,12 @@ public class LineHandles extends Pane {
     private boolean locked = false;  // Замкнення елемента
     private final Color lockedColor = Color.RED;
     private final Color unlockedColor = Color.BLUE;
+    // Зміни точок ззовні (завантаження, скасування тощо) перечитуються в масив, поки маркери на сцені
+    private final InvalidationListener pointsListener = obs -> {
+        if (!publishing) {
+            readPoints();
+        }
+    };
 
     public LineHandles(DiagramElement element, DiagramController controller) {
         this.controller = controller;
@@ -37,17 +65,41 @@ public class LineHandles extends Pane {
             throw new IllegalArgumentException("Unsupported element type");
         }
 
-        startHandle = new Circle(5, unlockedColor);
-        endHandle = new Circle(5, unlockedColor);
-        midHandle1 = new Circle(5, unlockedColor);
-        midHandle2 = new Circle(5, unlockedColor);
-
-        updateHandles();
-
-        this.getChildren().addAll(startHandle, endHandle, midHandle1, midHandle2);
-
+        readPoints();
         setListeners();
         updateHandleColors();
+        registerOnAttach();
+    }
+
+    private void registerOnAttach() {
+        HandleRegistry registry = controller.getHandleRegistry();
+        parentProperty().addListener((obs, oldParent, newParent) -> {
+            if (oldParent == null && newParent != null) {
+                // Поки маркери були зняті, точки могли змінитися без них
+                if (!dirty) {
+                    readPoints();
+                }
+                polyline.getPoints().addListener(pointsListener);
+                registry.register(polyline, this);
+                if (arrowGroup != null) {
+                    registry.register(arrowGroup, this);
+                }
+            } else if (oldParent != null && newParent == null) {
+                polyline.getPoints().removeListener(pointsListener);
+                registry.unregister(polyline, this);
+                if (arrowGroup != null) {
+                    registry.unregister(arrowGroup, this);
+                }
+            }
+        });
+    }
+
+    private void notifyLockChanged() {
+        HandleRegistry registry = controller.getHandleRegistry();
+        registry.lockChanged(polyline, this);
+        if (arrowGroup != null) {
+            registry.lockChanged(arrowGroup, this);
+        }
     }
 
     public Polyline getPolyline() {
@@ -63,33 +115,60 @@ public class LineHandles extends Pane {
     }
 
     public void lock() {
-        locked = true;
+        if (!locked) {
+            locked = true;
+            notifyLockChanged();
+        }
         updateHandleColors();
     }
 
     public void unlock() {
-        locked = false;
+        if (locked) {
+            locked = false;
+            notifyLockChanged();
+        }
         updateHandleColors();
     }
 
+    @Override
     public boolean isLocked() {
         return locked;
     }
 
     public void updateHandleColors() {
         Color color = locked ? lockedColor : unlockedColor;
-        startHandle.setFill(color);
-        endHandle.setFill(color);
-        midHandle1.setFill(color);
-        midHandle2.setFill(color);
+        for (Circle handle : handles) {
+            handle.setFill(color);
+        }
     }
 
-    private void setListeners() {
-        addMouseListener(startHandle, 0, true);
-        addMouseListener(midHandle1, 1, false);
-        addMouseListener(midHandle2, 2, false);
-        addMouseListener(endHandle, 3, true);
+    private void readPoints() {
+        List<Double> source = polyline.getPoints();
+        if (points == null || points.length != source.size()) {
+            points = new double[source.size()];
+            boxedPoints = new Double[source.size()];
+            createHandles(source.size() / 2);
+        }
+        for (int i = 0; i < points.length; i++) {
+            points[i] = source.get(i);
+        }
+        dirty = false;
+        updateHandles();
+    }
 
+    private void createHandles(int count) {
+        if (handles != null) {
+            getChildren().removeAll(handles);
+        }
+        handles = new Circle[count];
+        for (int i = 0; i < count; i++) {
+            handles[i] = new Circle(5, locked ? lockedColor : unlockedColor);
+            addMouseListener(handles[i], i, i == 0 || i == count - 1);
+        }
+        getChildren().addAll(handles);
+    }
+
+    private void setListeners() {
         this.setOnMousePressed(event -> {
             if (!locked) {
                 startX = event.getSceneX();
@@ -101,13 +180,15 @@ public class LineHandles extends Pane {
 
         this.setOnMouseDragged(event -> {
             if (!locked && controller.getSelectedElements().contains(this)) {
-                double offsetX = event.getSceneX() - startX;
-                double offsetY = event.getSceneY() - startY;
+                double offsetX = controller.sceneToWorkArea(event.getSceneX() - startX);
+                double offsetY = controller.sceneToWorkArea(event.getSceneY() - startY);
                 controller.moveSelectedElements(offsetX, offsetY);
                 startX = event.getSceneX();
                 startY = event.getSceneY();
             }
         });
+
+        this.setOnMouseReleased(event -> controller.finishMove());
     }
 
     private void addMouseListener(Circle handle, int handleIndex, boolean isEndHandle) {
@@ -117,13 +198,16 @@ public class LineHandles extends Pane {
                 startY = event.getSceneY();
                 accumulatedOffsetX = 0;
                 accumulatedOffsetY = 0;
+                controller.beginReshape(arrowGroup != null ? arrowGroup : polyline);
             }
         });
 
+        handle.setOnMouseReleased(event -> controller.endReshape());
+
         handle.setOnMouseDragged(event -> {
             if (!locked && controller.getSelectedElements().contains(this)) {
-                double offsetX = event.getSceneX() - startX;
-                double offsetY = event.getSceneY() - startY;
+                double offsetX = controller.sceneToWorkArea(event.getSceneX() - startX);
+                double offsetY = controller.sceneToWorkArea(event.getSceneY() - startY);
                 moveHandle(handleIndex, isEndHandle, offsetX, offsetY);
                 startX = event.getSceneX();
                 startY = event.getSceneY();
@@ -137,16 +221,13 @@ public class LineHandles extends Pane {
         double snapToGridOffsetX = snapToGrid(accumulatedOffsetX);
         double snapToGridOffsetY = snapToGrid(accumulatedOffsetY);
         if (Math.abs(snapToGridOffsetX) >= gridGap || Math.abs(snapToGridOffsetY) >= gridGap) {
-            for (int i = 0; i < polyline.getPoints().size(); i += 2) {
-                polyline.getPoints().set(i, polyline.getPoints().get(i) + snapToGridOffsetX);
-                polyline.getPoints().set(i + 1, polyline.getPoints().get(i + 1) + snapToGridOffsetY);
+            for (int i = 0; i < points.length; i += 2) {
+                points[i] += snapToGridOffsetX;
+                points[i + 1] += snapToGridOffsetY;
             }
             accumulatedOffsetX -= snapToGridOffsetX;
             accumulatedOffsetY -= snapToGridOffsetY;
-            updateHandles();
-            if (arrowHead != null) {
-                updateArrowHead();
-            }
+            markDirty();
         }
     }
 
@@ -157,35 +238,24 @@ public class LineHandles extends Pane {
         double snapToGridOffsetY = snapToGrid(accumulatedOffsetY);
 
         if (Math.abs(snapToGridOffsetX) >= gridGap || Math.abs(snapToGridOffsetY) >= gridGap) {
-            if (isStraightLine()) {
-                if (isEndHandle) {
-                    polyline.getPoints().set(handleIndex * 2, polyline.getPoints().get(handleIndex * 2) + snapToGridOffsetX);
-                    polyline.getPoints().set(handleIndex * 2 + 1, polyline.getPoints().get(handleIndex * 2 + 1) + snapToGridOffsetY);
-
-                    double startX = polyline.getPoints().get(0);
-                    double startY = polyline.getPoints().get(1);
-                    double endX = polyline.getPoints().get(6);
-                    double endY = polyline.getPoints().get(7);
-
-                    polyline.getPoints().set(2, startX + (endX - startX) / 3);
-                    polyline.getPoints().set(3, startY + (endY - startY) / 3);
-                    polyline.getPoints().set(4, startX + 2 * (endX - startX) / 3);
-                    polyline.getPoints().set(5, startY + 2 * (endY - startY) / 3);
-                } else {
-                    polyline.getPoints().set(handleIndex * 2, polyline.getPoints().get(handleIndex * 2) + snapToGridOffsetX);
-                    polyline.getPoints().set(handleIndex * 2 + 1, polyline.getPoints().get(handleIndex * 2 + 1) + snapToGridOffsetY);
+            boolean straight = isStraightLine();
+            points[handleIndex * 2] += snapToGridOffsetX;
+            points[handleIndex * 2 + 1] += snapToGridOffsetY;
+
+            // Пряма лінія лишається прямою: проміжні точки рівномірно розподіляються між кінцями
+            if (straight && isEndHandle) {
+                int last = points.length - 2;
+                int segments = points.length / 2 - 1;
+                for (int i = 2; i < last; i += 2) {
+                    double t = (double) (i / 2) / segments;
+                    points[i] = points[0] + (points[last] - points[0]) * t;
+                    points[i + 1] = points[1] + (points[last + 1] - points[1]) * t;
                 }
-            } else {
-                polyline.getPoints().set(handleIndex * 2, polyline.getPoints().get(handleIndex * 2) + snapToGridOffsetX);
-                polyline.getPoints().set(handleIndex * 2 + 1, polyline.getPoints().get(handleIndex * 2 + 1) + snapToGridOffsetY);
             }
 
             accumulatedOffsetX -= snapToGridOffsetX;
             accumulatedOffsetY -= snapToGridOffsetY;
-            updateHandles();
-            if (arrowHead != null) {
-                updateArrowHead();
-            }
+            markDirty();
         }
     }
 
@@ -193,60 +263,77 @@ public class LineHandles extends Pane {
         return Math.round(value / gridGap) * gridGap;
     }
 
-    public void updateHandles() {
-        startHandle.setCenterX(polyline.getPoints().get(0));
-        startHandle.setCenterY(polyline.getPoints().get(1));
-
-        endHandle.setCenterX(polyline.getPoints().get(6));
-        endHandle.setCenterY(polyline.getPoints().get(7));
-
-        midHandle1.setCenterX(polyline.getPoints().get(2));
-        midHandle1.setCenterY(polyline.getPoints().get(3));
-
-        midHandle2.setCenterX(polyline.getPoints().get(4));
-        midHandle2.setCenterY(polyline.getPoints().get(5));
+    // Зміни збираються до наступного кадру і публікуються разом
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            if (dirtyHandles.isEmpty()) {
+                publisher.start();
+            }
+            dirtyHandles.add(this);
+        }
     }
 
-    private void updateArrowHead() {
-        double endX = polyline.getPoints().get(6);
-        double endY = polyline.getPoints().get(7);
-        double prevX = polyline.getPoints().get(4);
-        double prevY = polyline.getPoints().get(5);
-        double angle = Math.atan2(endY - prevY, endX - prevX);
-
-        double arrowLength = 10;
-        double arrowWidth = 5;
-
-        double sin = Math.sin(angle);
-        double cos = Math.cos(angle);
+    // Публікує відкладені зміни негайно, перед зчитуванням вузлів у дані
+    public static void flushPending() {
+        if (!dirtyHandles.isEmpty()) {
+            publishDirty();
+        }
+    }
 
-        double x1 = endX - arrowLength * cos + arrowWidth * sin;
-        double y1 = endY - arrowLength * sin - arrowWidth * cos;
+    private static void publishDirty() {
+        for (int i = 0; i < dirtyHandles.size(); i++) {
+            dirtyHandles.get(i).publish();
+        }
+        dirtyHandles.clear();
+        publisher.stop();
+    }
 
-        double x2 = endX;
-        double y2 = endY;
+    // Публікує масив у вузли: один setAll для ламаної і один для наконечника
+    private void publish() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        publishing = true;
+        try {
+            for (int i = 0; i < points.length; i++) {
+                boxedPoints[i] = points[i];
+            }
+            polyline.getPoints().setAll(boxedPoints);
+            if (arrowHead != null) {
+                computeArrowHead();
+                for (int i = 0; i < head.length; i++) {
+                    boxedHead[i] = head[i];
+                }
+                arrowHead.getPoints().setAll(boxedHead);
+            }
+        } finally {
+            publishing = false;
+        }
+        updateHandles();
+    }
 
-        double x3 = endX - arrowLength * cos - arrowWidth * sin;
-        double y3 = endY - arrowLength * sin + arrowWidth * cos;
+    public void updateHandles() {
+        for (int i = 0; i < handles.length; i++) {
+            handles[i].setCenterX(points[i * 2]);
+            handles[i].setCenterY(points[i * 2 + 1]);
+        }
+    }
 
-        arrowHead.getPoints().setAll(
-                x1, y1,
-                x2, y2,
-                x3, y3
-        );
+    private void computeArrowHead() {
+        ElementData.computeArrowHead(points, points.length, head, 0);
     }
 
     private boolean isStraightLine() {
-        double startX = polyline.getPoints().get(0);
-        double startY = polyline.getPoints().get(1);
-        double endX = polyline.getPoints().get(6);
-        double endY = polyline.getPoints().get(7);
-
-        for (int i = 2; i < polyline.getPoints().size() - 2; i += 2) {
-            double midX = polyline.getPoints().get(i);
-            double midY = polyline.getPoints().get(i + 1);
-
-            if (!isPointOnLine(startX, startY, endX, endY, midX, midY)) {
+        int last = points.length - 2;
+        double startX = points[0];
+        double startY = points[1];
+        double endX = points[last];
+        double endY = points[last + 1];
+
+        for (int i = 2; i < last; i += 2) {
+            if (!isPointOnLine(startX, startY, endX, endY, points[i], points[i + 1])) {
                 return false;
             }
         }
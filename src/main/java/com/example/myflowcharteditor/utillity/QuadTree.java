@@ -0,0 +1,179 @@
+package com.example.myflowcharteditor.utillity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Квадродерево прямокутних меж; елемент зберігається в найменшій клітинці, що повністю його містить
+public class QuadTree<T> {
+    private static final int MAX_ITEMS = 16;
+    private static final int MAX_DEPTH = 16;
+
+    private final Cell<T> root;
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+
+    public QuadTree(double minX, double minY, double maxX, double maxY) {
+        this.root = new Cell<>(minX, minY, maxX, maxY, 0);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public void insert(T item, double minX, double minY, double maxX, double maxY) {
+        Entry<T> entry = entries.get(item);
+        if (entry != null) {
+            update(entry, minX, minY, maxX, maxY);
+            return;
+        }
+        entry = new Entry<>(item, minX, minY, maxX, maxY);
+        entries.put(item, entry);
+        root.insert(entry);
+    }
+
+    public void remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry != null) {
+            entry.cell.items.remove(entry);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        root.items.clear();
+        root.children = null;
+    }
+
+    public void query(double minX, double minY, double maxX, double maxY, Consumer<T> action) {
+        root.query(minX, minY, maxX, maxY, action);
+    }
+
+    private void update(Entry<T> entry, double minX, double minY, double maxX, double maxY) {
+        entry.minX = minX;
+        entry.minY = minY;
+        entry.maxX = maxX;
+        entry.maxY = maxY;
+
+        // Дрібні переміщення зазвичай лишають елемент у тій самій клітинці
+        Cell<T> cell = entry.cell;
+        if (cell.children == null && (cell == root || cell.contains(entry))) {
+            return;
+        }
+        cell.items.remove(entry);
+        root.insert(entry);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private double minX, minY, maxX, maxY;
+        private Cell<T> cell;
+
+        private Entry(T item, double minX, double minY, double maxX, double maxY) {
+            this.item = item;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        private boolean intersects(double minX, double minY, double maxX, double maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+    }
+
+    private static final class Cell<T> {
+        private final double minX, minY, maxX, maxY;
+        private final int depth;
+        private final List<Entry<T>> items = new ArrayList<>();
+        private Cell<T>[] children;
+
+        private Cell(double minX, double minY, double maxX, double maxY, int depth) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.depth = depth;
+        }
+
+        private boolean contains(Entry<T> entry) {
+            return entry.minX >= minX && entry.maxX <= maxX && entry.minY >= minY && entry.maxY <= maxY;
+        }
+
+        private void insert(Entry<T> entry) {
+            Cell<T> cell = this;
+            while (cell.children != null) {
+                Cell<T> child = cell.childContaining(entry);
+                if (child == null) {
+                    break;
+                }
+                cell = child;
+            }
+            cell.add(entry);
+        }
+
+        private void add(Entry<T> entry) {
+            entry.cell = this;
+            items.add(entry);
+            if (children == null && items.size() > MAX_ITEMS && depth < MAX_DEPTH) {
+                split();
+            }
+        }
+
+        private void split() {
+            double midX = (minX + maxX) / 2;
+            double midY = (minY + maxY) / 2;
+            children = newChildren();
+            children[0] = new Cell<>(minX, minY, midX, midY, depth + 1);
+            children[1] = new Cell<>(midX, minY, maxX, midY, depth + 1);
+            children[2] = new Cell<>(minX, midY, midX, maxY, depth + 1);
+            children[3] = new Cell<>(midX, midY, maxX, maxY, depth + 1);
+
+            List<Entry<T>> stuck = new ArrayList<>();
+            for (Entry<T> entry : items) {
+                Cell<T> child = childContaining(entry);
+                if (child != null) {
+                    child.add(entry);
+                } else {
+                    stuck.add(entry);
+                }
+            }
+            items.clear();
+            items.addAll(stuck);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Cell<T>[] newChildren() {
+            return (Cell<T>[]) new Cell<?>[4];
+        }
+
+        private Cell<T> childContaining(Entry<T> entry) {
+            for (Cell<T> child : children) {
+                if (child.contains(entry)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private void query(double qMinX, double qMinY, double qMaxX, double qMaxY, Consumer<T> action) {
+            for (Entry<T> entry : items) {
+                if (entry.intersects(qMinX, qMinY, qMaxX, qMaxY)) {
+                    action.accept(entry.item);
+                }
+            }
+            if (children != null) {
+                for (Cell<T> child : children) {
+                    if (child.minX <= qMaxX && child.maxX >= qMinX && child.minY <= qMaxY && child.maxY >= qMinY) {
+                        child.query(qMinX, qMinY, qMaxX, qMaxY, action);
+                    }
+                }
+            }
+        }
+    }
+}
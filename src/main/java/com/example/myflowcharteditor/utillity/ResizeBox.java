@@ -1,6 +1,8 @@
 package com.example.myflowcharteditor.utillity;
 
 import com.example.myflowcharteditor.controller.DiagramController;
+import com.example.myflowcharteditor.model.DetailLevel;
+import javafx.beans.InvalidationListener;
 import javafx.scene.Node;
 import javafx.scene.control.TextField;
 import javafx.scene.image.ImageView;
@@ -8,7 +10,7 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.*;
 
-public class ResizeBox extends Pane {
+public class ResizeBox extends Pane implements ElementHandle {
     private final Node node;
     private final Line topLine, rightLine, bottomLine, leftLine;
     private final Circle topLeft, topRight, bottomLeft, bottomRight;
@@ -53,6 +55,37 @@ public class ResizeBox extends Pane {
         setListeners();
         makeDraggable(this);
         updateHandleColors();
+        registerOnAttach();
+    }
+
+    private void registerOnAttach() {
+        InvalidationListener scaleListener = obs -> updateDetail();
+        parentProperty().addListener((obs, oldParent, newParent) -> {
+            if (oldParent != null) {
+                oldParent.scaleXProperty().removeListener(scaleListener);
+            }
+            if (newParent != null) {
+                newParent.scaleXProperty().addListener(scaleListener);
+                updateDetail();
+            }
+            if (oldParent == null && newParent != null) {
+                controller.getHandleRegistry().register(node, this);
+            } else if (oldParent != null && newParent == null) {
+                controller.getHandleRegistry().unregister(node, this);
+            }
+        });
+    }
+
+    // Пунктир рамки прибирається при зменшеному масштабі
+    private void updateDetail() {
+        boolean dashed = getParent() != null && DetailLevel.forScale(getParent().getScaleX()) == DetailLevel.FULL;
+        for (Line line : new Line[]{topLine, rightLine, bottomLine, leftLine}) {
+            if (dashed && line.getStrokeDashArray().isEmpty()) {
+                line.getStrokeDashArray().setAll(5.0, 5.0);
+            } else if (!dashed && !line.getStrokeDashArray().isEmpty()) {
+                line.getStrokeDashArray().clear();
+            }
+        }
     }
 
     public Node getNode() {
@@ -60,15 +93,22 @@ public class ResizeBox extends Pane {
     }
 
     public void lock() {
-        locked = true;
+        if (!locked) {
+            locked = true;
+            controller.getHandleRegistry().lockChanged(node, this);
+        }
         updateHandleColors();
     }
 
     public void unlock() {
-        locked = false;
+        if (locked) {
+            locked = false;
+            controller.getHandleRegistry().lockChanged(node, this);
+        }
         updateHandleColors();
     }
 
+    @Override
     public boolean isLocked() {
         return locked;
     }
@@ -85,9 +125,23 @@ public class ResizeBox extends Pane {
         bottomRight.setFill(color);
     }
 
+    private void startResize() {
+        resizing = !locked;
+        if (resizing) {
+            controller.beginReshape(node);
+        }
+    }
+
+    private void endResize() {
+        if (resizing) {
+            controller.endReshape();
+        }
+        resizing = false;
+    }
+
     private void setListeners() {
-        topLeft.setOnMousePressed(event -> resizing = !locked);
-        topLeft.setOnMouseReleased(event -> resizing = false);
+        topLeft.setOnMousePressed(event -> startResize());
+        topLeft.setOnMouseReleased(event -> endResize());
         topLeft.setOnMouseDragged(event -> {
             if (!locked && controller.getSelectedElements().contains(this)) {
                 double offsetX = snapToGrid(event.getX());
@@ -103,8 +157,8 @@ public class ResizeBox extends Pane {
             }
         });
 
-        topRight.setOnMousePressed(event -> resizing = !locked);
-        topRight.setOnMouseReleased(event -> resizing = false);
+        topRight.setOnMousePressed(event -> startResize());
+        topRight.setOnMouseReleased(event -> endResize());
         topRight.setOnMouseDragged(event -> {
             if (!locked && controller.getSelectedElements().contains(this)) {
                 double offsetX = snapToGrid(event.getX());
@@ -119,8 +173,8 @@ public class ResizeBox extends Pane {
             }
         });
 
-        bottomLeft.setOnMousePressed(event -> resizing = !locked);
-        bottomLeft.setOnMouseReleased(event -> resizing = false);
+        bottomLeft.setOnMousePressed(event -> startResize());
+        bottomLeft.setOnMouseReleased(event -> endResize());
         bottomLeft.setOnMouseDragged(event -> {
             if (!locked && controller.getSelectedElements().contains(this)) {
                 double offsetX = snapToGrid(event.getX());
@@ -135,8 +189,8 @@ public class ResizeBox extends Pane {
             }
         });
 
-        bottomRight.setOnMousePressed(event -> resizing = !locked);
-        bottomRight.setOnMouseReleased(event -> resizing = false);
+        bottomRight.setOnMousePressed(event -> startResize());
+        bottomRight.setOnMouseReleased(event -> endResize());
         bottomRight.setOnMouseDragged(event -> {
             if (!locked && controller.getSelectedElements().contains(this)) {
                 double offsetX = snapToGrid(event.getX());
@@ -234,18 +288,22 @@ public class ResizeBox extends Pane {
     private void makeDraggable(Pane pane) {
         pane.setOnMousePressed(event -> {
             if (!locked && !resizing && controller.getSelectedElements().contains(this)) {
-                startX = event.getSceneX() - pane.getLayoutX();
-                startY = event.getSceneY() - pane.getLayoutY();
+                startX = event.getSceneX();
+                startY = event.getSceneY();
             }
         });
 
+        // Сирі зсуви передаються контролеру, який прив'язує їх до сітки раз за кадр
         pane.setOnMouseDragged(event -> {
             if (!locked && !resizing && controller.getSelectedElements().contains(this)) {
-                double newX = snapToGrid(event.getSceneX() - startX);
-                double newY = snapToGrid(event.getSceneY() - startY);
-                controller.moveSelectedElements(newX - getLayoutX(), newY - getLayoutY());
+                controller.moveSelectedElements(controller.sceneToWorkArea(event.getSceneX() - startX),
+                        controller.sceneToWorkArea(event.getSceneY() - startY));
+                startX = event.getSceneX();
+                startY = event.getSceneY();
             }
         });
+
+        pane.setOnMouseReleased(event -> controller.finishMove());
     }
 
     public void move(double offsetX, double offsetY) {
@@ -1,8 +1,10 @@
 package com.example.myflowcharteditor.view;
 
-import javafx.scene.Node;
+import javafx.concurrent.Worker;
+import javafx.geometry.Bounds;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
@@ -10,7 +12,6 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 
 import java.util.Arrays;
@@ -25,6 +26,15 @@ public class DiagramView {
     private final HBox fileNameContainer;
     private final TextField fileNameField;
     private final Rectangle selectionRectangle;
+    private final ScrollPane workAreaScrollPane;
+    private final GridLayer gridLayer;
+    private final OutlineLayer outlineLayer;
+    private final IssueLayer issueLayer;
+    private final HBox progressContainer;
+    private final Label progressLabel;
+    private final ProgressBar progressBar;
+    private final Button cancelButton;
+    private Worker<?> progressWorker;
 
     private Button zoomInButton;
     private Button zoomOutButton;
@@ -79,14 +89,13 @@ public class DiagramView {
 
         workArea = new Pane();
         workArea.setStyle("-fx-background-color: white; -fx-border-color: black;");
-        addGrid(workArea, 20, 100);
         workArea.setMinSize(2000, 2000);
 
         ScrollPane leftScrollPane = new ScrollPane(leftPanel);
         leftScrollPane.setFitToWidth(true);
         leftScrollPane.setPrefWidth(140);
 
-        ScrollPane workAreaScrollPane = new ScrollPane(workArea);
+        workAreaScrollPane = new ScrollPane(workArea);
         workAreaScrollPane.setFitToWidth(true);
         workAreaScrollPane.setFitToHeight(true);
         workAreaScrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
@@ -100,8 +109,12 @@ public class DiagramView {
         clip.heightProperty().bind(workArea.heightProperty());
         workArea.setClip(clip);
 
-        workArea.widthProperty().addListener((obs, oldVal, newVal) -> addGrid(workArea, 20, 100));
-        workArea.heightProperty().addListener((obs, oldVal, newVal) -> addGrid(workArea, 20, 100));
+        gridLayer = new GridLayer(workArea, workAreaScrollPane, 20, 100);
+        workArea.getChildren().add(gridLayer);
+        outlineLayer = new OutlineLayer(workArea, gridLayer::getVisibleBounds, workAreaScrollPane);
+        workArea.getChildren().add(outlineLayer);
+        issueLayer = new IssueLayer(workArea, gridLayer::getVisibleBounds, workAreaScrollPane);
+        workArea.getChildren().add(issueLayer);
 
         leftScrollPane.setStyle("-fx-background: #f0f0f0; -fx-border-color: #d0d0d0; -fx-border-width: 1px;");
         workAreaScrollPane.setStyle("-fx-background: #f0f0f0; -fx-border-color: #d0d0d0; -fx-border-width: 1px;");
@@ -111,6 +124,16 @@ public class DiagramView {
 
         selectionRectangle = new Rectangle();
         initializeSelectionRectangle();
+
+        progressLabel = new Label();
+        progressBar = new ProgressBar();
+        progressBar.setPrefWidth(200);
+        cancelButton = new Button("Скасувати");
+        progressContainer = new HBox(10, progressLabel, progressBar, cancelButton);
+        progressContainer.setStyle("-fx-padding: 5; -fx-alignment: center-left;");
+        progressContainer.setVisible(false);
+        progressContainer.setManaged(false);
+        root.setBottom(progressContainer);
     }
 
     public BorderPane getRoot() {
@@ -165,38 +188,45 @@ public class DiagramView {
         return openButton;
     }
 
-    private void addGrid(Pane pane, int minorGap, int majorGap) {
-        pane.getChildren().removeIf(node -> node instanceof Line);
-        double width = pane.getWidth();
-        double height = pane.getHeight();
+    public ScrollPane getWorkAreaScrollPane() {
+        return workAreaScrollPane;
+    }
 
-        for (int x = 0; x < width; x += minorGap) {
-            Line line = new Line(x, 0, x, height);
-            line.setStroke(Color.LIGHTGRAY);
-            line.getStrokeDashArray().addAll(2.0, 2.0);
-            pane.getChildren().add(line);
-        }
+    public GridLayer getGridLayer() {
+        return gridLayer;
+    }
 
-        for (int y = 0; y < height; y += minorGap) {
-            Line line = new Line(0, y, width, y);
-            line.setStroke(Color.LIGHTGRAY);
-            line.getStrokeDashArray().addAll(2.0, 2.0);
-            pane.getChildren().add(line);
-        }
+    public OutlineLayer getOutlineLayer() {
+        return outlineLayer;
+    }
 
-        for (int x = 0; x < width; x += majorGap) {
-            Line line = new Line(x, 0, x, height);
-            line.setStroke(Color.DARKGRAY);
-            line.setStrokeWidth(1);
-            pane.getChildren().add(line);
-        }
+    public IssueLayer getIssueLayer() {
+        return issueLayer;
+    }
 
-        for (int y = 0; y < height; y += majorGap) {
-            Line line = new Line(0, y, width, y);
-            line.setStroke(Color.DARKGRAY);
-            line.setStrokeWidth(1);
-            pane.getChildren().add(line);
-        }
+    public Bounds getVisibleWorkAreaBounds() {
+        return gridLayer.getVisibleBounds();
+    }
+
+    // Показує хід фонової операції, доки вона виконується
+    public void showProgress(Worker<?> worker) {
+        progressWorker = worker;
+        progressLabel.textProperty().bind(worker.messageProperty());
+        progressBar.progressProperty().bind(worker.progressProperty());
+        cancelButton.setOnAction(event -> worker.cancel());
+        progressContainer.setVisible(true);
+        progressContainer.setManaged(true);
+
+        worker.runningProperty().addListener((obs, wasRunning, isRunning) -> {
+            if (!isRunning && progressWorker == worker) {
+                progressWorker = null;
+                progressLabel.textProperty().unbind();
+                progressBar.progressProperty().unbind();
+                cancelButton.setOnAction(null);
+                progressContainer.setVisible(false);
+                progressContainer.setManaged(false);
+            }
+        });
     }
 
     private void initializeSelectionRectangle() {
@@ -208,10 +238,6 @@ public class DiagramView {
     }
 
     public void setGridVisible(boolean visible) {
-        for (Node node : workArea.getChildren()) {
-            if (node instanceof Line) {
-                node.setVisible(visible);
-            }
-        }
+        gridLayer.setVisible(visible);
     }
 }
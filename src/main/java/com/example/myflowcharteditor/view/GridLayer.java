@@ -0,0 +1,126 @@
+package com.example.myflowcharteditor.view;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+
+// Сітка робочої області, що малюється на одному Canvas лише для видимої частини
+public class GridLayer extends Canvas {
+    private final Pane workArea;
+    private final ScrollPane scrollPane;
+    private final int minorGap;
+    private final int majorGap;
+    private static final double MIN_LINE_SPACING = 8;
+
+    private final Scale pixelScale = new Scale(1, 1, 0, 0);
+    private boolean redrawPending = false;
+
+    public GridLayer(Pane workArea, ScrollPane scrollPane, int minorGap, int majorGap) {
+        this.workArea = workArea;
+        this.scrollPane = scrollPane;
+        this.minorGap = minorGap;
+        this.majorGap = majorGap;
+
+        setManaged(false);
+        setMouseTransparent(true);
+        getTransforms().add(pixelScale);
+
+        InvalidationListener redrawListener = obs -> requestRedraw();
+        scrollPane.hvalueProperty().addListener(redrawListener);
+        scrollPane.vvalueProperty().addListener(redrawListener);
+        scrollPane.viewportBoundsProperty().addListener(redrawListener);
+        workArea.widthProperty().addListener(redrawListener);
+        workArea.heightProperty().addListener(redrawListener);
+        workArea.scaleXProperty().addListener(redrawListener);
+        workArea.scaleYProperty().addListener(redrawListener);
+        visibleProperty().addListener(redrawListener);
+    }
+
+    public void requestRedraw() {
+        if (!redrawPending) {
+            redrawPending = true;
+            Platform.runLater(() -> {
+                redrawPending = false;
+                redraw();
+            });
+        }
+    }
+
+    private void redraw() {
+        if (!isVisible()) {
+            return;
+        }
+
+        Bounds visible = getVisibleBounds();
+        double scale = workArea.getScaleX();
+        if (visible == null || scale <= 0) {
+            setWidth(0);
+            setHeight(0);
+            return;
+        }
+
+        // Канвас має розмір у пікселях екрана, тому лінії лишаються чіткими при будь-якому масштабі
+        setLayoutX(visible.getMinX());
+        setLayoutY(visible.getMinY());
+        pixelScale.setX(1 / scale);
+        pixelScale.setY(1 / scale);
+        setWidth(Math.ceil(visible.getWidth() * scale));
+        setHeight(Math.ceil(visible.getHeight() * scale));
+
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        gc.setLineWidth(1);
+
+        // При малому масштабі надто щільні лінії не малюються: пунктир зникає першим
+        if (minorGap * scale >= MIN_LINE_SPACING) {
+            gc.setStroke(Color.LIGHTGRAY);
+            gc.setLineDashes(2, 2);
+            strokeLines(gc, visible, scale, minorGap);
+        }
+
+        if (majorGap * scale >= MIN_LINE_SPACING) {
+            gc.setStroke(Color.DARKGRAY);
+            gc.setLineDashes(null);
+            strokeLines(gc, visible, scale, majorGap);
+        }
+    }
+
+    private void strokeLines(GraphicsContext gc, Bounds visible, double scale, int gap) {
+        double width = getWidth();
+        double height = getHeight();
+
+        for (double x = Math.ceil(visible.getMinX() / gap) * gap; x < visible.getMaxX(); x += gap) {
+            double px = Math.floor((x - visible.getMinX()) * scale) + 0.5;
+            gc.strokeLine(px, 0, px, height);
+        }
+
+        for (double y = Math.ceil(visible.getMinY() / gap) * gap; y < visible.getMaxY(); y += gap) {
+            double py = Math.floor((y - visible.getMinY()) * scale) + 0.5;
+            gc.strokeLine(0, py, width, py);
+        }
+    }
+
+    // Видима частина робочої області в її локальних координатах
+    public Bounds getVisibleBounds() {
+        Bounds viewport = workArea.sceneToLocal(scrollPane.localToScene(scrollPane.getLayoutBounds()));
+        if (viewport == null) {
+            return null;
+        }
+
+        double minX = Math.max(0, viewport.getMinX());
+        double minY = Math.max(0, viewport.getMinY());
+        double maxX = Math.min(workArea.getWidth(), viewport.getMaxX());
+        double maxY = Math.min(workArea.getHeight(), viewport.getMaxY());
+        if (maxX <= minX || maxY <= minY) {
+            return null;
+        }
+        return new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.myflowcharteditor.view;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.transform.Scale;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+// Шар зауважень перевірки схеми: червона рамка навколо проблемних елементів і текст зауваження під ними.
+// Малюється на одному Canvas у пікселях екрана під елементами, як і OutlineLayer
+public class IssueLayer extends Canvas {
+    private static final Color HALO_STROKE = Color.rgb(220, 40, 40);
+    private static final Color HALO_FILL = Color.rgb(220, 40, 40, 0.12);
+    private static final double HALO_PADDING = 4;
+    // Нижче цього масштабу текст зауважень нечитабельний, лишаються тільки рамки
+    private static final double TEXT_MIN_SCALE = 0.6;
+    private static final Font TEXT_FONT = Font.font(11);
+
+    private final Pane workArea;
+    private final Supplier<Bounds> visibleBounds;
+    private final Scale pixelScale = new Scale(1, 1, 0, 0);
+    private final Map<Long, String> issues = new HashMap<>();
+    private LongFunction<Node> resolver = id -> null;
+    private boolean redrawPending = false;
+
+    public IssueLayer(Pane workArea, Supplier<Bounds> visibleBounds, ScrollPane scrollPane) {
+        this.workArea = workArea;
+        this.visibleBounds = visibleBounds;
+
+        setManaged(false);
+        setMouseTransparent(true);
+        getTransforms().add(pixelScale);
+
+        InvalidationListener redrawListener = obs -> requestRedraw();
+        scrollPane.hvalueProperty().addListener(redrawListener);
+        scrollPane.vvalueProperty().addListener(redrawListener);
+        scrollPane.viewportBoundsProperty().addListener(redrawListener);
+        workArea.scaleXProperty().addListener(redrawListener);
+        workArea.scaleYProperty().addListener(redrawListener);
+        visibleProperty().addListener(redrawListener);
+    }
+
+    // Пошук вузла елемента за ідентифікатором з зауваження
+    public void setResolver(LongFunction<Node> resolver) {
+        this.resolver = resolver;
+        requestRedraw();
+    }
+
+    public void update(Map<Long, String> changed, Set<Long> cleared) {
+        issues.putAll(changed);
+        issues.keySet().removeAll(cleared);
+        requestRedraw();
+    }
+
+    public void requestRedraw() {
+        if (!redrawPending && isVisible()) {
+            redrawPending = true;
+            Platform.runLater(() -> {
+                redrawPending = false;
+                redraw();
+            });
+        }
+    }
+
+    private void redraw() {
+        Bounds visible = visibleBounds.get();
+        double scale = workArea.getScaleX();
+        if (!isVisible() || visible == null || scale <= 0 || issues.isEmpty()) {
+            setWidth(0);
+            setHeight(0);
+            return;
+        }
+
+        setLayoutX(visible.getMinX());
+        setLayoutY(visible.getMinY());
+        pixelScale.setX(1 / scale);
+        pixelScale.setY(1 / scale);
+        setWidth(Math.ceil(visible.getWidth() * scale));
+        setHeight(Math.ceil(visible.getHeight() * scale));
+
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        gc.setStroke(HALO_STROKE);
+        gc.setLineWidth(2);
+        gc.setFont(TEXT_FONT);
+        boolean withText = scale >= TEXT_MIN_SCALE;
+        double originX = visible.getMinX();
+        double originY = visible.getMinY();
+        issues.forEach((id, message) -> {
+            Node node = resolver.apply(id);
+            if (node == null) {
+                return;
+            }
+            Bounds bounds = node.getBoundsInParent();
+            if (!bounds.intersects(visible)) {
+                return;
+            }
+            double x = (bounds.getMinX() - originX) * scale - HALO_PADDING;
+            double y = (bounds.getMinY() - originY) * scale - HALO_PADDING;
+            double width = bounds.getWidth() * scale + 2 * HALO_PADDING;
+            double height = bounds.getHeight() * scale + 2 * HALO_PADDING;
+            gc.setFill(HALO_FILL);
+            gc.fillRoundRect(x, y, width, height, 8, 8);
+            gc.strokeRoundRect(x, y, width, height, 8, 8);
+            if (withText) {
+                gc.setFill(HALO_STROKE);
+                gc.fillText(message, x, y + height + 12);
+            }
+        });
+    }
+}
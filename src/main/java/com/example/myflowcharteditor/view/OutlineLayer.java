@@ -0,0 +1,94 @@
+package com.example.myflowcharteditor.view;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Шар для дуже малого масштабу: замість вузлів елементів малює їхні межі
+// заповненими прямокутниками на одному Canvas у пікселях екрана
+public class OutlineLayer extends Canvas {
+    private static final Color OUTLINE_FILL = Color.rgb(120, 130, 150);
+
+    private final Pane workArea;
+    private final Supplier<Bounds> visibleBounds;
+    private final Scale pixelScale = new Scale(1, 1, 0, 0);
+    private BiConsumer<Bounds, Consumer<Node>> source = (area, action) -> {
+    };
+    private boolean redrawPending = false;
+
+    public OutlineLayer(Pane workArea, Supplier<Bounds> visibleBounds, ScrollPane scrollPane) {
+        this.workArea = workArea;
+        this.visibleBounds = visibleBounds;
+
+        setManaged(false);
+        setMouseTransparent(true);
+        setVisible(false);
+        getTransforms().add(pixelScale);
+
+        InvalidationListener redrawListener = obs -> requestRedraw();
+        scrollPane.hvalueProperty().addListener(redrawListener);
+        scrollPane.vvalueProperty().addListener(redrawListener);
+        scrollPane.viewportBoundsProperty().addListener(redrawListener);
+        workArea.scaleXProperty().addListener(redrawListener);
+        workArea.scaleYProperty().addListener(redrawListener);
+        visibleProperty().addListener(redrawListener);
+    }
+
+    // Джерело меж елементів: запит до просторового індексу за видимою областю
+    public void setSource(BiConsumer<Bounds, Consumer<Node>> source) {
+        this.source = source;
+        requestRedraw();
+    }
+
+    public void requestRedraw() {
+        if (!redrawPending && isVisible()) {
+            redrawPending = true;
+            Platform.runLater(() -> {
+                redrawPending = false;
+                redraw();
+            });
+        }
+    }
+
+    private void redraw() {
+        Bounds visible = visibleBounds.get();
+        double scale = workArea.getScaleX();
+        if (!isVisible() || visible == null || scale <= 0) {
+            setWidth(0);
+            setHeight(0);
+            return;
+        }
+
+        setLayoutX(visible.getMinX());
+        setLayoutY(visible.getMinY());
+        pixelScale.setX(1 / scale);
+        pixelScale.setY(1 / scale);
+        setWidth(Math.ceil(visible.getWidth() * scale));
+        setHeight(Math.ceil(visible.getHeight() * scale));
+
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        gc.setFill(OUTLINE_FILL);
+        double originX = visible.getMinX();
+        double originY = visible.getMinY();
+        source.accept(visible, node -> {
+            Bounds bounds = node.getBoundsInParent();
+            // Навіть найменший елемент лишається помітним — щонайменше один піксель
+            gc.fillRect(Math.floor((bounds.getMinX() - originX) * scale),
+                    Math.floor((bounds.getMinY() - originY) * scale),
+                    Math.max(1, bounds.getWidth() * scale),
+                    Math.max(1, bounds.getHeight() * scale));
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.myflowcharteditor;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+// Простий заміряч для бенчмарків: кілька прогрівальних прогонів, потім медіана замірів.
+// Бенчмарки позначені тегом "benchmark" і запускаються окремо: mvn test -Pbenchmark
+public final class Benchmark {
+    public static final String TAG = "benchmark";
+    private static final int WARMUP = 3;
+    private static final int RUNS = 7;
+
+    // Результат кожного прогону, щоб JIT не викинув виміряну роботу
+    private static volatile Object sink;
+
+    private Benchmark() {
+    }
+
+    public static double medianMillis(Supplier<?> task) {
+        return medianMillis(WARMUP, RUNS, task);
+    }
+
+    public static double medianMillis(int warmup, int runs, Supplier<?> task) {
+        for (int i = 0; i < warmup; i++) {
+            sink = task.get();
+        }
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            sink = task.get();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    public static void report(String format, Object... args) {
+        System.out.printf(Locale.ROOT, format + "%n", args);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.myflowcharteditor.export;
+
+import com.example.myflowcharteditor.Benchmark;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static com.example.myflowcharteditor.Benchmark.medianMillis;
+import static com.example.myflowcharteditor.Benchmark.report;
+
+// Копіювання знімка в BufferedImage: колишній getArgb/setRGB для кожного пікселя проти масового getPixels.
+// Кодування PNG заміряється окремо: раніше воно теж виконувалось у потоці JavaFX, тепер у фоновому завданні
+@Tag(Benchmark.TAG)
+class PngExportBenchmark {
+    @Test
+    void oldAndNewCopyPaths() {
+        report("%-12s %14s %14s %14s", "canvas", "per-pixel ms", "bulk ms", "encode ms");
+        for (int size : new int[]{500, 1000, 2000, 4000}) {
+            Image image = snapshotLike(size, size);
+            double perPixelMs = medianMillis(() -> perPixelCopy(image));
+            double bulkMs = medianMillis(() -> PngExportTask.toBufferedImage(image));
+            BufferedImage bufferedImage = PngExportTask.toBufferedImage(image);
+            double encodeMs = medianMillis(1, 3, () -> {
+                try {
+                    return ImageIO.write(bufferedImage, "png", OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            report("%-12s %14.1f %14.1f %14.1f", size + "x" + size, perPixelMs, bulkMs, encodeMs);
+        }
+    }
+
+    // Так DiagramController.saveImageToFile копіював знімок до переходу на PngExportTask
+    private static BufferedImage perPixelCopy(Image image) {
+        BufferedImage bufferedImage = new BufferedImage((int) image.getWidth(), (int) image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                int argb = image.getPixelReader().getArgb(x, y);
+                bufferedImage.setRGB(x, y, argb);
+            }
+        }
+        return bufferedImage;
+    }
+
+    // Білий фон із сіткою та кольоровими блоками, схоже на справжню діаграму
+    private static Image snapshotLike(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = 0xFFFFFFFF;
+                if (x % 20 == 0 || y % 20 == 0) {
+                    argb = 0xFFE0E0E0;
+                }
+                if ((x / 100 + y / 100) % 3 == 0 && x % 100 > 10 && y % 100 > 30 && y % 100 < 70) {
+                    argb = 0xFF4A90D9;
+                }
+                pixels[y * width + x] = argb;
+            }
+        }
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.myflowcharteditor.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiagramEditsTest {
+    private final DocumentTarget target = new DocumentTarget();
+    private final UndoHistory history = new UndoHistory(1 << 20);
+
+    @Test
+    void addAndRemoveRoundTrip() {
+        ElementData first = create(ElementKind.RECTANGLE, 0, 0);
+        ElementData second = create(ElementKind.DECISION, 200, 0);
+        addRecorded(first, second);
+        String added = snapshot();
+
+        removeRecorded(first.getId());
+        String removed = snapshot();
+        assertFalse(target.document.contains(first.getId()));
+
+        history.undo();
+        assertEquals(added, snapshot());
+        history.undo();
+        assertEquals(0, target.document.size());
+        history.redo();
+        assertEquals(added, snapshot());
+        history.redo();
+        assertEquals(removed, snapshot());
+    }
+
+    @Test
+    void dragStepsMergeIntoOneMove() {
+        ElementData shape = create(ElementKind.RECTANGLE, 10, 20);
+        ElementData line = create(ElementKind.LINE, 0, 100);
+        addRecorded(shape, line);
+        String before = snapshot();
+        long[] ids = {shape.getId(), line.getId()};
+
+        history.beginGesture();
+        for (int step = 0; step < 4; step++) {
+            target.translateByIds(ids, 5, -2);
+            history.record(DiagramEdits.moved(target, ids, 5, -2));
+        }
+        history.endGesture();
+        String after = snapshot();
+
+        assertEquals(2, history.getUndoCount());
+        history.undo();
+        assertEquals(before, snapshot());
+        history.redo();
+        assertEquals(after, snapshot());
+        assertEquals(30, shape.getGeometry()[0]);
+        assertEquals(12, shape.getGeometry()[1]);
+    }
+
+    @Test
+    void reshapeLockAndArrangeRoundTrip() {
+        ElementData shape = create(ElementKind.RECTANGLE, 0, 0);
+        ElementData other = create(ElementKind.CIRCLE, 300, 0);
+        addRecorded(shape, other);
+        String initial = snapshot();
+
+        double[] reshapeBefore = shape.getGeometry().clone();
+        double[] reshapeAfter = {0, 0, 240, 80};
+        target.setGeometryById(shape.getId(), reshapeAfter);
+        history.record(DiagramEdits.reshaped(target, shape.getId(), reshapeBefore, reshapeAfter));
+
+        long[] ids = {shape.getId(), other.getId()};
+        target.setLockedByIds(ids, true);
+        history.record(DiagramEdits.locked(target, ids, true));
+
+        double[][] arrangeBefore = {target.document.get(ids[0]).getGeometry().clone(), target.document.get(ids[1]).getGeometry().clone()};
+        double[][] arrangeAfter = {{50, 50, 240, 80}, {50, 200, 50}};
+        for (int i = 0; i < ids.length; i++) {
+            target.setGeometryById(ids[i], arrangeAfter[i]);
+        }
+        history.record(DiagramEdits.arranged(target, ids, arrangeBefore, arrangeAfter));
+        String last = snapshot();
+
+        history.undo();
+        assertArrayEquals(reshapeAfter, target.document.get(shape.getId()).getGeometry());
+        history.undo();
+        assertTrue(target.locked.isEmpty());
+        history.undo();
+        assertEquals(initial, snapshot());
+
+        history.redo();
+        history.redo();
+        history.redo();
+        assertEquals(last, snapshot());
+        assertEquals(Set.of(shape.getId(), other.getId()), target.locked);
+    }
+
+    @Test
+    void loadedIdsNeverReuseIdsKeptByHistory() {
+        ElementData start = create(ElementKind.RECTANGLE, 0, 0);
+        ElementData deleted = create(ElementKind.DECISION, 200, 0);
+        addRecorded(start, deleted);
+        long deletedId = deleted.getId();
+        removeRecorded(deletedId);
+
+        // Відкритий файл має власні елементи з тими самими ідентифікаторами
+        ElementData loadedShape = ElementPrototypes.get(ElementKind.CIRCLE).instantiate(deletedId, 500, 500);
+        ElementData loadedArrow = ElementPrototypes.get(ElementKind.ARROW).instantiate(start.getId(), 600, 500);
+        loadedArrow.setStart(deletedId, 1);
+        List<ElementData> resolved = target.document.resolveIds(List.of(loadedShape, loadedArrow));
+
+        long shapeId = resolved.get(0).getId();
+        assertNotEquals(deletedId, shapeId);
+        assertNotEquals(start.getId(), resolved.get(1).getId());
+        assertEquals(shapeId, resolved.get(1).getStartShape());
+        assertEquals(0, resolved.get(1).getEndShape());
+        resolved.forEach(target.document::add);
+
+        // Скасування видалення повертає саме видалений елемент, а не торкається завантаженого
+        history.undo();
+        assertEquals(ElementKind.DECISION, target.document.get(deletedId).getKind());
+        assertEquals(ElementKind.CIRCLE, target.document.get(shapeId).getKind());
+        history.redo();
+        assertNull(target.document.get(deletedId));
+        assertEquals(ElementKind.CIRCLE, target.document.get(shapeId).getKind());
+
+        // Нові ідентифікатори не перетинаються ні з чим виданим раніше
+        assertTrue(target.document.nextId() > Math.max(shapeId, resolved.get(1).getId()));
+    }
+
+    @Test
+    void freshLoadedIdsAreKeptAndReserved() {
+        ElementData existing = create(ElementKind.RECTANGLE, 0, 0);
+        addRecorded(existing);
+        ElementData loaded = ElementPrototypes.get(ElementKind.RECTANGLE).instantiate(100, 0, 0);
+
+        List<ElementData> resolved = target.document.resolveIds(List.of(loaded));
+
+        assertEquals(100, resolved.get(0).getId());
+        assertEquals(101, target.document.nextId());
+    }
+
+    private ElementData create(ElementKind kind, double x, double y) {
+        return ElementPrototypes.get(kind).instantiate(target.document.nextId(), x, y);
+    }
+
+    private void addRecorded(ElementData... elements) {
+        List<ElementData> copies = new ArrayList<>();
+        for (ElementData element : elements) {
+            target.document.add(element);
+            copies.add(element.copy(element.getId()));
+        }
+        history.record(DiagramEdits.added(target, copies));
+    }
+
+    private void removeRecorded(long... ids) {
+        List<ElementData> copies = new ArrayList<>();
+        for (long id : ids) {
+            copies.add(target.document.get(id).copy(id));
+        }
+        target.removeByIds(ids);
+        history.record(DiagramEdits.removed(target, copies));
+    }
+
+    // Стан документа за ідентифікаторами; порядок малювання відновлює DiagramModel, тут він не перевіряється
+    private String snapshot() {
+        List<ElementData> elements = new ArrayList<>(target.document.getElements());
+        elements.sort(Comparator.comparingLong(ElementData::getId));
+        StringBuilder out = new StringBuilder();
+        for (ElementData element : elements) {
+            out.append(element.getId()).append(' ').append(element.getKind())
+                    .append(Arrays.toString(element.getGeometry())).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Застосування записів історії прямо до документа, без вузлів JavaFX
+    private static final class DocumentTarget implements DiagramEdits.Target {
+        private final DiagramDocument document = new DiagramDocument();
+        private final Set<Long> locked = new HashSet<>();
+
+        @Override
+        public void removeByIds(long[] ids) {
+            List<ElementData> removed = new ArrayList<>();
+            for (long id : ids) {
+                ElementData data = document.get(id);
+                if (data != null) {
+                    removed.add(data);
+                    locked.remove(id);
+                }
+            }
+            document.removeAll(removed);
+        }
+
+        @Override
+        public void restoreElements(List<ElementData> elements) {
+            for (ElementData data : elements) {
+                if (!document.contains(data.getId())) {
+                    document.add(data.copy(data.getId()));
+                }
+            }
+        }
+
+        @Override
+        public void translateByIds(long[] ids, double dx, double dy) {
+            for (long id : ids) {
+                ElementData data = document.get(id);
+                if (data != null) {
+                    data.translate(dx, dy);
+                }
+            }
+        }
+
+        @Override
+        public void setGeometryById(long id, double[] geometry) {
+            ElementData data = document.get(id);
+            if (data != null) {
+                data.setGeometry(geometry.clone());
+            }
+        }
+
+        @Override
+        public void setLockedByIds(long[] ids, boolean lock) {
+            for (long id : ids) {
+                if (lock) {
+                    locked.add(id);
+                } else {
+                    locked.remove(id);
+                }
+            }
+        }
+    }
+}
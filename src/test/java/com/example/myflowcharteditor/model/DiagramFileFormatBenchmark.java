@@ -0,0 +1,50 @@
+package com.example.myflowcharteditor.model;
+
+import com.example.myflowcharteditor.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.example.myflowcharteditor.Benchmark.medianMillis;
+import static com.example.myflowcharteditor.Benchmark.report;
+
+// Швидкість збереження та завантаження файлу діаграми на 10k і 100k елементів
+@Tag(Benchmark.TAG)
+class DiagramFileFormatBenchmark {
+    @TempDir
+    Path directory;
+
+    @Test
+    void saveAndLoadThroughput() throws IOException {
+        report("%-10s %-10s %10s %10s %10s %12s", "elements", "deflate", "size KB", "save ms", "load ms", "load k/s");
+        for (int count : new int[]{10_000, 100_000}) {
+            DiagramDocument document = DiagramFileFormatTest.sampleDocument(count);
+            for (boolean compress : new boolean[]{false, true}) {
+                Path file = directory.resolve(count + "-" + compress + "." + DiagramFileFormat.EXTENSION);
+                double saveMs = medianMillis(() -> {
+                    try {
+                        DiagramFileFormat.write(document, file, compress);
+                        return file;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                double loadMs = medianMillis(() -> {
+                    try {
+                        return DiagramFileFormat.read(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                long size = Files.size(file);
+                report("%-10d %-10s %10d %10.1f %10.1f %12.1f", count, compress, size / 1024,
+                        saveMs, loadMs, count / loadMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.myflowcharteditor.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DiagramFileFormatTest {
+    // Зміщення полів заголовка
+    private static final int COUNT = 8;
+    private static final int GEOMETRY_LENGTH = 12;
+    private static final int STRING_COUNT = 16;
+    private static final int BODY_LENGTH = 20;
+    private static final int RAW_BODY_LENGTH = 24;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsEveryKind() throws IOException {
+        DiagramDocument document = new DiagramDocument();
+        long id = 1;
+        for (ElementKind kind : ElementKind.values()) {
+            ElementData element = ElementPrototypes.get(kind).instantiate(id++, 12.5 * id, -3.25 * id);
+            element.setFill(0x80123456);
+            element.setStroke(0xFF654321);
+            element.setStrokeWidth(2.5);
+            if (kind == ElementKind.TEXT) {
+                element.setText("Ґанок — «текст»");
+                element.setFont("Serif", 14);
+            } else if (kind == ElementKind.IMAGE) {
+                element.setSource("/tmp/зображення.png");
+            }
+            document.add(element);
+        }
+
+        for (boolean compress : new boolean[]{false, true}) {
+            assertSameElements(document, DiagramFileFormat.fromBytes(DiagramFileFormat.toBytes(document, compress)));
+
+            Path file = directory.resolve("diagram-" + compress + "." + DiagramFileFormat.EXTENSION);
+            DiagramFileFormat.write(document, file, compress);
+            assertSameElements(document, DiagramFileFormat.read(file));
+        }
+    }
+
+    @Test
+    void roundTripKeepsAttachments() throws IOException {
+        DiagramDocument document = new DiagramDocument();
+        document.add(ElementPrototypes.get(ElementKind.RECTANGLE).instantiate(1, 0, 0));
+        document.add(ElementPrototypes.get(ElementKind.DECISION).instantiate(2, 300, 0));
+        ElementData arrow = ElementPrototypes.get(ElementKind.ARROW).instantiate(3, 100, 25);
+        arrow.setStart(1, 1);
+        arrow.setEnd(2, 3);
+        document.add(arrow);
+        ElementData line = ElementPrototypes.get(ElementKind.LINE).instantiate(4, 0, 200);
+        line.setEnd(2, 2);
+        document.add(line);
+
+        DiagramDocument read = DiagramFileFormat.fromBytes(DiagramFileFormat.toBytes(document, true));
+
+        assertSameElements(document, read);
+        assertEquals(1, read.get(3).getStartShape());
+        assertEquals(1, read.get(3).getStartPort());
+        assertEquals(2, read.get(3).getEndShape());
+        assertEquals(3, read.get(3).getEndPort());
+        assertEquals(0, read.get(4).getStartShape());
+        assertEquals(2, read.get(4).getEndPort());
+    }
+
+    @Test
+    void roundTripOfEmptyDocument() throws IOException {
+        DiagramDocument read = DiagramFileFormat.fromBytes(DiagramFileFormat.toBytes(new DiagramDocument(), true));
+        assertEquals(0, read.getElements().size());
+    }
+
+    @Test
+    void truncatedInputIsRejected() throws IOException {
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] bytes = DiagramFileFormat.toBytes(sampleDocument(50), compress);
+            for (int length = 0; length < bytes.length; length++) {
+                byte[] truncated = Arrays.copyOf(bytes, length);
+                assertThrows(IOException.class, () -> DiagramFileFormat.fromBytes(truncated), "length " + length);
+            }
+        }
+    }
+
+    @Test
+    void corruptedHeaderSizesAreRejected() throws IOException {
+        byte[] plain = DiagramFileFormat.toBytes(sampleDocument(20), false);
+        for (int field : new int[]{COUNT, GEOMETRY_LENGTH, STRING_COUNT, BODY_LENGTH}) {
+            for (int value : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 28}) {
+                assertThrows(IOException.class, () -> DiagramFileFormat.fromBytes(withHeaderInt(plain, field, value)),
+                        "field " + field + " = " + value);
+            }
+        }
+        byte[] compressed = DiagramFileFormat.toBytes(sampleDocument(20), true);
+        for (int value : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            assertThrows(IOException.class, () -> DiagramFileFormat.fromBytes(withHeaderInt(compressed, RAW_BODY_LENGTH, value)));
+        }
+    }
+
+    @Test
+    void corruptedBodyFailsOnlyWithIOException() throws IOException {
+        Random random = new Random(42);
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] bytes = DiagramFileFormat.toBytes(sampleDocument(30), compress);
+            for (int trial = 0; trial < 2000; trial++) {
+                byte[] corrupted = bytes.clone();
+                for (int flips = 1 + random.nextInt(4); flips > 0; flips--) {
+                    int index = 32 + random.nextInt(corrupted.length - 32);
+                    corrupted[index] = (byte) random.nextInt(256);
+                }
+                try {
+                    DiagramFileFormat.fromBytes(corrupted);
+                } catch (IOException expected) {
+                    // Пошкодження, яке помітив читач
+                }
+            }
+        }
+    }
+
+    @Test
+    void malformedElementsAreRejected() throws IOException {
+        List<ElementData> malformed = List.of(
+                new ElementData(1, ElementKind.RECTANGLE, new double[]{0, 0, 100}),
+                new ElementData(1, ElementKind.ELLIPSE, new double[]{0, 0}),
+                new ElementData(1, ElementKind.CIRCLE, new double[]{0, 0}),
+                new ElementData(1, ElementKind.DECISION, new double[]{0, 0, 50, 0, 100}),
+                new ElementData(1, ElementKind.TRIANGLE, new double[]{0, 0, 50, 0}),
+                new ElementData(1, ElementKind.LINE, new double[]{0, 0, 50}),
+                new ElementData(1, ElementKind.LINE, new double[]{0, 0}),
+                new ElementData(1, ElementKind.ARROW, new double[]{0, 0, 150, 0, 145, -5, 160, 0}),
+                new ElementData(1, ElementKind.ARROW, new double[]{0, 0, 150, 0, 150, -5, 160, 0, 150, 5, 1}),
+                // Підпис без тексту та фігури без шляху до зображення
+                new ElementData(1, ElementKind.TEXT, new double[]{0, 0, 100, -1}),
+                new ElementData(1, ElementKind.PROCESS, new double[]{0, 0, 100, 60}),
+                new ElementData(1, ElementKind.IMAGE, new double[]{0, 0, 100, 60}));
+        for (ElementData element : malformed) {
+            DiagramDocument document = sampleDocument(3);
+            ElementData copy = element.copy(document.nextId());
+            document.add(copy);
+            for (boolean compress : new boolean[]{false, true}) {
+                byte[] bytes = DiagramFileFormat.toBytes(document, compress);
+                IOException error = assertThrows(IOException.class, () -> DiagramFileFormat.fromBytes(bytes),
+                        copy.getKind() + " " + Arrays.toString(copy.getGeometry()));
+                assertEquals("Corrupted diagram element 3", error.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void readsVersionOneWithoutAttachments() throws IOException {
+        DiagramDocument document = sampleDocument(5);
+        DiagramDocument read = DiagramFileFormat.fromBytes(toVersionOne(document));
+        assertEquals(5, read.getElements().size());
+        for (ElementData element : read.getElements()) {
+            assertEquals(0, element.getStartShape());
+            assertEquals(0, element.getEndShape());
+            assertArrayEquals(document.get(element.getId()).getGeometry(), element.getGeometry());
+        }
+    }
+
+    static DiagramDocument sampleDocument(int count) {
+        DiagramDocument document = new DiagramDocument();
+        ElementKind[] kinds = ElementKind.values();
+        for (int i = 0; i < count; i++) {
+            ElementData element = ElementPrototypes.get(kinds[i % kinds.length]).instantiate(i + 1, i * 40, i * 15);
+            if (element.getKind().isConnector() && i > 0) {
+                element.setStart(i, i % ElementData.PORT_COUNT);
+            } else if (element.getKind() == ElementKind.IMAGE) {
+                element.setSource("/tmp/image-" + i + ".png");
+            }
+            document.add(element);
+        }
+        return document;
+    }
+
+    private static void assertSameElements(DiagramDocument expected, DiagramDocument actual) {
+        List<ElementData> expectedElements = expected.getElements();
+        List<ElementData> actualElements = actual.getElements();
+        assertEquals(expectedElements.size(), actualElements.size());
+        for (int i = 0; i < expectedElements.size(); i++) {
+            ElementData e = expectedElements.get(i);
+            ElementData a = actualElements.get(i);
+            String kind = e.getKind().name();
+            assertEquals(e.getId(), a.getId(), kind);
+            assertEquals(e.getKind(), a.getKind(), kind);
+            assertArrayEquals(e.getGeometry(), a.getGeometry(), kind);
+            assertEquals(e.getFill(), a.getFill(), kind);
+            assertEquals(e.getStroke(), a.getStroke(), kind);
+            assertEquals(e.getStrokeWidth(), a.getStrokeWidth(), kind);
+            assertEquals(e.getText(), a.getText(), kind);
+            assertEquals(e.getFontFamily(), a.getFontFamily(), kind);
+            assertEquals(e.getFontSize(), a.getFontSize(), kind);
+            assertEquals(e.getSource(), a.getSource(), kind);
+            assertEquals(e.getStartShape(), a.getStartShape(), kind);
+            assertEquals(e.getStartPort(), a.getStartPort(), kind);
+            assertEquals(e.getEndShape(), a.getEndShape(), kind);
+            assertEquals(e.getEndPort(), a.getEndPort(), kind);
+        }
+    }
+
+    private static byte[] withHeaderInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+
+    // Файл версії 1: ті самі колонки без startShape, endShape, startPort, endPort
+    private static byte[] toVersionOne(DiagramDocument document) throws IOException {
+        ByteBuffer v2 = ByteBuffer.wrap(DiagramFileFormat.toBytes(document, false)).order(ByteOrder.LITTLE_ENDIAN);
+        int count = v2.getInt(COUNT);
+        int geometryLength = v2.getInt(GEOMETRY_LENGTH);
+        int bodyLength = v2.getInt(BODY_LENGTH);
+        ByteBuffer body = v2.slice(32, bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+
+        int ids = count * 8;
+        int attachments = count * 16;
+        int middle = geometryLength * 8 + count * 16 + (count + 1) * 4 + count * 20 + count;
+        int ports = count * 2;
+        int strings = bodyLength - ids - attachments - middle - ports;
+
+        ByteBuffer v1 = ByteBuffer.allocate(32 + bodyLength - attachments - ports).order(ByteOrder.LITTLE_ENDIAN);
+        v1.put(v2.slice(0, 32));
+        v1.put(body.slice(0, ids));
+        v1.put(body.slice(ids + attachments, middle));
+        v1.put(body.slice(ids + attachments + middle + ports, strings));
+        v1.putShort(4, (short) 1);
+        v1.putInt(BODY_LENGTH, bodyLength - attachments - ports);
+        v1.putInt(RAW_BODY_LENGTH, bodyLength - attachments - ports);
+        return v1.array();
+    }
+}
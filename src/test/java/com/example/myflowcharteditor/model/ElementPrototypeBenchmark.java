@@ -0,0 +1,129 @@
+package com.example.myflowcharteditor.model;
+
+import com.example.myflowcharteditor.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.myflowcharteditor.Benchmark.medianMillis;
+import static com.example.myflowcharteditor.Benchmark.report;
+
+// Створення і вставка 10k елементів: шаблони ElementPrototype проти колишнього switch у ElementFactory
+// та копіювання з подальшим translate. Вузли JavaFX будуються однаково в обох випадках, тож не заміряються
+@Tag(Benchmark.TAG)
+class ElementPrototypeBenchmark {
+    private static final int COUNT = 10_000;
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    @Test
+    void createAndPasteThroughput() {
+        ElementKind[] kinds = Arrays.stream(ElementKind.values())
+                .filter(kind -> kind != ElementKind.IMAGE)
+                .toArray(ElementKind[]::new);
+
+        double oldCreateMs = medianMillis(10, 15, () -> {
+            List<ElementData> created = new ArrayList<>(COUNT);
+            for (int i = 0; i < COUNT; i++) {
+                created.add(legacyCreate(kinds[i % kinds.length], i, i * 3, i * 2));
+            }
+            return created;
+        });
+        double newCreateMs = medianMillis(10, 15, () -> {
+            List<ElementData> created = new ArrayList<>(COUNT);
+            for (int i = 0; i < COUNT; i++) {
+                created.add(ElementPrototypes.get(kinds[i % kinds.length]).instantiate(i, i * 3, i * 2));
+            }
+            return created;
+        });
+
+        List<ElementData> clipboard = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            clipboard.add(ElementPrototypes.get(kinds[i % kinds.length]).instantiate(i, i * 3, i * 2));
+        }
+        double oldPasteMs = medianMillis(10, 15, () -> {
+            List<ElementData> pasted = new ArrayList<>(COUNT);
+            long id = COUNT;
+            for (ElementData data : clipboard) {
+                ElementData copy = data.copy(id++);
+                copy.translate(20, 20);
+                pasted.add(copy);
+            }
+            return pasted;
+        });
+        double newPasteMs = medianMillis(10, 15, () -> {
+            List<ElementData> pasted = new ArrayList<>(COUNT);
+            long id = COUNT;
+            for (ElementData data : clipboard) {
+                pasted.add(data.copy(id++, 20, 20));
+            }
+            return pasted;
+        });
+
+        report("%-8s %12s %12s %14s", COUNT / 1000 + "k", "old ms", "new ms", "new M elem/s");
+        report("%-8s %12.2f %12.2f %14.1f", "create", oldCreateMs, newCreateMs, COUNT / newCreateMs / 1000);
+        report("%-8s %12.2f %12.2f %14.1f", "paste", oldPasteMs, newPasteMs, COUNT / newPasteMs / 1000);
+    }
+
+    // Так ElementFactory.createData будував дані елемента до появи шаблонів
+    private static ElementData legacyCreate(ElementKind kind, long id, double x, double y) {
+        switch (kind) {
+            case RECTANGLE:
+                return shape(id, kind, x, y, 100, 50);
+            case CIRCLE:
+                return shape(id, kind, x, y, 50);
+            case ELLIPSE:
+                return shape(id, kind, x, y, 50, 30);
+            case LINE: {
+                ElementData line = new ElementData(id, kind, new double[]{x, y, x + 50, y, x + 100, y, x + 150, y});
+                line.setStroke(BLACK);
+                return line;
+            }
+            case ARROW: {
+                ElementData arrow = new ElementData(id, kind, new double[]{
+                        x, y, x + 50, y, x + 100, y, x + 150, y,
+                        x + 150.0, y - 5.0, x + 160.0, y, x + 150.0, y + 5.0
+                });
+                arrow.setStroke(BLACK);
+                arrow.setFill(BLACK);
+                return arrow;
+            }
+            case TRIANGLE:
+                return shape(id, kind, x, y, 50.0, 0.0, 0.0, 100.0, 100.0, 100.0);
+            case DECISION:
+                return shape(id, kind, x, y, 50.0, 0.0, 100.0, 50.0, 50.0, 100.0, 0.0, 50.0);
+            case INPUT_OUTPUT:
+                return shape(id, kind, x, y, 0.0, 0.0, 80.0, 0.0, 100.0, 50.0, 20.0, 50.0);
+            case PROCESS:
+            case STORAGE:
+            case STEP:
+            case DOCUMENT:
+            case ACTOR: {
+                ElementData image = new ElementData(id, kind, new double[]{x, y, 100, 60});
+                image.setSource(kind.getResource());
+                return image;
+            }
+            case TEXT: {
+                ElementData text = new ElementData(id, kind, new double[]{x, y, 100, -1});
+                text.setText("text");
+                return text;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported element type: " + kind);
+        }
+    }
+
+    private static ElementData shape(long id, ElementKind kind, double x, double y, double... size) {
+        double[] geometry = new double[size.length + 2];
+        geometry[0] = x;
+        geometry[1] = y;
+        System.arraycopy(size, 0, geometry, 2, size.length);
+        ElementData shape = new ElementData(id, kind, geometry);
+        shape.setFill(WHITE);
+        shape.setStroke(BLACK);
+        return shape;
+    }
+}
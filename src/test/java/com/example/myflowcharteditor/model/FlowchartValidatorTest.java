@@ -0,0 +1,131 @@
+package com.example.myflowcharteditor.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FlowchartValidatorTest {
+    private FlowchartValidator validator;
+    // Поточний набір зауважень, зібраний із послідовних повідомлень слухачу
+    private final Map<Long, String> issues = new HashMap<>();
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        // Слухач викликається прямо в потоці перевірки; awaitIdle дає видимість змін
+        validator = new FlowchartValidator(Runnable::run);
+        validator.setListener((changed, cleared) -> {
+            issues.putAll(changed);
+            issues.keySet().removeAll(cleared);
+        });
+    }
+
+    @Test
+    void danglingArrowIsReportedUntilBothEndsAttach() throws InterruptedException {
+        ElementData start = add(ElementKind.ELLIPSE);
+        ElementData step = add(ElementKind.RECTANGLE);
+        ElementData arrow = arrow(start, null);
+        assertEquals(FlowchartValidator.DANGLING, issue(arrow));
+
+        arrow.setEnd(step.getId(), 0);
+        validator.elementChanged(arrow);
+        assertNull(issue(arrow));
+
+        // Фігура на кінці зникла — стрілка знову висяча
+        remove(step);
+        assertEquals(FlowchartValidator.DANGLING, issue(arrow));
+    }
+
+    @Test
+    void decisionNeedsTwoOutputs() throws InterruptedException {
+        ElementData start = add(ElementKind.ELLIPSE);
+        ElementData decision = add(ElementKind.DECISION);
+        ElementData yes = add(ElementKind.RECTANGLE);
+        ElementData no = add(ElementKind.RECTANGLE);
+        arrow(start, decision);
+        arrow(decision, yes);
+        assertEquals(FlowchartValidator.DECISION_OUTPUTS, issue(decision));
+
+        ElementData second = arrow(decision, no);
+        assertNull(issue(decision));
+
+        remove(second);
+        assertEquals(FlowchartValidator.DECISION_OUTPUTS, issue(decision));
+    }
+
+    @Test
+    void blockWithoutPathFromStartIsUnreachable() throws InterruptedException {
+        ElementData start = add(ElementKind.ELLIPSE);
+        ElementData first = add(ElementKind.RECTANGLE);
+        ElementData orphan = add(ElementKind.INPUT_OUTPUT);
+        arrow(start, first);
+        assertNull(issue(first));
+        assertEquals(FlowchartValidator.UNREACHABLE, issue(orphan));
+
+        ElementData link = arrow(first, orphan);
+        assertNull(issue(orphan));
+
+        remove(link);
+        assertEquals(FlowchartValidator.UNREACHABLE, issue(orphan));
+
+        // Зауваження вилученого блока знімається разом із ним
+        remove(orphan);
+        assertNull(issue(orphan));
+    }
+
+    @Test
+    void cycleWithoutDecisionIsReported() throws InterruptedException {
+        ElementData start = add(ElementKind.ELLIPSE);
+        ElementData first = add(ElementKind.RECTANGLE);
+        ElementData second = add(ElementKind.RECTANGLE);
+        ElementData end = add(ElementKind.ELLIPSE);
+        arrow(start, first);
+        arrow(first, second);
+        ElementData back = arrow(second, first);
+        assertEquals(FlowchartValidator.CYCLE, issue(first));
+        assertEquals(FlowchartValidator.CYCLE, issue(second));
+        assertNull(issue(start));
+
+        // Стрілку перенесено на кінець схеми — циклу більше немає
+        back.setEnd(end.getId(), 0);
+        validator.elementChanged(back);
+        assertNull(issue(first));
+        assertNull(issue(second));
+        assertNull(issue(end));
+    }
+
+    @Test
+    void issuesOnOneBlockAreJoined() throws InterruptedException {
+        add(ElementKind.ELLIPSE);
+        ElementData decision = add(ElementKind.DECISION);
+        assertEquals(FlowchartValidator.DECISION_OUTPUTS + "; " + FlowchartValidator.UNREACHABLE, issue(decision));
+    }
+
+    private ElementData add(ElementKind kind) {
+        ElementData data = ElementPrototypes.get(kind).instantiate(nextId++, 0, 0);
+        validator.elementAdded(data);
+        return data;
+    }
+
+    private ElementData arrow(ElementData source, ElementData target) {
+        ElementData arrow = ElementPrototypes.get(ElementKind.ARROW).instantiate(nextId++, 0, 0);
+        arrow.setStart(source == null ? 0 : source.getId(), 0);
+        arrow.setEnd(target == null ? 0 : target.getId(), 0);
+        validator.elementAdded(arrow);
+        return arrow;
+    }
+
+    private void remove(ElementData data) {
+        validator.elementRemoved(data);
+    }
+
+    private String issue(ElementData data) throws InterruptedException {
+        validator.awaitIdle();
+        return issues.get(data.getId());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.myflowcharteditor.model;
+
+import javafx.scene.Group;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ImagePyramidTest {
+    @TempDir
+    Path directory;
+
+    // Завдання для потоку JavaFX; тест виконує їх сам
+    private final BlockingQueue<Runnable> fxThread = new LinkedBlockingQueue<>();
+    private final List<Integer> loadedLevels = new CopyOnWriteArrayList<>();
+
+    @Test
+    void everyViewBoundBeforeHeaderLeavesLoading() throws Exception {
+        ImagePyramid pyramid = pyramid(500, 300);
+        ImageView first = view(100, 60);
+        ImageView second = view(100, 60);
+        pyramid.bind(first);
+        pyramid.bind(second);
+        assertEquals(1, first.getImage().getWidth());
+        assertEquals(1, second.getImage().getWidth());
+
+        runHeaderCallback();
+
+        assertEquals(128, first.getImage().getWidth());
+        assertEquals(128, second.getImage().getWidth());
+    }
+
+    @Test
+    void reparentingUnderScaledAncestorKeepsLevel() throws Exception {
+        ImagePyramid pyramid = pyramid(2000, 1000);
+        Pane workArea = new Pane();
+        workArea.setScaleX(2);
+        workArea.setScaleY(2);
+        // Як DragLayer: група без власного масштабу всередині робочої області
+        Group dragLayer = new Group();
+        ImageView view = view(100, 60);
+        workArea.getChildren().addAll(view, dragLayer);
+        pyramid.bind(view);
+        runHeaderCallback();
+        assertEquals(256, view.getImage().getWidth());
+        int loads = loadedLevels.size();
+
+        dragLayer.getChildren().add(view);
+        workArea.getChildren().add(0, view);
+
+        assertEquals(256, view.getImage().getWidth());
+        assertEquals(loads, loadedLevels.size());
+
+        workArea.setScaleX(0.5);
+        assertEquals(64, view.getImage().getWidth());
+    }
+
+    private ImagePyramid pyramid(int width, int height) throws IOException {
+        Path file = directory.resolve(width + "x" + height + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return new ImagePyramid(file.toString(), fxThread::add) {
+            @Override
+            Image loadLevel(int level, boolean background) {
+                loadedLevels.add(level);
+                return new WritableImage(level, level);
+            }
+        };
+    }
+
+    private static ImageView view(double width, double height) {
+        ImageView view = new ImageView();
+        view.setFitWidth(width);
+        view.setFitHeight(height);
+        return view;
+    }
+
+    private void runHeaderCallback() throws InterruptedException {
+        Runnable callback = fxThread.poll(10, TimeUnit.SECONDS);
+        assertNotNull(callback, "header was not read");
+        callback.run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.myflowcharteditor.model;
+
+import com.example.myflowcharteditor.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.example.myflowcharteditor.Benchmark.medianMillis;
+import static com.example.myflowcharteditor.Benchmark.report;
+
+// Автокомпонування синтетичних блок-схем на 1k/10k/50k вузлів: один потік проти спільного ForkJoinPool
+@Tag(Benchmark.TAG)
+class LayeredLayoutBenchmark {
+    @Test
+    void layoutOfSyntheticFlows() {
+        ForkJoinPool sequential = new ForkJoinPool(1);
+        ForkJoinPool parallel = ForkJoinPool.commonPool();
+        try {
+            report("%-8s %8s %14s %14s %12s  (%d threads)", "nodes", "edges", "1 thread ms", "parallel ms",
+                    "crossings", parallel.getParallelism());
+            for (int count : new int[]{1_000, 10_000, 50_000}) {
+                LayeredLayout.Graph graph = syntheticFlow(count, 11);
+                int warmup = count >= 50_000 ? 1 : 3;
+                int runs = count >= 50_000 ? 3 : 5;
+                double sequentialMs = medianMillis(warmup, runs, () -> new LayeredLayout(sequential).layout(graph));
+                double parallelMs = medianMillis(warmup, runs, () -> new LayeredLayout(parallel).layout(graph));
+                long crossings = new LayeredLayout(parallel).layout(graph).getCrossings();
+                report("%-8d %8d %14.1f %14.1f %12d", count, graph.edgeCount(), sequentialMs, parallelMs, crossings);
+            }
+        } finally {
+            sequential.shutdown();
+        }
+    }
+
+    // Схожа на згенеровані процеси схема: ланцюжок кроків, кожне п'яте рішення має друге відгалуження
+    // вперед, кожне сорокове рішення повертає потік назад (цикл)
+    static LayeredLayout.Graph syntheticFlow(int count, long seed) {
+        Random random = new Random(seed);
+        long[] nodeIds = new long[count];
+        double[] widths = new double[count];
+        double[] heights = new double[count];
+        int edgeCapacity = count + count / 5 + 1;
+        int[] sources = new int[edgeCapacity];
+        int[] targets = new int[edgeCapacity];
+        int edges = 0;
+        for (int i = 0; i < count; i++) {
+            boolean decision = i % 5 == 4;
+            nodeIds[i] = i + 1;
+            widths[i] = 100;
+            heights[i] = decision ? 100 : 60;
+            if (i + 1 < count) {
+                sources[edges] = i;
+                targets[edges++] = i + 1;
+            }
+            if (decision) {
+                int target = i % 40 == 39
+                        ? Math.max(0, i - 1 - random.nextInt(30))
+                        : Math.min(count - 1, i + 2 + random.nextInt(20));
+                sources[edges] = i;
+                targets[edges++] = target;
+            }
+        }
+        long[] edgeIds = new long[edges];
+        for (int i = 0; i < edges; i++) {
+            edgeIds[i] = count + 1 + i;
+        }
+        return new LayeredLayout.Graph(nodeIds, widths, heights, edgeIds,
+                Arrays.copyOf(sources, edges), Arrays.copyOf(targets, edges), 0, 0);
+    }
+}
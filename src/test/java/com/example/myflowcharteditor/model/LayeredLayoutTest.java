@@ -0,0 +1,143 @@
+package com.example.myflowcharteditor.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LayeredLayoutTest {
+    @Test
+    void acyclicGraphKeepsEdgesPointingDown() {
+        LayeredLayout.Graph graph = randomDag(300, 2, 9);
+        LayeredLayout.Result result = new LayeredLayout(ForkJoinPool.commonPool()).layout(graph);
+
+        assertNoOverlaps(graph, result);
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            int source = graph.sources[edge];
+            int target = graph.targets[edge];
+            double sourceBottom = result.getY(source) + graph.heights[source];
+            double targetTop = result.getY(target);
+            assertTrue(sourceBottom < targetTop, "edge " + edge + " goes up or sideways");
+
+            // Проміжні точки довгого ребра йдуть згори вниз між його кінцями
+            double[] bends = result.getBends(edge);
+            double previous = sourceBottom;
+            for (int i = 1; i < bends.length; i += 2) {
+                assertTrue(bends[i] >= previous && bends[i] <= targetTop, "edge " + edge + " bend " + i / 2);
+                previous = bends[i];
+            }
+        }
+    }
+
+    @Test
+    void chainIsStackedInOrder() {
+        int count = 6;
+        long[] nodeIds = new long[count];
+        double[] sizes = new double[count];
+        Arrays.fill(sizes, 50);
+        long[] edgeIds = new long[count - 1];
+        int[] sources = new int[count - 1];
+        int[] targets = new int[count - 1];
+        for (int i = 0; i < count; i++) {
+            nodeIds[i] = i + 1;
+        }
+        // Ребра задані у зворотному порядку, щоб порядок шарів не збігався з порядком вводу
+        for (int i = 0; i < count - 1; i++) {
+            edgeIds[i] = 100 + i;
+            sources[i] = count - 2 - i;
+            targets[i] = count - 1 - i;
+        }
+        LayeredLayout.Graph graph = new LayeredLayout.Graph(nodeIds, sizes, sizes, edgeIds, sources, targets, 40, 70);
+        LayeredLayout.Result result = new LayeredLayout(ForkJoinPool.commonPool()).layout(graph);
+
+        assertEquals(70, result.getY(0));
+        for (int i = 1; i < count; i++) {
+            assertTrue(result.getY(i) > result.getY(i - 1), "node " + i);
+        }
+        assertEquals(0, result.getCrossings());
+    }
+
+    @Test
+    void cyclicFlowIsLaidOutWithoutOverlaps() {
+        LayeredLayout.Graph graph = LayeredLayoutBenchmark.syntheticFlow(500, 3);
+        LayeredLayout.Result result = new LayeredLayout(ForkJoinPool.commonPool()).layout(graph);
+
+        assertNoOverlaps(graph, result);
+        for (int node = 0; node < graph.size(); node++) {
+            assertTrue(result.getX(node) >= graph.originX && result.getY(node) >= graph.originY, "node " + node);
+        }
+    }
+
+    @Test
+    void parallelLayoutMatchesSequential() {
+        // Більше за поріг розпаралелювання, щоб широкі шари справді ділились на частини
+        LayeredLayout.Graph graph = randomDag(3000, 1, 21);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            LayeredLayout.Result expected = new LayeredLayout(single).layout(graph);
+            LayeredLayout.Result actual = new LayeredLayout(parallel).layout(graph);
+            assertEquals(expected.getCrossings(), actual.getCrossings());
+            for (int node = 0; node < graph.size(); node++) {
+                assertEquals(expected.getX(node), actual.getX(node), "node " + node);
+                assertEquals(expected.getY(node), actual.getY(node), "node " + node);
+            }
+            for (int edge = 0; edge < graph.edgeCount(); edge++) {
+                assertArrayEquals(expected.getBends(edge), actual.getBends(edge), "edge " + edge);
+            }
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    // Випадковий ациклічний граф: ребра лише від меншого індексу до більшого, переважно до близьких вузлів,
+    // тому шари виходять широкими
+    private static LayeredLayout.Graph randomDag(int count, int edgesPerNode, long seed) {
+        Random random = new Random(seed);
+        long[] nodeIds = new long[count];
+        double[] widths = new double[count];
+        double[] heights = new double[count];
+        for (int i = 0; i < count; i++) {
+            nodeIds[i] = i + 1;
+            widths[i] = 40 + random.nextInt(80);
+            heights[i] = 30 + random.nextInt(60);
+        }
+        int edges = (count - 1) * edgesPerNode;
+        long[] edgeIds = new long[edges];
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for (int i = 0; i < edges; i++) {
+            int source = i / edgesPerNode;
+            edgeIds[i] = count + 1 + i;
+            sources[i] = source;
+            targets[i] = Math.min(count - 1, source + 1 + random.nextInt(Math.max(1, count / 10)));
+        }
+        return new LayeredLayout.Graph(nodeIds, widths, heights, edgeIds, sources, targets, 0, 0);
+    }
+
+    private static void assertNoOverlaps(LayeredLayout.Graph graph, LayeredLayout.Result result) {
+        Integer[] order = new Integer[graph.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(result.getX(a), result.getX(b)));
+        // Розгортка за x: порівнюються лише вузли, що перекриваються по горизонталі
+        for (int i = 0; i < order.length; i++) {
+            int a = order[i];
+            double right = result.getX(a) + graph.widths[a];
+            for (int j = i + 1; j < order.length && result.getX(order[j]) < right; j++) {
+                int b = order[j];
+                boolean overlap = result.getY(a) < result.getY(b) + graph.heights[b]
+                        && result.getY(b) < result.getY(a) + graph.heights[a];
+                assertFalse(overlap, "nodes " + a + " and " + b + " overlap");
+            }
+        }
+    }
+}
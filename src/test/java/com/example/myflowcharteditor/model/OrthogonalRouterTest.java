@@ -0,0 +1,153 @@
+package com.example.myflowcharteditor.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrthogonalRouterTest {
+    @Test
+    void routeIsOrthogonalAndGoesAroundObstacles() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        List<double[]> boxes = List.of(
+                new double[]{0, 0, 100, 60},
+                new double[]{400, 0, 500, 60},
+                // Стіна між фігурами на прямому шляху
+                new double[]{200, -200, 260, 260});
+        for (int i = 0; i < boxes.size(); i++) {
+            double[] box = boxes.get(i);
+            router.setObstacle(i + 1, box[0], box[1], box[2], box[3]);
+        }
+
+        double[] endpoints = {100, 30, 400, 30};
+        double[] route = router.routeAll(new long[]{10}, endpoints)[0];
+
+        assertRoute(route, endpoints, 0, boxes);
+        assertTrue(route.length > 4, "straight line would cross the wall");
+    }
+
+    @Test
+    void randomLayoutsRouteWithoutCrossingShapes() {
+        Random random = new Random(5);
+        OrthogonalRouter router = new OrthogonalRouter();
+        // Фігури в клітинках сітки, щоб вони не перекривались
+        List<double[]> boxes = new ArrayList<>();
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                if (random.nextInt(4) != 0) {
+                    double x = column * 200 + random.nextInt(60);
+                    double y = row * 160 + random.nextInt(40);
+                    boxes.add(new double[]{x, y, x + 60 + random.nextInt(60), y + 40 + random.nextInt(50)});
+                }
+            }
+        }
+        for (int i = 0; i < boxes.size(); i++) {
+            double[] box = boxes.get(i);
+            router.setObstacle(i + 1, box[0], box[1], box[2], box[3]);
+        }
+
+        int count = 60;
+        long[] ids = new long[count];
+        double[] endpoints = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            double[] source = boxes.get(random.nextInt(boxes.size()));
+            double[] target = boxes.get(random.nextInt(boxes.size()));
+            ids[i] = 1000 + i;
+            // Від правого краю однієї фігури до лівого краю іншої
+            endpoints[i * 4] = source[2];
+            endpoints[i * 4 + 1] = (source[1] + source[3]) / 2;
+            endpoints[i * 4 + 2] = target[0];
+            endpoints[i * 4 + 3] = (target[1] + target[3]) / 2;
+        }
+
+        double[][] routes = router.routeAll(ids, endpoints);
+        for (int i = 0; i < count; i++) {
+            assertRoute(routes[i], endpoints, i, boxes);
+        }
+    }
+
+    @Test
+    void unchangedRoutesComeFromCache() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        router.setObstacle(1, 0, 0, 100, 60);
+        router.setObstacle(2, 400, 0, 500, 60);
+        long[] ids = {10};
+        double[] endpoints = {100, 30, 400, 30};
+
+        double[] first = router.routeAll(ids, endpoints)[0];
+        assertEquals(1, router.getComputedCount());
+
+        assertSame(first, router.routeAll(ids, endpoints)[0]);
+        assertEquals(1, router.getComputedCount());
+
+        // Та сама перешкода з тими самими межами нічого не змінює
+        router.setObstacle(1, 0, 0, 100, 60);
+        router.routeAll(ids, endpoints);
+        assertEquals(1, router.getComputedCount());
+
+        // Інші кінці — новий маршрут
+        router.routeAll(ids, new double[]{100, 30, 400, 40});
+        assertEquals(2, router.getComputedCount());
+    }
+
+    @Test
+    void movingObstacleOntoPathInvalidatesRoute() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        router.setObstacle(1, 0, 0, 100, 60);
+        router.setObstacle(2, 400, 0, 500, 60);
+        router.setObstacle(3, 3000, 3000, 3100, 3100);
+        long[] ids = {10};
+        double[] endpoints = {100, 30, 400, 30};
+        router.routeAll(ids, endpoints);
+        assertEquals(1, router.getComputedCount());
+
+        // Далеке переміщення не зачіпає маршрут
+        router.setObstacle(3, 3200, 3200, 3300, 3300);
+        router.routeAll(ids, endpoints);
+        assertEquals(1, router.getComputedCount());
+
+        // Перешкода лягає на шлях
+        double[] blocker = {220, -20, 280, 80};
+        router.setObstacle(3, blocker[0], blocker[1], blocker[2], blocker[3]);
+        double[] rerouted = router.routeAll(ids, endpoints)[0];
+        assertEquals(2, router.getComputedCount());
+        assertRoute(rerouted, endpoints, 0, List.of(new double[]{0, 0, 100, 60}, new double[]{400, 0, 500, 60}, blocker));
+
+        // Перешкода зникає з шляху під час синхронізації — маршрут знову рахується
+        router.beginSync();
+        router.setObstacle(1, 0, 0, 100, 60);
+        router.setObstacle(2, 400, 0, 500, 60);
+        router.endSync();
+        double[] straight = router.routeAll(ids, endpoints)[0];
+        assertEquals(3, router.getComputedCount());
+        assertEquals(4, straight.length);
+    }
+
+    // Маршрут починається і закінчується в заданих точках, усі відрізки горизонтальні або вертикальні
+    // і жоден не заходить усередину фігури
+    private static void assertRoute(double[] route, double[] endpoints, int index, List<double[]> boxes) {
+        int e = index * 4;
+        String name = "route " + index;
+        assertTrue(route.length >= 4 && route.length % 2 == 0, name);
+        assertEquals(endpoints[e], route[0], name);
+        assertEquals(endpoints[e + 1], route[1], name);
+        assertEquals(endpoints[e + 2], route[route.length - 2], name);
+        assertEquals(endpoints[e + 3], route[route.length - 1], name);
+        for (int i = 0; i + 3 < route.length; i += 2) {
+            double x1 = route[i], y1 = route[i + 1], x2 = route[i + 2], y2 = route[i + 3];
+            assertTrue(x1 == x2 || y1 == y2, name + " segment " + i / 2 + " is diagonal");
+            for (double[] box : boxes) {
+                assertFalse(Math.min(x1, x2) < box[2] && Math.max(x1, x2) > box[0]
+                                && Math.min(y1, y2) < box[3] && Math.max(y1, y2) > box[1],
+                        name + " segment " + i / 2 + " crosses " + Arrays.toString(box));
+            }
+        }
+    }
+}
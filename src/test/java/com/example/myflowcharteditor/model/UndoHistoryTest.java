@@ -0,0 +1,184 @@
+package com.example.myflowcharteditor.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UndoHistoryTest {
+    private final List<String> log = new ArrayList<>();
+
+    @Test
+    void undoAndRedoRunInStackOrder() {
+        UndoHistory history = new UndoHistory(1000);
+        history.record(new Step("a", 10));
+        history.record(new Step("b", 10));
+
+        assertTrue(history.undo());
+        assertTrue(history.undo());
+        assertFalse(history.undo());
+        assertTrue(history.redo());
+        assertTrue(history.redo());
+        assertFalse(history.redo());
+
+        assertEquals(List.of("undo b", "undo a", "redo a", "redo b"), log);
+    }
+
+    @Test
+    void recordClearsRedo() {
+        UndoHistory history = new UndoHistory(1000);
+        history.record(new Step("a", 10));
+        history.record(new Step("b", 20));
+        history.undo();
+        assertTrue(history.canRedo());
+        assertEquals(30, history.getSizeInBytes());
+
+        history.record(new Step("c", 5));
+
+        assertFalse(history.canRedo());
+        assertFalse(history.redo());
+        assertEquals(15, history.getSizeInBytes());
+        assertEquals(2, history.getUndoCount());
+    }
+
+    @Test
+    void editsOfOneGestureMerge() {
+        UndoHistory history = new UndoHistory(1000);
+        history.record(new Step("before", 10));
+        history.beginGesture();
+        history.record(new Step("drag", 10));
+        history.record(new Step("drag", 10));
+        history.record(new Step("drag", 10));
+        history.endGesture();
+        // Після завершення жесту той самий запис уже не зливається
+        history.record(new Step("drag", 10));
+
+        assertEquals(3, history.getUndoCount());
+        assertEquals(10 + 30 + 10, history.getSizeInBytes());
+        history.undo();
+        history.undo();
+        assertEquals(List.of("undo drag", "undo drag x3"), log);
+    }
+
+    @Test
+    void gestureDoesNotMergeIntoEditRecordedBeforeIt() {
+        UndoHistory history = new UndoHistory(1000);
+        history.record(new Step("drag", 10));
+        history.beginGesture();
+        history.record(new Step("drag", 10));
+        history.endGesture();
+
+        assertEquals(2, history.getUndoCount());
+    }
+
+    @Test
+    void undoEndsOpenGesture() {
+        UndoHistory history = new UndoHistory(1000);
+        history.beginGesture();
+        history.record(new Step("drag", 10));
+        history.undo();
+        history.record(new Step("drag", 10));
+
+        assertEquals(1, history.getUndoCount());
+        assertFalse(history.canRedo());
+    }
+
+    @Test
+    void oldestEditsAreTrimmedToBudget() {
+        UndoHistory history = new UndoHistory(100);
+        for (int i = 0; i < 10; i++) {
+            history.record(new Step("e" + i, 30));
+        }
+
+        assertEquals(3, history.getUndoCount());
+        assertEquals(90, history.getSizeInBytes());
+        while (history.undo()) {
+            // до дна стека
+        }
+        assertEquals(List.of("undo e9", "undo e8", "undo e7"), log);
+    }
+
+    @Test
+    void singleEditOverBudgetIsKept() {
+        UndoHistory history = new UndoHistory(100);
+        history.record(new Step("small", 10));
+        history.record(new Step("huge", 500));
+
+        assertEquals(1, history.getUndoCount());
+        assertEquals(500, history.getSizeInBytes());
+        assertTrue(history.undo());
+        assertEquals(List.of("undo huge"), log);
+    }
+
+    @Test
+    void mergedGrowthIsTrimmed() {
+        UndoHistory history = new UndoHistory(100);
+        history.record(new Step("old", 40));
+        history.beginGesture();
+        for (int i = 0; i < 5; i++) {
+            history.record(new Step("drag", 20));
+        }
+        history.endGesture();
+
+        assertEquals(1, history.getUndoCount());
+        assertEquals(100, history.getSizeInBytes());
+    }
+
+    @Test
+    void clearForgetsEverything() {
+        UndoHistory history = new UndoHistory(1000);
+        history.record(new Step("a", 10));
+        history.record(new Step("b", 10));
+        history.undo();
+        history.clear();
+
+        assertFalse(history.canUndo());
+        assertFalse(history.canRedo());
+        assertEquals(0, history.getSizeInBytes());
+    }
+
+    // Запис, що зливається з наступним записом з тією ж назвою, додаючи його розмір
+    private final class Step implements UndoHistory.Edit {
+        private final String name;
+        private long size;
+        private int count = 1;
+
+        private Step(String name, long size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        private String label() {
+            return count == 1 ? name : name + " x" + count;
+        }
+
+        @Override
+        public void undo() {
+            log.add("undo " + label());
+        }
+
+        @Override
+        public void redo() {
+            log.add("redo " + label());
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return size;
+        }
+
+        @Override
+        public boolean merge(UndoHistory.Edit next) {
+            if (next instanceof Step step && step.name.equals(name)) {
+                size += step.size;
+                count += step.count;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.myflowcharteditor.utillity;
+
+import com.example.myflowcharteditor.Benchmark;
+import javafx.scene.Node;
+import javafx.scene.shape.Rectangle;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.myflowcharteditor.Benchmark.medianMillis;
+import static com.example.myflowcharteditor.Benchmark.report;
+
+// Вартість перевірки "чи замкнений маркер вузла" під час виділення залежно від кількості елементів:
+// HandleRegistry проти колишнього перебору дочірніх вузлів робочої області
+@Tag(Benchmark.TAG)
+class HandleRegistryBenchmark {
+    private static final int REGISTRY_LOOKUPS = 1_000_000;
+    private static final int SCAN_LOOKUPS = 200;
+
+    @Test
+    void lookupCostStaysFlat() {
+        report("%-10s %16s %16s", "elements", "registry ns/op", "scan ns/op");
+        Random random = new Random(7);
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            List<Node> nodes = new ArrayList<>(count);
+            HandleRegistry registry = new HandleRegistry();
+            // Робоча область містить і самі вузли, і їхні маркери
+            List<Object> workAreaChildren = new ArrayList<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                Node node = new Rectangle(i, i, 10, 10);
+                StubHandle handle = new StubHandle(node, i % 3 == 0);
+                nodes.add(node);
+                registry.register(node, handle);
+                workAreaChildren.add(node);
+                workAreaChildren.add(handle);
+            }
+            int[] order = random.ints(REGISTRY_LOOKUPS, 0, count).toArray();
+
+            double registryMs = medianMillis(() -> {
+                int locked = 0;
+                for (int index : order) {
+                    if (registry.isLocked(nodes.get(index))) {
+                        locked++;
+                    }
+                }
+                return locked;
+            });
+            double scanMs = medianMillis(1, 3, () -> {
+                int locked = 0;
+                for (int i = 0; i < SCAN_LOOKUPS; i++) {
+                    Node node = nodes.get(order[i]);
+                    if (workAreaChildren.stream()
+                            .filter(e -> e instanceof StubHandle && ((StubHandle) e).node == node)
+                            .anyMatch(e -> ((StubHandle) e).isLocked())) {
+                        locked++;
+                    }
+                }
+                return locked;
+            });
+            report("%-10d %16.1f %16.1f", count,
+                    registryMs * 1e6 / REGISTRY_LOOKUPS, scanMs * 1e6 / SCAN_LOOKUPS);
+        }
+    }
+
+    private static final class StubHandle implements ElementHandle {
+        private final Node node;
+        private boolean locked;
+
+        private StubHandle(Node node, boolean locked) {
+            this.node = node;
+            this.locked = locked;
+        }
+
+        @Override
+        public boolean isLocked() {
+            return locked;
+        }
+
+        @Override
+        public void lock() {
+            locked = true;
+        }
+
+        @Override
+        public void unlock() {
+            locked = false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.myflowcharteditor.utillity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuadTreeTest {
+    private static final double WORLD = 10_000;
+
+    @Test
+    void queryMatchesBruteForceUnderInsertMoveRemove() {
+        Random random = new Random(3);
+        QuadTree<Integer> tree = new QuadTree<>(0, 0, WORLD, WORLD);
+        Map<Integer, double[]> expected = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int item = random.nextInt(3_000);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                // Вставка нового або переміщення наявного, зокрема за межі дерева
+                double[] bounds = randomBounds(random);
+                tree.insert(item, bounds[0], bounds[1], bounds[2], bounds[3]);
+                expected.put(item, bounds);
+            } else if (operation < 8) {
+                double[] bounds = expected.get(item);
+                if (bounds != null) {
+                    // Дрібне зміщення, як під час перетягування
+                    double dx = random.nextDouble() * 6 - 3;
+                    double dy = random.nextDouble() * 6 - 3;
+                    double[] moved = {bounds[0] + dx, bounds[1] + dy, bounds[2] + dx, bounds[3] + dy};
+                    tree.insert(item, moved[0], moved[1], moved[2], moved[3]);
+                    expected.put(item, moved);
+                }
+            } else {
+                tree.remove(item);
+                expected.remove(item);
+            }
+
+            if (step % 50 == 0) {
+                double[] query = randomBounds(random);
+                assertEquals(bruteForce(expected, query), query(tree, query), "step " + step);
+                assertEquals(expected.size(), tree.size());
+            }
+        }
+    }
+
+    @Test
+    void queryIsInclusiveOnEdges() {
+        QuadTree<String> tree = new QuadTree<>(0, 0, 100, 100);
+        tree.insert("box", 10, 10, 20, 20);
+        tree.insert("point", 50, 50, 50, 50);
+
+        assertEquals(Set.of("box"), query(tree, new double[]{20, 20, 30, 30}));
+        assertEquals(Set.of("point"), query(tree, new double[]{50, 50, 50, 50}));
+        assertEquals(Set.of(), query(tree, new double[]{20.5, 20.5, 49.5, 49.5}));
+    }
+
+    @Test
+    void removeAndClearForgetItems() {
+        QuadTree<Integer> tree = new QuadTree<>(0, 0, 100, 100);
+        for (int i = 0; i < 100; i++) {
+            tree.insert(i, i, i, i + 1, i + 1);
+        }
+        tree.remove(42);
+        assertFalse(tree.contains(42));
+        assertTrue(tree.contains(41));
+        assertFalse(query(tree, new double[]{0, 0, 100, 100}).contains(42));
+
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertEquals(Set.of(), query(tree, new double[]{0, 0, 100, 100}));
+    }
+
+    private static double[] randomBounds(Random random) {
+        double x = random.nextDouble() * (WORLD + 400) - 200;
+        double y = random.nextDouble() * (WORLD + 400) - 200;
+        double width = random.nextInt(20) == 0 ? 0 : random.nextDouble() * 300;
+        double height = random.nextInt(20) == 0 ? 0 : random.nextDouble() * 300;
+        return new double[]{x, y, x + width, y + height};
+    }
+
+    private static Set<Integer> bruteForce(Map<Integer, double[]> items, double[] query) {
+        Set<Integer> found = new HashSet<>();
+        items.forEach((item, b) -> {
+            if (b[0] <= query[2] && b[2] >= query[0] && b[1] <= query[3] && b[3] >= query[1]) {
+                found.add(item);
+            }
+        });
+        return found;
+    }
+
+    private static <T> Set<T> query(QuadTree<T> tree, double[] query) {
+        Set<T> found = new HashSet<>();
+        tree.query(query[0], query[1], query[2], query[3], item -> assertTrue(found.add(item), "duplicate " + item));
+        return found;
+    }
+}